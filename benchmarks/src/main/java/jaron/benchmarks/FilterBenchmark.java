@@ -0,0 +1,94 @@
+package jaron.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import jaron.components.BiquadFilter;
+import jaron.components.ComplementaryFilter;
+import jaron.components.KalmanFilter;
+import jaron.components.LowPassFilter;
+import jaron.components.MovingAverageFilter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the costs of one sample of the filter blocks, including the
+ * update of their output signal.
+ * 
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FilterBenchmark {
+  private LowPassFilter lowPass;
+  private LowPassFilter course;
+  private BiquadFilter biquad;
+  private MovingAverageFilter movingAverage;
+  private ComplementaryFilter complementary;
+  private KalmanFilter kalman;
+  private double sample = 0;
+
+  @Setup
+  public void setup() {
+    lowPass = new LowPassFilter(1, 50);
+    course = new LowPassFilter(0.5, 5);
+    course.setCircular(360);
+    biquad = BiquadFilter.lowPass(1, 50, BiquadFilter.BUTTERWORTH);
+    movingAverage = new MovingAverageFilter(32);
+    complementary = new ComplementaryFilter(1, 50);
+    kalman = new KalmanFilter(5, 1, 5);
+  }
+
+  /*
+   * Returns the next sample, a sawtooth between -180 and 180.
+   */
+  private double next() {
+    sample = sample < 180 ? sample + 7.3 : -180;
+    return sample;
+  }
+
+  @Benchmark
+  public double lowPass() {
+    lowPass.setValue(next());
+    return lowPass.getOutput().getValue();
+  }
+
+  @Benchmark
+  public double circularLowPass() {
+    course.setValue(next());
+    return course.getOutput().getValue();
+  }
+
+  @Benchmark
+  public double biquad() {
+    biquad.setValue(next());
+    return biquad.getOutput().getValue();
+  }
+
+  @Benchmark
+  public double movingAverage() {
+    movingAverage.setValue(next());
+    return movingAverage.getOutput().getValue();
+  }
+
+  @Benchmark
+  public double complementary() {
+    complementary.getAngleInput().setValue(next());
+    complementary.setValue(0.5);
+    return complementary.getOutput().getValue();
+  }
+
+  @Benchmark
+  public double kalman() {
+    kalman.setValue(next());
+    return kalman.getOutput().getValue();
+  }
+}
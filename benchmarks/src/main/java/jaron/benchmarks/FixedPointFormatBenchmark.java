@@ -0,0 +1,40 @@
+package jaron.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import jaron.pde.FixedPointFormat;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares the <code>FixedPointFormat</code> that formats the readouts of the
+ * PDE widgets with <code>String.format</code>.
+ * 
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FixedPointFormatBenchmark {
+  private FixedPointFormat format = new FixedPointFormat(2);
+  private double value = 0;
+
+  @Benchmark
+  public String fixedPointFormat() {
+    value = value < 100 ? value + 0.37 : -100;
+    return format.format(value);
+  }
+
+  @Benchmark
+  public String stringFormat() {
+    value = value < 100 ? value + 0.37 : -100;
+    return String.format("%1.2f", value);
+  }
+}
@@ -0,0 +1,59 @@
+package jaron.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import jaron.flightgear.FlightGearReceiver;
+import jaron.flightgear.FlightGearXMLParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the costs of <code>FlightGearXMLParser.parse</code> for a line of
+ * data as it is sent by FlightGear through the UAVsim protocol
+ * (dist/FlightGear/data/Protocol/UAVsim-Protocol.xml).
+ * 
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FlightGearXMLParserBenchmark {
+  private static final String DATA =
+      "<?xml version=\"1.0\"?><data>" +
+      element(FlightGearReceiver.kElevator, "-0.052000") +
+      element(FlightGearReceiver.kAileron, "0.013000") +
+      element(FlightGearReceiver.kRudder, "0.000000") +
+      element(FlightGearReceiver.kThrottle, "0.750000") +
+      element(FlightGearReceiver.kPitch, "2.418302") +
+      element(FlightGearReceiver.kRoll, "-12.904471") +
+      element(FlightGearReceiver.kPitchRate, "0.871206") +
+      element(FlightGearReceiver.kRollRate, "-3.120475") +
+      element(FlightGearReceiver.kYawRate, "1.004352") +
+      element("orientation-heading-deg", "271.385124") +
+      element(FlightGearReceiver.kAirSpeed, "48.219804") +
+      element(FlightGearReceiver.kVerticalSpeed, "-1.306911") +
+      element(FlightGearReceiver.kAltitude, "1523.801239") +
+      "</data>\n";
+
+  private FlightGearXMLParser parser = new FlightGearXMLParser();
+
+  @Benchmark
+  public double parse() {
+    parser.parse(DATA);
+    return parser.getDouble(FlightGearReceiver.kRoll);
+  }
+
+  /*
+   * Returns an XML element with a value.
+   */
+  private static String element(String key, String value) {
+    return "<" + key + ">" + value + "</" + key + ">";
+  }
+}
@@ -0,0 +1,76 @@
+package jaron.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import jaron.autopilot.Navigation;
+import jaron.gps.GPSUtil;
+import jaron.gps.Latitude;
+import jaron.gps.Longitude;
+import jaron.gps.Trackpoint;
+import jaron.gps.Waypoint;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the geodesy calculations of <code>Navigation</code> and
+ * <code>GPSUtil</code>.
+ * 
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GeodesyBenchmark {
+  // two points about 1.2 km apart
+  private double lat1 = 47.258647;
+  private double lon1 = 11.351471;
+  private double lat2 = 47.266211;
+  private double lon2 = 11.363812;
+  private Waypoint start;
+  private Trackpoint p1;
+  private Trackpoint p2;
+
+  @Setup
+  public void setup() {
+    start = new Waypoint(lat1, lon1);
+    p1 = new Trackpoint();
+    p1.setLatitude(new Latitude(lat1));
+    p1.setLongitude(new Longitude(lon1));
+    p2 = new Trackpoint();
+    p2.setLatitude(new Latitude(lat2));
+    p2.setLongitude(new Longitude(lon2));
+  }
+
+  @Benchmark
+  public double navigationDistance() {
+    return Navigation.getDistanceInMeters(lat1, lon1, lat2, lon2);
+  }
+
+  @Benchmark
+  public double navigationCourse() {
+    return Navigation.getCourseInDegrees(lat1, lon1, lat2, lon2);
+  }
+
+  @Benchmark
+  public Waypoint navigationDestinationPoint() {
+    return Navigation.getDestinationPoint(start, 45, 1000);
+  }
+
+  @Benchmark
+  public double gpsUtilDistance() {
+    return GPSUtil.getDistance(lat1, lon1, lat2, lon2);
+  }
+
+  @Benchmark
+  public double gpsUtilTrackpointDistance() {
+    return GPSUtil.getDistance(p1, p2);
+  }
+}
@@ -0,0 +1,91 @@
+package jaron.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import jaron.components.Signal;
+import jaron.gui.Colors;
+import jaron.pde.ArtificialHorizon;
+import jaron.pde.Graph;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import processing.core.PApplet;
+import processing.core.PGraphicsJava2D;
+
+/**
+ * Measures the costs of a frame of the <code>Graph</code> (three graphs of
+ * 300 pixels) and of the <code>ArtificialHorizon</code>. The widgets draw into
+ * an offscreen <code>PGraphicsJava2D</code> that replaces the graphics port of
+ * the applet, so no window is opened. Every frame changes the values, so the
+ * widgets are redrawn every time.<br>
+ * Like the UAVsim the applet needs a display (it isn't available in a
+ * headless JVM), and the Processing core classes aren't part of the
+ * benchmarks.jar:<br>
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar:dist/UAVsim.jar org.openjdk.jmh.Main GraphDrawBenchmark
+ * </pre>
+ *
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GraphDrawBenchmark {
+  private static final int WIDTH = 460;
+  private static final int HEIGHT = 250;
+
+  private PGraphicsJava2D screen;
+  private Graph graph;
+  private Signal[] series = new Signal[3];
+  private ArtificialHorizon horizon;
+  private int frame = 0;
+
+  @Setup
+  public void setup() {
+    PApplet applet = new PApplet();
+    screen = new PGraphicsJava2D();
+    screen.setParent(applet);
+    screen.setPrimary(false);
+    screen.setSize(WIDTH, HEIGHT);
+    applet.g = screen;
+    applet.width = WIDTH;
+    applet.height = HEIGHT;
+
+    graph = new Graph(applet, 0, 0, 300, 250);
+    series[0] = graph.createGraph("Pitch", Colors.RED);
+    series[1] = graph.createGraph("Roll", Colors.GREEN);
+    series[2] = graph.createGraph("Yaw", Colors.BLUE);
+    graph.setUpdateFrequency(1000);
+    horizon = new ArtificialHorizon(applet, 300, 0);
+  }
+
+  @Benchmark
+  public void graph() {
+    ++frame;
+    for (int i=0; i<series.length; ++i) {
+      series[i].setValue(Math.sin(frame * 0.1 + i));
+    }
+    graph.invalidate();
+    screen.beginDraw();
+    graph.draw();
+    screen.endDraw();
+  }
+
+  @Benchmark
+  public void horizon() {
+    ++frame;
+    horizon.getPitch().setValue(frame % 60 - 30);
+    horizon.getRoll().setValue(frame % 90 - 45);
+    screen.beginDraw();
+    horizon.draw();
+    screen.endDraw();
+  }
+}
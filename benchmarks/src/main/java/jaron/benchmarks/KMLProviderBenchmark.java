@@ -0,0 +1,80 @@
+package jaron.benchmarks;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import jaron.google.GoogleEarthKMLProvider;
+import jaron.gps.Latitude;
+import jaron.gps.Longitude;
+import jaron.gps.Trackpoint;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the costs of <code>GoogleEarthKMLProvider.getKML</code> for a
+ * track of 1000 and 100000 points and the costs of adding a point to the
+ * track.
+ * 
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class KMLProviderBenchmark {
+  @Param({"1000", "100000"})
+  public int points;
+
+  private GoogleEarthKMLProvider provider;
+  private long time = System.currentTimeMillis();
+  private int count = 0;
+
+  @Setup
+  public void setup() {
+    // port 0: the HTTP server isn't used, any free port will do
+    provider = new GoogleEarthKMLProvider(0, 1);
+    for (int i=0; i<points; ++i) {
+      provider.trackpointChanged(nextTrackpoint());
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    provider.shutDown();
+  }
+
+  @Benchmark
+  public String getKML() {
+    return provider.getKML();
+  }
+
+  @Benchmark
+  public void trackpointChanged() {
+    provider.trackpointChanged(nextTrackpoint());
+  }
+
+  /*
+   * Returns the next point of a track that circles around Innsbruck, one
+   * point per second.
+   */
+  private Trackpoint nextTrackpoint() {
+    double angle = count * 0.01;
+    Trackpoint trackpoint = new Trackpoint();
+    trackpoint.setLatitude(new Latitude(47.26 + 0.01 * Math.sin(angle)));
+    trackpoint.setLongitude(new Longitude(11.39 + 0.015 * Math.cos(angle)));
+    trackpoint.setAltitude(1500 + 100 * Math.sin(angle * 3));
+    trackpoint.setTimestamp(new Date(time + 1000L * count));
+    trackpoint.setGroundSpeedKnots(45);
+    ++count;
+    return trackpoint;
+  }
+}
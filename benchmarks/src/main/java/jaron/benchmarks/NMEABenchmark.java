@@ -0,0 +1,40 @@
+package jaron.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import jaron.autopilot.FlightGearGpsReceiver;
+import jaron.gps.Trackpoint;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the costs of converting a sequence of NMEA data as it is sent by
+ * FlightGear to a <code>Trackpoint</code> (see
+ * <code>FlightGearGpsReceiver.readTrackpoint</code>).
+ * 
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NMEABenchmark {
+  private static final String NMEA =
+      "$GPRMC,123519,A,4807.038,N,01131.000,E,022.4,084.4,230394,003.1,W*6A\r\n" +
+      "$GPGGA,123519,4807.038,N,01131.000,E,1,08,0.9,545.4,M,46.9,M,,*47\r\n" +
+      "$GPGSA,A,3,04,05,,09,12,,,24,,,,,2.5,1.3,2.1*39\r\n";
+
+  @Benchmark
+  public Trackpoint readTrackpoint() throws IOException {
+    return FlightGearGpsReceiver.readTrackpoint(new BufferedReader(new StringReader(NMEA)));
+  }
+}
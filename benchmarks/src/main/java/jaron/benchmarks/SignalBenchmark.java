@@ -0,0 +1,76 @@
+package jaron.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import jaron.components.DoubleSignalListener;
+import jaron.components.Signal;
+import jaron.components.SignalEvent;
+import jaron.components.SignalListener;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the costs of <code>Signal.setValue</code>, i.e. the notification
+ * of 1, 10 and 100 listeners, with <code>SignalListener</code>s and with
+ * <code>DoubleSignalListener</code>s.
+ * 
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SignalBenchmark {
+  @Param({"1", "10", "100"})
+  public int listeners;
+
+  private Signal signal;
+  private Signal doubleSignal;
+  private double value = 0;
+
+  @Setup
+  public void setup(final Blackhole blackhole) {
+    signal = new Signal();
+    for (int i=0; i<listeners; ++i) {
+      signal.addSignalListener(new SignalListener() {
+        public void setValue(double value) {
+          blackhole.consume(value);
+        }
+
+        public void signalChanged(SignalEvent event) {
+          blackhole.consume(event.getValue());
+        }
+      });
+    }
+    doubleSignal = new Signal();
+    for (int i=0; i<listeners; ++i) {
+      doubleSignal.addDoubleSignalListener(new DoubleSignalListener() {
+        public void accept(double value, long timestamp) {
+          blackhole.consume(value);
+        }
+      });
+    }
+  }
+
+  @Benchmark
+  public void setValue() {
+    // the value changes, so every call notifies the listeners
+    value = value < 1 ? value + 0.001 : -1;
+    signal.setValue(value);
+  }
+
+  @Benchmark
+  public void setValueDouble() {
+    value = value < 1 ? value + 0.001 : -1;
+    doubleSignal.setValue(value);
+  }
+}
@@ -0,0 +1,63 @@
+package jaron.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import jaron.components.Signal;
+import jaron.components.SignalGraph;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares the propagation of a sensor value through the autopilot wiring
+ * (sensor, flight data, motion controller) with listener chains and with a
+ * compiled <code>SignalGraph</code>.
+ * 
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SignalGraphBenchmark {
+  private Signal chainedSensor = new Signal();
+  private Signal compiledSensor = new Signal();
+  private double value = 0;
+
+  @Setup
+  public void setup() {
+    Signal flightData = new Signal();
+    Signal motionController = new Signal();
+    Signal missionController = new Signal();
+    chainedSensor.addSignalListener(flightData);
+    flightData.addSignalListener(motionController);
+    flightData.addSignalListener(missionController);
+
+    SignalGraph graph = new SignalGraph();
+    flightData = new Signal();
+    motionController = new Signal();
+    missionController = new Signal();
+    graph.connect(compiledSensor, flightData);
+    graph.connect(flightData, motionController);
+    graph.connect(flightData, missionController);
+    graph.compile();
+  }
+
+  @Benchmark
+  public void chained() {
+    value = value < 1 ? value + 0.001 : -1;
+    chainedSensor.setValue(value);
+  }
+
+  @Benchmark
+  public void compiled() {
+    value = value < 1 ? value + 0.001 : -1;
+    compiledSensor.setValue(value);
+  }
+}
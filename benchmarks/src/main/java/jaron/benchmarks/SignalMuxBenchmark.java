@@ -0,0 +1,76 @@
+package jaron.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import jaron.components.Signal;
+import jaron.components.SignalMux;
+import jaron.components.TwoWaySwitch;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the costs of a value change that passes a <code>SignalMux</code>
+ * (with and without a handover in progress) and of switching the
+ * <code>SignalMux</code> and the <code>TwoWaySwitch</code>.
+ * 
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SignalMuxBenchmark {
+  private SignalMux mux;
+  private SignalMux blendingMux;
+  private TwoWaySwitch twoWaySwitch;
+  private Signal target;
+  private double value = 0;
+  private int selection = 0;
+
+  @Setup
+  public void setup() {
+    target = new Signal();
+    mux = new SignalMux(3);
+    mux.getOutput().addSignalListener(target);
+    mux.select(1);
+    // a handover that never completes during the measurement
+    blendingMux = new SignalMux(2);
+    blendingMux.setBlendTime(3600);
+    blendingMux.select(1);
+    twoWaySwitch = new TwoWaySwitch();
+    twoWaySwitch.getOutput1().addSignalListener(new Signal());
+    twoWaySwitch.getOutput2().addSignalListener(new Signal());
+  }
+
+  @Benchmark
+  public double selectedInput() {
+    mux.getInput(1).setValue(++value);
+    return target.getValue();
+  }
+
+  @Benchmark
+  public double blendedInput() {
+    blendingMux.getInput(1).setValue(++value);
+    return blendingMux.getOutput().getValue();
+  }
+
+  @Benchmark
+  public int select() {
+    selection = (selection + 1) % 3;
+    mux.select(selection);
+    return mux.getSelected();
+  }
+
+  @Benchmark
+  public double toggleSwitch() {
+    twoWaySwitch.toggleSwitch();
+    return twoWaySwitch.getValue();
+  }
+}
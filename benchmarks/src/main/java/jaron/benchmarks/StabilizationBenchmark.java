@@ -0,0 +1,45 @@
+package jaron.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import jaron.autopilot.Stabilization;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the costs of a PID update (<code>Stabilization.updatePID</code>).
+ * 
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StabilizationBenchmark {
+  private Stabilization.PID pid;
+  private double error = 0;
+
+  @Setup
+  public void setup() {
+    // the settings of the pitch controller of the UAVsim
+    pid = new Stabilization.PID();
+    pid.pGain = 2.0;
+    pid.iGain = 0.3;
+    pid.dGain = 0.75;
+    pid.iMax = 1;
+    pid.iMin = -1;
+  }
+
+  @Benchmark
+  public double updatePID() {
+    error = error < 1 ? error + 0.01 : -1;
+    return Stabilization.updatePID(pid, error);
+  }
+}
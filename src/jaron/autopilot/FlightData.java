@@ -1,6 +1,7 @@
 package jaron.autopilot;
 
 import jaron.components.Signal;
+import jaron.components.VectorSignal;
 
 /**
  * The <code>FlightData</code> class provides the functionality for the input
@@ -8,7 +9,14 @@ import jaron.components.Signal;
  * provides its output data to the <code>FlightData</code> component and an
  * unlimited number of components can receive this data as their input data.
  * The event handling mechanism of the <code>Signal</code> class is used to
- * publish the data whenever a certain value has changed.
+ * publish the data whenever a certain value has changed.<br>
+ * The values of the motion sensor arrive together, they are kept in a
+ * <code>VectorSignal</code> (see <code>getMotion</code>, the indices are the
+ * same as the <code>INDEX_</code> constants of the
+ * <code>FlightGearMotionSensor</code>). The single value signals (e.g.
+ * <code>getPitchAngle</code>) are components of this vector, they are only
+ * updated if they are used. Their setters are deprecated, they replace the
+ * component signal of the vector.
  * 
  * @see Signal
  *   
@@ -49,14 +57,8 @@ public class FlightData {
   private Signal pitchTrim = new Signal();
   
   // MotionSensor
-  private Signal pitchAngle = new Signal();
-  private Signal rollAngle = new Signal();
+  private VectorSignal motion = new VectorSignal(7);
   private Signal yawAngle = new Signal();         // unused in current version
-  private Signal airSpeed = new Signal();         // unused in current version
-  private Signal verticalSpeed = new Signal();         // unused in current version
-  private Signal pitchAngularRate = new Signal(); // unused in current version
-  private Signal rollAngularRate = new Signal();  // unused in current version
-  private Signal yawAngularRate = new Signal();   // unused in current version
 
   public Signal getCurrentWaypointIndex() {
     return currentWaypointIndex;
@@ -64,11 +66,22 @@ public class FlightData {
   public void setCurrentWaypointIndex(Signal currentWaypointIndex) {
     this.currentWaypointIndex = currentWaypointIndex;
   }
-  public Signal getVerticalSpeed() {
-    return verticalSpeed;
+  public VectorSignal getMotion() {
+    return motion;
   }
+  public Signal getVerticalSpeed() {
+    return motion.getComponent(FlightGearMotionSensor.INDEX_VERTICAL_SPEED);
+  }
+  /**
+   * Replaces the signal of a value of the motion vector, it is updated by
+   * the vector from now on.
+   *
+   * @deprecated the value is a component of <code>getMotion</code>, use
+   *             <code>getMotion().setComponent</code> instead
+   */
+  @Deprecated
   public void setVerticalSpeed(Signal verticalSpeed) {
-    this.verticalSpeed = verticalSpeed;
+    motion.setComponent(FlightGearMotionSensor.INDEX_VERTICAL_SPEED, verticalSpeed);
   }
   public Signal getRollTrim() {
     return rollTrim;
@@ -203,16 +216,32 @@ public class FlightData {
     this.throttleOutput = throttleOutput;
   }
   public Signal getPitchAngle() {
-    return pitchAngle;
-  }
+    return motion.getComponent(FlightGearMotionSensor.INDEX_PITCH_ANGLE);
+  }
+  /**
+   * Replaces the signal of a value of the motion vector, it is updated by
+   * the vector from now on.
+   *
+   * @deprecated the value is a component of <code>getMotion</code>, use
+   *             <code>getMotion().setComponent</code> instead
+   */
+  @Deprecated
   public void setPitchAngle(Signal pitchAngle) {
-    this.pitchAngle = pitchAngle;
+    motion.setComponent(FlightGearMotionSensor.INDEX_PITCH_ANGLE, pitchAngle);
   }
   public Signal getRollAngle() {
-    return rollAngle;
-  }
+    return motion.getComponent(FlightGearMotionSensor.INDEX_ROLL_ANGLE);
+  }
+  /**
+   * Replaces the signal of a value of the motion vector, it is updated by
+   * the vector from now on.
+   *
+   * @deprecated the value is a component of <code>getMotion</code>, use
+   *             <code>getMotion().setComponent</code> instead
+   */
+  @Deprecated
   public void setRollAngle(Signal rollAngle) {
-    this.rollAngle = rollAngle;
+    motion.setComponent(FlightGearMotionSensor.INDEX_ROLL_ANGLE, rollAngle);
   }
   public Signal getYawAngle() {
     return yawAngle;
@@ -221,27 +250,59 @@ public class FlightData {
     this.yawAngle = yawAngle;
   }
   public Signal getAirSpeed() {
-    return airSpeed;
-  }
+    return motion.getComponent(FlightGearMotionSensor.INDEX_AIR_SPEED);
+  }
+  /**
+   * Replaces the signal of a value of the motion vector, it is updated by
+   * the vector from now on.
+   *
+   * @deprecated the value is a component of <code>getMotion</code>, use
+   *             <code>getMotion().setComponent</code> instead
+   */
+  @Deprecated
   public void setAirSpeed(Signal airSpeed) {
-    this.airSpeed = airSpeed;
+    motion.setComponent(FlightGearMotionSensor.INDEX_AIR_SPEED, airSpeed);
   }
   public Signal getPitchAngularRate() {
-    return pitchAngularRate;
-  }
+    return motion.getComponent(FlightGearMotionSensor.INDEX_PITCH_ANGULAR_RATE);
+  }
+  /**
+   * Replaces the signal of a value of the motion vector, it is updated by
+   * the vector from now on.
+   *
+   * @deprecated the value is a component of <code>getMotion</code>, use
+   *             <code>getMotion().setComponent</code> instead
+   */
+  @Deprecated
   public void setPitchAngularRate(Signal pitchAngularRate) {
-    this.pitchAngularRate = pitchAngularRate;
+    motion.setComponent(FlightGearMotionSensor.INDEX_PITCH_ANGULAR_RATE, pitchAngularRate);
   }
   public Signal getRollAngularRate() {
-    return rollAngularRate;
-  }
+    return motion.getComponent(FlightGearMotionSensor.INDEX_ROLL_ANGULAR_RATE);
+  }
+  /**
+   * Replaces the signal of a value of the motion vector, it is updated by
+   * the vector from now on.
+   *
+   * @deprecated the value is a component of <code>getMotion</code>, use
+   *             <code>getMotion().setComponent</code> instead
+   */
+  @Deprecated
   public void setRollAngularRate(Signal rollAngularRate) {
-    this.rollAngularRate = rollAngularRate;
+    motion.setComponent(FlightGearMotionSensor.INDEX_ROLL_ANGULAR_RATE, rollAngularRate);
   }
   public Signal getYawAngularRate() {
-    return yawAngularRate;
-  }
+    return motion.getComponent(FlightGearMotionSensor.INDEX_YAW_ANGULAR_RATE);
+  }
+  /**
+   * Replaces the signal of a value of the motion vector, it is updated by
+   * the vector from now on.
+   *
+   * @deprecated the value is a component of <code>getMotion</code>, use
+   *             <code>getMotion().setComponent</code> instead
+   */
+  @Deprecated
   public void setYawAngularRate(Signal yawAngularRate) {
-    this.yawAngularRate = yawAngularRate;
+    motion.setComponent(FlightGearMotionSensor.INDEX_YAW_ANGULAR_RATE, yawAngularRate);
   }
 }
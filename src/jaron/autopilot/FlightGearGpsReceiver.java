@@ -7,11 +7,11 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
-import java.util.HashMap;
 
 import javax.swing.event.EventListenerList;
 
 import jaron.components.Signal;
+import jaron.components.VectorSignal;
 import jaron.gps.Direction;
 import jaron.gps.Latitude;
 import jaron.gps.Longitude;
@@ -30,12 +30,19 @@ import jaron.gps.TrackpointListener;
  * The consequence of a lack of performance is, that some of the data sent by FG
  * could be lost because of timing issues. In this case you could run FG and the
  * Java application on two different machines via a network connection.<br>
+ * The values of a trackpoint are published at once as a
+ * <code>VectorSignal</code> (see <code>getPosition</code> and the
+ * <code>INDEX_</code> constants), the single value signals (e.g.
+ * <code>getLatitude</code>) are components of this vector.<br>
+ * The course over ground is calculated from two consecutive positions and
+ * jitters with the ailerons. It can be smoothed by a circular
+ * <code>LowPassFilter</code> (see <code>jaron.components</code>) or fused
+ * with the motion sensor by a <code>NavigationEstimator</code>.<br>
  *   
  * @author      jarontec gmail com
  * @version     1.2
  * @since       1.2
  */
-// TODO High-pass filter the calculated course signal (aileron jitter)
 public class FlightGearGpsReceiver extends Thread {
   /**
    * The default update frequency of the <code>FlightGearGpsReceiver</code>
@@ -48,17 +55,38 @@ public class FlightGearGpsReceiver extends Thread {
    * this is port {@value DEFAULT_PORT} but this could change in the future.
    */
   public static final int DEFAULT_PORT = 5557;
+
+  /**
+   * The index of the latitude in the position vector.
+   */
+  public static final int INDEX_LATITUDE = 0;
+  /**
+   * The index of the longitude in the position vector.
+   */
+  public static final int INDEX_LONGITUDE = 1;
+  /**
+   * The index of the course over ground in the position vector.
+   */
+  public static final int INDEX_COURSE_OVER_GROUND = 2;
+  /**
+   * The index of the speed over ground in the position vector.
+   */
+  public static final int INDEX_SPEED_OVER_GROUND = 3;
+  /**
+   * The index of the absolute altitude in the position vector.
+   */
+  public static final int INDEX_ALTITUDE_ABSOLUTE = 4;
+  /**
+   * The index of the number of satellites in the position vector.
+   */
+  public static final int INDEX_SATELLITES = 5;
   
   private float updateFrequency = DEFAULT_UPDATE_FREQUENCY;
   private ServerSocket server = null;
   private Socket client = null;
+  private BufferedReader reader = null;
   private EventListenerList trackpathListeners = new EventListenerList();
-  private Signal latitude = new Signal();
-  private Signal longitude = new Signal();
-  private Signal courseOverGround = new Signal();
-  private Signal speedOverGround = new Signal();
-  private Signal altitudeAbsolute = new Signal();
-  private Signal satellites = new Signal();
+  private VectorSignal position = new VectorSignal(6);
   private double pastLatitude = 0;
   private double pastLongitude = 0;
 
@@ -69,6 +97,8 @@ public class FlightGearGpsReceiver extends Thread {
    * @param port  the port the receiver listens to
    */
   public FlightGearGpsReceiver(int port) {
+    // the number of satellites is sent with every trackpoint but rarely changes
+    getSatellites().setNotifyOnChange(true);
     // start the socket server who waits for the connecting client
     try {
       server = new ServerSocket(port); // from now on the server listens to incomming connections
@@ -121,7 +151,7 @@ public class FlightGearGpsReceiver extends Thread {
    * @see Signal
    */
   public Signal getLatitude() {
-    return latitude;
+    return position.getComponent(INDEX_LATITUDE);
   }
 
   /**
@@ -132,7 +162,7 @@ public class FlightGearGpsReceiver extends Thread {
    * @see Signal
    */
   public Signal getLongitude() {
-    return longitude;
+    return position.getComponent(INDEX_LONGITUDE);
   }
 
   /**
@@ -144,7 +174,7 @@ public class FlightGearGpsReceiver extends Thread {
    * @see Signal
    */
   public Signal getCourseOverGround() {
-    return courseOverGround;
+    return position.getComponent(INDEX_COURSE_OVER_GROUND);
   }
 
   /**
@@ -156,7 +186,7 @@ public class FlightGearGpsReceiver extends Thread {
    * @see Signal
    */
   public Signal getSpeedOverGround() {
-    return speedOverGround;
+    return position.getComponent(INDEX_SPEED_OVER_GROUND);
   }
 
   /**
@@ -168,7 +198,7 @@ public class FlightGearGpsReceiver extends Thread {
    * @see Signal
    */
   public Signal getAltitudeAbsolute() {
-    return altitudeAbsolute;
+    return position.getComponent(INDEX_ALTITUDE_ABSOLUTE);
   }
 
   /**
@@ -180,7 +210,19 @@ public class FlightGearGpsReceiver extends Thread {
    * @see Signal
    */
   public Signal getSatellites() {
-    return satellites;
+    return position.getComponent(INDEX_SATELLITES);
+  }
+
+  /**
+   * Returns the position vector, which contains all the values of a
+   * trackpoint (see the <code>INDEX_</code> constants).
+   * 
+   * @return the position vector
+   * 
+   * @see VectorSignal
+   */
+  public VectorSignal getPosition() {
+    return position;
   }
 
   /**
@@ -196,12 +238,16 @@ public class FlightGearGpsReceiver extends Thread {
     }
     finally {
       client = null;
+      reader = null;
     }
   }
 
   /**
    * Sets the update frequency for the <code>FlightGearGpsReceiver</code>.
    * The default update frequency is set to {@value DEFAULT_UPDATE_FREQUENCY} Hz.
+   * While a client is connected the receiver reads the NMEA data as it
+   * arrives, the frequency only applies to the retries (e.g. after a
+   * connection error).
    * 
    * @param updateFrequency the new frequency in Hz
    */
@@ -218,69 +264,100 @@ public class FlightGearGpsReceiver extends Thread {
       try {
         // check if there is a client connected to our server
         if (client != null) {
-          BufferedReader is = new BufferedReader(new InputStreamReader(client.getInputStream()));
-          String s = new String();
-          Trackpoint trackpoint = new Trackpoint();
-          HashMap<String, String> nmea = new HashMap<String, String>();
-
-          // FlightGear sends a stream of $GPRMC, $GPGGA and $GPGSA NMEA data (in that order)
-          // this data is parsed and converted to a Trackpoint object
+          // one reader per connection, so no buffered data gets lost
+          if (reader == null) {
+            reader = new BufferedReader(new InputStreamReader(client.getInputStream()));
+          }
+          // the received NMEA data is converted to a Trackpoint object
           // after that the Trackpoint object is sent to the EventListeners
-          while ((s = is.readLine()) != null) {
-            String[] params = s.split(",");
-            if(params[0].equals("$GPRMC")) {
-              nmea = new HashMap<String, String>();
-              nmea.put("GPRMC", s);
-              trackpoint.setLatitude(new Latitude(params[3], Direction.fromValue( params[4])));
-              trackpoint.setLongitude(new Longitude(params[5], Direction.fromValue( params[6])));
-              String time = params[1];
-              String date = params[9];
-              Calendar cal = GregorianCalendar.getInstance();
-              cal.set(Calendar.HOUR, Integer.parseInt(time.substring(0, 2)));
-              cal.set(Calendar.MINUTE, Integer.parseInt(time.substring(2, 4)));
-              cal.set(Calendar.SECOND, Integer.parseInt(time.substring(4, 6)));
-              cal.set(Calendar.DAY_OF_MONTH, Integer.parseInt(date.substring(0, 2)));
-              cal.set(Calendar.MONTH, Integer.parseInt(date.substring(2, 4)));
-              cal.set(Calendar.YEAR, Integer.parseInt(date.substring(4, 6)));
-              trackpoint.setTimestamp(cal.getTime());
-              trackpoint.setGroundSpeedKnots(Double.parseDouble(params[7]));
-            }
-            else if(params[0].equals("$GPGGA")) {
-              nmea.put("GPGGA", s);
-              trackpoint.setSatellites(Integer.parseInt(params[7]));
-              trackpoint.setAltitude(Double.parseDouble(params[9]));
-            }
-            // $GPGSA implies the end of the NMEA data sequence
-            else if(params[0].equals("$GPGSA")) {
-              nmea.put("GPGSA", s);
-              break;
-            }
+          // (readTrackpoint blocks until the next sequence arrives)
+          Trackpoint trackpoint = readTrackpoint(reader);
+          if (trackpoint == null) {
+            // the client has closed the connection
+            disconnectClient();
           }
           // FlightGear sends junk data at initialization and this is filtered out here
-          if (trackpoint.getLatitude().getDegrees() != 0) {
-            latitude.setValue(trackpoint.getLatitude().getDecimal());
-            longitude.setValue(trackpoint.getLongitude().getDecimal());
+          else if (trackpoint.getLatitude().getDegrees() != 0) {
+            // the course keeps its value until there is a past position
+            double[] values = position.getValues();
+            values[INDEX_LATITUDE] = trackpoint.getLatitude().getDecimal();
+            values[INDEX_LONGITUDE] = trackpoint.getLongitude().getDecimal();
             if (pastLatitude != 0 && pastLongitude != 0) {
-              courseOverGround.setValue(Navigation.getCourseInDegrees(pastLatitude, pastLongitude, latitude.getValue(), longitude.getValue()));
+              values[INDEX_COURSE_OVER_GROUND] = Navigation.getCourseInDegrees(pastLatitude, pastLongitude, values[INDEX_LATITUDE], values[INDEX_LONGITUDE]);
             }
-            speedOverGround.setValue(trackpoint.getGroundSpeed());
-            altitudeAbsolute.setValue(trackpoint.getAltitude());
-            satellites.setValue(trackpoint.getSatellites());
+            values[INDEX_SPEED_OVER_GROUND] = trackpoint.getGroundSpeed();
+            values[INDEX_ALTITUDE_ABSOLUTE] = trackpoint.getAltitude();
+            values[INDEX_SATELLITES] = trackpoint.getSatellites();
+            position.set(values);
             notifyTrackpointListeners(trackpoint);
-            pastLatitude = latitude.getValue();
-            pastLongitude = longitude.getValue();
+            pastLatitude = values[INDEX_LATITUDE];
+            pastLongitude = values[INDEX_LONGITUDE];
           }
         }
         // if no client is connected then check if there is a client waiting for a connection
         else if (server != null) {
           client = server.accept(); // waits until a connection is established
         }
+        else {
+          idle();
+        }
       } catch (IOException e) {
           System.out.println("IOException in FlightGearNMEAReceiver::run(): IOException: " + e.getMessage());
           disconnectClient();
+          idle();
+      }
+    }
+  }
+
+  /*
+   * Waits for one update period before the next attempt.
+   */
+  private void idle() {
+    try { sleep((long )(1000 / updateFrequency)); } catch(InterruptedException e) {} 
+  }
+
+  /**
+   * Reads a sequence of NMEA data as it is sent by FlightGear ($GPRMC, $GPGGA and
+   * $GPGSA, in that order) and converts it to a <code>Trackpoint</code> object.
+   * The sequence ends with the $GPGSA sentence or at the end of the data.
+   * 
+   * @param reader  the reader that provides the NMEA sentences line by line
+   * @return        the trackpoint (its latitude is 0 if no $GPRMC sentence was read),
+   *                <code>null</code> if the data ended before a sentence was read
+   * @throws IOException  if the data can't be read
+   */
+  public static Trackpoint readTrackpoint(BufferedReader reader) throws IOException {
+    String s;
+    Trackpoint trackpoint = new Trackpoint();
+    Boolean empty = true;
+    while ((s = reader.readLine()) != null) {
+      empty = false;
+      String[] params = s.split(",");
+      if(params[0].equals("$GPRMC")) {
+        trackpoint.setLatitude(new Latitude(params[3], Direction.fromValue( params[4])));
+        trackpoint.setLongitude(new Longitude(params[5], Direction.fromValue( params[6])));
+        String time = params[1];
+        String date = params[9];
+        Calendar cal = GregorianCalendar.getInstance();
+        cal.set(Calendar.HOUR, Integer.parseInt(time.substring(0, 2)));
+        cal.set(Calendar.MINUTE, Integer.parseInt(time.substring(2, 4)));
+        cal.set(Calendar.SECOND, Integer.parseInt(time.substring(4, 6)));
+        cal.set(Calendar.DAY_OF_MONTH, Integer.parseInt(date.substring(0, 2)));
+        cal.set(Calendar.MONTH, Integer.parseInt(date.substring(2, 4)));
+        cal.set(Calendar.YEAR, Integer.parseInt(date.substring(4, 6)));
+        trackpoint.setTimestamp(cal.getTime());
+        trackpoint.setGroundSpeedKnots(Double.parseDouble(params[7]));
+      }
+      else if(params[0].equals("$GPGGA")) {
+        trackpoint.setSatellites(Integer.parseInt(params[7]));
+        trackpoint.setAltitude(Double.parseDouble(params[9]));
+      }
+      // $GPGSA implies the end of the NMEA data sequence
+      else if(params[0].equals("$GPGSA")) {
+        break;
       }
-      try { sleep((long )(1000 / updateFrequency)); } catch(InterruptedException e) {} 
     }
+    return empty ? null : trackpoint;
   }
 
   /**
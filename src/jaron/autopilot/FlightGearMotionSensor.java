@@ -5,8 +5,10 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import jaron.components.Signal;
+import jaron.components.VectorSignal;
 import jaron.flightgear.FlightGearXMLParser;
 
 /**
@@ -21,6 +23,18 @@ import jaron.flightgear.FlightGearXMLParser;
  * The consequence of a lack of performance is, that some of the data sent by FG
  * could be lost because of timing issues. In this case you could run FG and the
  * Java application on two different machines via a network connection.<br>
+ * Every packet that is received from FG is a frame: first all the signals are
+ * set, then the <code>FrameListener</code>s are called one after the other on
+ * the thread of the sensor. Components that are evaluated this way (synchronous
+ * mode) always see the values of the same packet and the time from the
+ * reception of a packet to the end of the evaluation is provided by the
+ * frame latency signal. Packets that have queued up in the meantime are
+ * stale, only the newest of them is evaluated (see
+ * <code>getSkippedPackets</code>).<br>
+ * The values of a packet are published at once as a <code>VectorSignal</code>
+ * (see <code>getMotion</code> and the <code>INDEX_</code> constants), the
+ * single value signals (e.g. <code>getPitchAngle</code>) are components of
+ * this vector.<br>
  * 
  * @author      jarontec gmail com
  * @version     1.2
@@ -37,6 +51,34 @@ public class FlightGearMotionSensor extends Thread {
    * this is port {@value DEFAULT_PORT} but this could change in the future.
    */
   public static final int DEFAULT_PORT = 5555;
+  /**
+   * The index of the pitch angle in the motion vector.
+   */
+  public static final int INDEX_PITCH_ANGLE = 0;
+  /**
+   * The index of the roll angle in the motion vector.
+   */
+  public static final int INDEX_ROLL_ANGLE = 1;
+  /**
+   * The index of the airspeed in the motion vector.
+   */
+  public static final int INDEX_AIR_SPEED = 2;
+  /**
+   * The index of the vertical speed in the motion vector.
+   */
+  public static final int INDEX_VERTICAL_SPEED = 3;
+  /**
+   * The index of the angular pitch rate in the motion vector.
+   */
+  public static final int INDEX_PITCH_ANGULAR_RATE = 4;
+  /**
+   * The index of the angular roll rate in the motion vector.
+   */
+  public static final int INDEX_ROLL_ANGULAR_RATE = 5;
+  /**
+   * The index of the angular yaw rate in the motion vector.
+   */
+  public static final int INDEX_YAW_ANGULAR_RATE = 6;
   private static final String AIR_SPEED = "velocities-airspeed-kt";
   private static final String VERTICAL_SPEED = "velocities-vertical-speed-fps";
   private static final String ANGLE_PITCH = "orientation-pitch-deg";
@@ -49,13 +91,14 @@ public class FlightGearMotionSensor extends Thread {
   private float updateFrequency = DEFAULT_UPDATE_FREQUENCY;
   private ServerSocket server = null;
   private Socket client = null;
-  private Signal pitchAngle = new Signal();
-  private Signal rollAngle = new Signal();
-  private Signal airSpeed = new Signal();
-  private Signal verticalSpeed = new Signal();
-  private Signal pitchAngularRate = new Signal();
-  private Signal rollAngularRate = new Signal();
-  private Signal yawAngularRate = new Signal();
+  private BufferedReader reader = null;
+  private VectorSignal motion = new VectorSignal(7);
+  private double[] motionValues = new double[7];
+  private Signal frameLatency = new Signal();
+  private CopyOnWriteArrayList<FrameListener> frameListeners = new CopyOnWriteArrayList<FrameListener>();
+  private long frame = 0;
+  private long frameStart = 0;
+  private long skippedPackets = 0;
 
   /**
    * Creates a new <code>FlightGearMotionSensor</code> and starts a <code>Thread</code>
@@ -92,7 +135,7 @@ public class FlightGearMotionSensor extends Thread {
    * @see Signal
    */
   public Signal getPitchAngle() {
-    return pitchAngle;
+    return motion.getComponent(INDEX_PITCH_ANGLE);
   }
 
   /**
@@ -103,7 +146,7 @@ public class FlightGearMotionSensor extends Thread {
    * @see Signal
    */
   public Signal getRollAngle() {
-    return rollAngle;
+    return motion.getComponent(INDEX_ROLL_ANGLE);
   }
 
   /**
@@ -114,7 +157,7 @@ public class FlightGearMotionSensor extends Thread {
    * @see Signal
    */
   public Signal getAirSpeed() {
-    return airSpeed;
+    return motion.getComponent(INDEX_AIR_SPEED);
   }
 
   /**
@@ -125,7 +168,7 @@ public class FlightGearMotionSensor extends Thread {
    * @see Signal
    */
   public Signal getVerticalSpeed() {
-    return verticalSpeed;
+    return motion.getComponent(INDEX_VERTICAL_SPEED);
   }
 
   /**
@@ -136,7 +179,7 @@ public class FlightGearMotionSensor extends Thread {
    * @see Signal
    */
   public Signal getPitchAngularRate() {
-    return pitchAngularRate;
+    return motion.getComponent(INDEX_PITCH_ANGULAR_RATE);
   }
 
   /**
@@ -147,7 +190,7 @@ public class FlightGearMotionSensor extends Thread {
    * @see Signal
    */
   public Signal getRollAngularRate() {
-    return rollAngularRate;
+    return motion.getComponent(INDEX_ROLL_ANGULAR_RATE);
   }
 
   /**
@@ -158,11 +201,70 @@ public class FlightGearMotionSensor extends Thread {
    * @see Signal
    */
   public Signal getYawAngularRate() {
-    return yawAngularRate;
+    return motion.getComponent(INDEX_YAW_ANGULAR_RATE);
+  }
+
+  /**
+   * Returns the motion vector, which contains all the values of a packet
+   * (see the <code>INDEX_</code> constants).
+   * 
+   * @return the motion vector
+   * 
+   * @see VectorSignal
+   */
+  public VectorSignal getMotion() {
+    return motion;
+  }
+
+  /**
+   * Returns the frame latency signal: the time from the reception of a packet
+   * until all the <code>FrameListener</code>s have evaluated the frame (in
+   * milliseconds). A packet that was already waiting when the sensor got to
+   * it is counted from the start of the previous frame.
+   * 
+   * @return the frame latency signal
+   * 
+   * @see Signal
+   */
+  public Signal getFrameLatency() {
+    return frameLatency;
+  }
+
+  /**
+   * Returns the number of packets that were skipped because a newer packet
+   * was already waiting.
+   * 
+   * @return  number of skipped packets
+   */
+  public long getSkippedPackets() {
+    return skippedPackets;
+  }
+
+  /**
+   * Adds a listener that is called on the thread of the sensor whenever all
+   * the signals of a packet have been set. The listeners are called in the
+   * order they were added, e.g. the <code>MotionController</code> before the
+   * <code>FlightGearServoController</code>.
+   * 
+   * @param listener  the listener to be added
+   */
+  public void addFrameListener(FrameListener listener) {
+    frameListeners.add(listener);
+  }
+
+  /**
+   * Removes a frame listener.
+   * 
+   * @param listener  the listener to be removed
+   */
+  public void removeFrameListener(FrameListener listener) {
+    frameListeners.remove(listener);
   }
 
   /**
    * Sets the update frequency for the <code>FlightGearMotionSensor</code>.
+   * While a client is connected the sensor reads the packets as they arrive,
+   * the frequency only applies to the retries (e.g. after a connection error).
    * 
    * @param updateFrequency the new frequency in Hz
    */
@@ -176,19 +278,44 @@ public class FlightGearMotionSensor extends Thread {
       try {
         // check if there is a client connected to our server
         if (client != null) {
-          BufferedReader is = new BufferedReader(new InputStreamReader(client.getInputStream()));
-          String s = is.readLine();
+          // the reader is kept per client, so no buffered packet is lost
+          if (reader == null) reader = new BufferedReader(new InputStreamReader(client.getInputStream()));
+          // a packet that is already waiting has arrived during the previous frame
+          long received = reader.ready() && frameStart != 0 ? frameStart : 0;
+          String s = reader.readLine(); // blocks until the next packet arrives
+          if (received == 0) received = System.nanoTime();
+          frameStart = System.nanoTime();
+          // only the newest of the queued packets is evaluated
+          while (s != null && reader.ready()) {
+            String newer = reader.readLine();
+            if (newer == null) break;
+            s = newer;
+            ++skippedPackets;
+          }
+          if (s == null) {
+            // the client has closed the connection
+            disconnectClient();
+          }
           // a hack to prevalidate the xml code (against timing issues)
-          if(s.matches("<\\?xml.*</data>")) {
+          else if(s.matches("<\\?xml.*</data>")) {
             if (parser.parse(s)) {
-              // set the current motion values
-              airSpeed.setValue(parser.getDouble(AIR_SPEED) * 1.852f);  // convert knots to km/h
-              verticalSpeed.setValue(parser.getDouble(VERTICAL_SPEED) * 0.00508f); // convert ft/min to m/s
-              pitchAngle.setValue(parser.getDouble(ANGLE_PITCH));
-              rollAngle.setValue(parser.getDouble(ANGLE_ROLL));
-              pitchAngularRate.setValue(parser.getDouble(ANGULAR_RATE_PITCH));
-              rollAngularRate.setValue(parser.getDouble(ANGULAR_RATE_ROLL));
-              yawAngularRate.setValue(parser.getDouble(ANGULAR_RATE_YAW));
+              // publish the current motion values at once
+              motionValues[INDEX_AIR_SPEED] = parser.getDouble(AIR_SPEED) * 1.852f;  // convert knots to km/h
+              motionValues[INDEX_VERTICAL_SPEED] = parser.getDouble(VERTICAL_SPEED) * 0.00508f; // convert ft/min to m/s
+              motionValues[INDEX_PITCH_ANGLE] = parser.getDouble(ANGLE_PITCH);
+              motionValues[INDEX_ROLL_ANGLE] = parser.getDouble(ANGLE_ROLL);
+              motionValues[INDEX_PITCH_ANGULAR_RATE] = parser.getDouble(ANGULAR_RATE_PITCH);
+              motionValues[INDEX_ROLL_ANGULAR_RATE] = parser.getDouble(ANGULAR_RATE_ROLL);
+              motionValues[INDEX_YAW_ANGULAR_RATE] = parser.getDouble(ANGULAR_RATE_YAW);
+              motion.set(motionValues);
+              // the frame is complete
+              if (!frameListeners.isEmpty()) {
+                ++frame;
+                for (FrameListener listener : frameListeners) {
+                  listener.frameCompleted(frame);
+                }
+                frameLatency.setValue((System.nanoTime() - received) / 1000000.0);
+              }
             }
           }
         }
@@ -196,14 +323,24 @@ public class FlightGearMotionSensor extends Thread {
         else if (server != null) {
           client = server.accept(); // waits until a connection is established
         }
+        else {
+          idle();
+        }
       } catch (IOException e) {
           System.out.println("IOException in FlightGearMotionSensor::run(): " + e.getMessage());
           disconnectClient();
+          idle();
       }
-      try { sleep((long )(1000 / updateFrequency)); } catch(InterruptedException e) {} 
     }
   }
 
+  /*
+   * Waits for one update period before the next attempt.
+   */
+  private void idle() {
+    try { sleep((long )(1000 / updateFrequency)); } catch(InterruptedException e) {} 
+  }
+
   private void disconnectClient() {
     try {
       if (client != null) {
@@ -214,6 +351,8 @@ public class FlightGearMotionSensor extends Thread {
     }
     finally {
       client = null;
+      reader = null;
+      frameStart = 0;
     }
   }
 
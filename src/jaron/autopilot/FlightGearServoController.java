@@ -12,13 +12,17 @@ import java.util.Locale;
 /**
  * The <code>FlightGearServoController</code> class provides access to the
  * controls (e.g. aileron, elevator, rudder, throttle) of an airplane in the
- * FlightGear flight simulator.
+ * FlightGear flight simulator.<br>
+ * By default the controls are sent with {@value DEFAULT_UPDATE_FREQUENCY} Hz
+ * by a thread of the servo controller. In synchronous mode they are sent once
+ * per sensor frame instead, right after the <code>MotionController</code> has
+ * been updated (see <code>FlightGearMotionSensor.addFrameListener</code>).
  * 
  * @author      jarontec gmail com
  * @version     1.2
  * @since       1.2
  */
-public class FlightGearServoController extends Thread {
+public class FlightGearServoController extends Thread implements FrameListener {
   /**
    * The default update frequency of the <code>FlightGearServoController</code>
    * is set to {@value DEFAULT_UPDATE_FREQUENCY} Hz.
@@ -52,10 +56,12 @@ public class FlightGearServoController extends Thread {
    * Creates a new <code>FlightGearServoController</code> and starts a
    * <code>Thread</code> that tries to connect to FlightGear.
    * 
-   * @param ip      the IP address of the FlightGear application
-   * @param port    the port of the FlightGear application
+   * @param ip          the IP address of the FlightGear application
+   * @param port        the port of the FlightGear application
+   * @param synchronous <code>true</code> if the controls are sent per sensor
+   *                    frame (no sending thread is started)
    */
- public FlightGearServoController(String ip, int port) {
+  public FlightGearServoController(String ip, int port, Boolean synchronous) {
     this.targetAddress = ip;
     this.targetPort = port;
     
@@ -80,8 +86,21 @@ public class FlightGearServoController extends Thread {
     }.start();
 
     // start sending data
-    setDaemon(true);
-    start();
+    if (!synchronous) {
+      setDaemon(true);
+      start();
+    }
+  }
+
+  /**
+   * Creates a new <code>FlightGearServoController</code> and starts a
+   * <code>Thread</code> that tries to connect to FlightGear.
+   * 
+   * @param ip      the IP address of the FlightGear application
+   * @param port    the port of the FlightGear application
+   */
+  public FlightGearServoController(String ip, int port) {
+    this(ip, port, false);
   }
   
  /**
@@ -155,23 +174,37 @@ public class FlightGearServoController extends Thread {
   public void run() {
     while(true) {
       // send data continuously as soon as the server is connected
-      if (server != null && senderAlive) {
-        try {
-          OutputStream out = server.getOutputStream(); 
-          PrintWriter printer = new PrintWriter(out, true);
-          String data = String.format(Locale.US, "%1.3f\t%1.3f\t%1.3f\t%1.3f\t",
-              elevator.getValue() * SERVO_DIRECTION_NORMAL,
-              aileron.getValue() * SERVO_DIRECTION_NORMAL,
-              rudder.getValue() * SERVO_DIRECTION_NORMAL,
-              throttle.getValue() * SERVO_DIRECTION_NORMAL);
-          printer.println(data);
-        } catch (IOException e) {
-          System.out.println("IOException in FlightGearServoController::send(): " + e.getMessage());
-        }
-      }
+      send();
       try { sleep((long )(1000 / updateFrequency)); } catch(InterruptedException e) {} 
     }
   }
+
+  /* (non-Javadoc)
+   * @see jaron.autopilot.FrameListener#frameCompleted(long)
+   */
+  public void frameCompleted(long frame) {
+    send();
+  }
+
+  /*
+   * Sends the current values of the controls if the server is connected.
+   */
+  private void send() {
+    if (server != null && senderAlive) {
+      try {
+        OutputStream out = server.getOutputStream(); 
+        PrintWriter printer = new PrintWriter(out, true);
+        String data = String.format(Locale.US, "%1.3f\t%1.3f\t%1.3f\t%1.3f\t",
+            elevator.getValue() * SERVO_DIRECTION_NORMAL,
+            aileron.getValue() * SERVO_DIRECTION_NORMAL,
+            rudder.getValue() * SERVO_DIRECTION_NORMAL,
+            throttle.getValue() * SERVO_DIRECTION_NORMAL);
+        printer.println(data);
+      } catch (IOException e) {
+        System.out.println("IOException in FlightGearServoController::send(): " + e.getMessage());
+      }
+    }
+  }
   
   /**
    * Disconnects from FlightGear.
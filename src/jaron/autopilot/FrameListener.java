@@ -0,0 +1,26 @@
+package jaron.autopilot;
+
+import java.util.EventListener;
+
+/**
+ * The <code>FrameListener</code> interface is implemented by the autopilot
+ * components that are evaluated synchronously, once per sensor frame (e.g. the
+ * <code>MotionController</code> and the <code>FlightGearServoController</code>).
+ * A frame is completed when all the signals of a sensor packet have been set,
+ * so the listeners see consistent inputs.
+ *
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ * @see         FlightGearMotionSensor#addFrameListener(FrameListener)
+ */
+public interface FrameListener extends EventListener {
+  /**
+   * Evaluates the component for a completed frame. This method is called by
+   * the thread of the sensor, the listeners are called one after the other in
+   * the order they were added.
+   *
+   * @param frame the number of the frame
+   */
+  public void frameCompleted(long frame);
+}
@@ -8,14 +8,19 @@ import jaron.gps.Waypoint;
 /**
  * The <code>MissionController</code> class provides the functionality for 
  * guiding a vehicle through a mission that is defined by a starting point
- * (home) and an unlimited number of navigation waypoints.
+ * (home) and an unlimited number of navigation waypoints.<br>
+ * By default the mission controller runs as a thread that is updated with
+ * {@value DEFAULT_UPDATE_FREQUENCY} Hz. In synchronous mode it doesn't start a
+ * thread, instead it is updated once per sensor frame as a
+ * <code>FrameListener</code>, e.g. behind a <code>NavigationEstimator</code>
+ * that provides the position and the course at the rate of the motion sensor.
  *   
  * @author      jarontec gmail com
  * @version     1.2
  * @since       1.2
  */
 // TODO Use true air speed instead of ground speed
-public class MissionController extends Thread {
+public class MissionController extends Thread implements FrameListener {
   /**
    * Used to set the circling direction.
    */
@@ -83,13 +88,27 @@ public class MissionController extends Thread {
   private double maximumRollAngle = MAXAXIMUM_ROLL_ANGLE;
   Stabilization.PID pidCourse = new Stabilization.PID();
 
+  /**
+   * Creates a new <code>MissionController</code> object.
+   * 
+   * @param synchronous <code>true</code> if the controller is updated per
+   *                    sensor frame (no thread is started)
+   */
+  public MissionController(Boolean synchronous) {
+    // the waypoint index is republished on every pass but rarely changes
+    currentWaypoint.setNotifyOnChange(true);
+    if (!synchronous) {
+      setDaemon(true);
+      start();
+    }
+  }
+
   /**
    * Creates a new <code>MissionController</code> object and starts it as a
    * <code>Thread</code>.
    */
   public MissionController() {
-    setDaemon(true);
-    start();
+    this(false);
   }
 
   /**
@@ -354,13 +373,29 @@ public class MissionController extends Thread {
   @Override
   public void run() {
     while(true) {
-      if (navigationMode != DO_IDLE) {
-        updateNavigation();
-        updateGuidance();
-      }
+      update();
       try { sleep((long )(1000 / updateFrequency)); } catch(InterruptedException e) {} 
     }
   }
+
+  /* (non-Javadoc)
+   * @see jaron.autopilot.FrameListener#frameCompleted(long)
+   */
+  public void frameCompleted(long frame) {
+    update();
+  }
+
+  /**
+   * Updates the navigation and the guidance once. This is called by the
+   * thread of the mission controller or, in synchronous mode, per sensor
+   * frame.
+   */
+  public void update() {
+    if (navigationMode != DO_IDLE) {
+      updateNavigation();
+      updateGuidance();
+    }
+  }
   
   /**
    * Called periodically this method updates the mission's navigation data.
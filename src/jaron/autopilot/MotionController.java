@@ -2,8 +2,6 @@ package jaron.autopilot;
 
 import jaron.components.Signal;
 
-import java.util.Date;
-
 /**
  * The <code>MotionController</code> class provides the functionality for
  * stabilizing and guiding a vehicle. It uses a motion sensor (through the
@@ -13,13 +11,19 @@ import java.util.Date;
  * stick input for elevator or aileron.<br>
  * The pitch and roll at which the vehicle is stabilized preset externally. This
  * is used to guide the vehicle by an external component like the
- * <code>MissionController</code>
+ * <code>MissionController</code><br>
+ * By default the motion controller runs as a thread that is updated with
+ * {@value DEFAULT_UPDATE_FREQUENCY} Hz. In synchronous mode it doesn't start a
+ * thread, instead it is updated once per sensor frame as a
+ * <code>FrameListener</code> (see
+ * <code>FlightGearMotionSensor.addFrameListener</code>), so pitch and roll
+ * always come from the same sensor packet.
  * 
  * @author      jarontec gmail com
  * @version     1.2
  * @since       1.2
  */
-public class MotionController extends Thread {
+public class MotionController extends Thread implements FrameListener {
   /**
    * The default update frequency of the <code>MotionController</code>
    * is set to {@value DEFAULT_UPDATE_FREQUENCY} Hz.
@@ -58,12 +62,27 @@ public class MotionController extends Thread {
   private Signal rollMinI = new Signal();
   private Signal rollMaxI = new Signal();
   private int stabilizationMode = DO_IDLE;
+  private long lastUpdate = 0;
+
   /**
    * Creates an new <code>MotionController</code> object.
+   * 
+   * @param synchronous <code>true</code> if the controller is updated per
+   *                    sensor frame (no thread is started)
+   */
+  public MotionController(Boolean synchronous) {
+    if (!synchronous) {
+      setDaemon(true);
+      start();
+    }
+  }
+
+  /**
+   * Creates an new <code>MotionController</code> object that runs as a
+   * thread.
    */
   public MotionController() {
-    setDaemon(true);
-    start();
+    this(false);
   }
 
   /**
@@ -300,99 +319,114 @@ public class MotionController extends Thread {
    */
   @Override
   public void run() {
-    Date timer = new Date();
-    
     while(true) {
-      // calculate the elapsed time since the last pass (in seconds)
-      double timeElapsed = (new Date().getTime() - timer.getTime()) / 1000f;
-      
-      // roll is controlled by the motion controller if there is no aileron
-      // input (from the stick).
-      // otherwise the aileron input value is sent to the aileron output (servo
-      // controller ) without any change.
-      double aileronValue = aileronInput.getValue();
-      if (stabilizationMode == DO_STABILIZE) {
-        // the dead band setting avoids drifting (caused by the stick potentiometer) 
-        if (aileronValue <= STICK_DEADBAND && aileronValue >= -STICK_DEADBAND) {
-          // no aileron input -> recalculate the default roll angle.
-          // the roll correction rate determines how fast level flight (0 degrees)
-          // will be reached.
-          // the roll angle value determines the target tilt angle (in degrees).
-          if (defaultRollAngle > 0) {
-            defaultRollAngle = Math.max(defaultRollAngle - ((rollCorrectionRate *  timeElapsed)), 0);
-          }
-          else {
-            defaultRollAngle = Math.min(defaultRollAngle + ((rollCorrectionRate *  timeElapsed)),  0);
-          }
-          // the PID processor settings could have been changed externally
-          pidRoll.pGain = rollGainP.getValue();
-          pidRoll.iGain = rollGainI.getValue();
-          pidRoll.dGain = rollGainD.getValue();
-          pidRoll.iMin = rollMinI.getValue();
-          pidRoll.iMax = rollMaxI.getValue();
-          // the PID processor calculates the roll correction value according to
-          // the difference between the default and the current roll angle
-          double rollError = rollAngle.getValue() - defaultRollAngle + rollAnglePreset.getValue() - rollTrim.getValue();
-          double rollCorrection = Stabilization.updatePID(pidRoll, rollError);
-          // clip the correction angle before it is converted to a servo value
-          rollCorrection = Math.max(rollCorrection, -MAX_ATTITUDE_ANGLE);
-          rollCorrection = Math.min(rollCorrection, MAX_ATTITUDE_ANGLE);
-          // convert the correction angle (degrees) to an aileron output value
-          aileronValue = (rollCorrection / MAX_ATTITUDE_ANGLE) * -1;
+      update();
+      try { sleep((long )(1000 / DEFAULT_UPDATE_FREQUENCY)); } catch(InterruptedException e) {} 
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see jaron.autopilot.FrameListener#frameCompleted(long)
+   */
+  public void frameCompleted(long frame) {
+    update();
+  }
+
+  /**
+   * Calculates the aileron and the elevator output once. This is called by
+   * the thread of the motion controller or, in synchronous mode, per sensor
+   * frame.
+   */
+  public void update() {
+    // calculate the elapsed time since the last pass (in seconds), the first
+    // pass doesn't move the default angles (the first sensor frame may arrive
+    // long after the construction)
+    long now = System.nanoTime();
+    double timeElapsed = lastUpdate != 0 ? (now - lastUpdate) / 1000000000.0 : 0;
+    lastUpdate = now;
+    
+    // roll is controlled by the motion controller if there is no aileron
+    // input (from the stick).
+    // otherwise the aileron input value is sent to the aileron output (servo
+    // controller ) without any change.
+    double aileronValue = aileronInput.getValue();
+    if (stabilizationMode == DO_STABILIZE) {
+      // the dead band setting avoids drifting (caused by the stick potentiometer) 
+      if (aileronValue <= STICK_DEADBAND && aileronValue >= -STICK_DEADBAND) {
+        // no aileron input -> recalculate the default roll angle.
+        // the roll correction rate determines how fast level flight (0 degrees)
+        // will be reached.
+        // the roll angle value determines the target tilt angle (in degrees).
+        if (defaultRollAngle > 0) {
+          defaultRollAngle = Math.max(defaultRollAngle - ((rollCorrectionRate *  timeElapsed)), 0);
         }
         else {
-          defaultRollAngle = rollAngle.getValue();
+          defaultRollAngle = Math.min(defaultRollAngle + ((rollCorrectionRate *  timeElapsed)),  0);
         }
+        // the PID processor settings could have been changed externally
+        pidRoll.pGain = rollGainP.getValue();
+        pidRoll.iGain = rollGainI.getValue();
+        pidRoll.dGain = rollGainD.getValue();
+        pidRoll.iMin = rollMinI.getValue();
+        pidRoll.iMax = rollMaxI.getValue();
+        // the PID processor calculates the roll correction value according to
+        // the difference between the default and the current roll angle
+        double rollError = rollAngle.getValue() - defaultRollAngle + rollAnglePreset.getValue() - rollTrim.getValue();
+        double rollCorrection = Stabilization.updatePID(pidRoll, rollError);
+        // clip the correction angle before it is converted to a servo value
+        rollCorrection = Math.max(rollCorrection, -MAX_ATTITUDE_ANGLE);
+        rollCorrection = Math.min(rollCorrection, MAX_ATTITUDE_ANGLE);
+        // convert the correction angle (degrees) to an aileron output value
+        aileronValue = (rollCorrection / MAX_ATTITUDE_ANGLE) * -1;
+      }
+      else {
+        defaultRollAngle = rollAngle.getValue();
       }
-      // the aileron value is sent to the aileron input listeners
-      aileronOutput.setValue(aileronValue);
+    }
+    // the aileron value is sent to the aileron input listeners
+    aileronOutput.setValue(aileronValue);
 
-      
-      // pitch is controlled by the motion controller if there is no elevator
-      // input (from the stick).
-      // otherwise the elevator input value is sent to the elevator output (servo
-      // controller ) without any change.
-      double elevatorValue = elevatorInput.getValue();
-      if (stabilizationMode == DO_STABILIZE) {
-        // the dead band setting avoids drifting (caused by the stick potentiometer) 
-        if (elevatorValue <= STICK_DEADBAND && elevatorValue >= -STICK_DEADBAND) {
-          // no elevator input -> recalculate the default pitch angle.
-          // the pitch correction rate determines how fast level flight (0 degrees)
-          // will be reached.
-          // the pitch angle value determines the target angle of attack (in degrees).
-          if (defaultPitchAngle > 0) {
-            defaultPitchAngle = Math.max(defaultPitchAngle - (pitchCorrectionRate * timeElapsed), 0);
-          }
-          else {
-            defaultPitchAngle = Math.min(defaultPitchAngle + (pitchCorrectionRate * timeElapsed), 0);
-          }
-          // the PID processor settings could have been changed externally
-          pidPitch.pGain = pitchGainP.getValue();
-          pidPitch.iGain = pitchGainI.getValue();
-          pidPitch.dGain = pitchGainD.getValue();
-          pidPitch.iMin = pitchMinI.getValue();
-          pidPitch.iMax = pitchMaxI.getValue();
-          // the PID processor calculates the pitch correction value according to
-          // the difference between the default and the current pitch angle
-          double pitchError = pitchAngle.getValue() - defaultPitchAngle - pitchAnglePreset.getValue() - pitchTrim.getValue();
-          double pitchCorrection = Stabilization.updatePID(pidPitch, pitchError);
-          // clip the correction angle before it is converted to a servo value
-          pitchCorrection = Math.max(pitchCorrection, -MAX_ATTITUDE_ANGLE);
-          pitchCorrection = Math.min(pitchCorrection, MAX_ATTITUDE_ANGLE);
-          // convert the correction angle (degrees) to an elevator output value
-          elevatorValue = pitchCorrection / MAX_ATTITUDE_ANGLE;
+    
+    // pitch is controlled by the motion controller if there is no elevator
+    // input (from the stick).
+    // otherwise the elevator input value is sent to the elevator output (servo
+    // controller ) without any change.
+    double elevatorValue = elevatorInput.getValue();
+    if (stabilizationMode == DO_STABILIZE) {
+      // the dead band setting avoids drifting (caused by the stick potentiometer) 
+      if (elevatorValue <= STICK_DEADBAND && elevatorValue >= -STICK_DEADBAND) {
+        // no elevator input -> recalculate the default pitch angle.
+        // the pitch correction rate determines how fast level flight (0 degrees)
+        // will be reached.
+        // the pitch angle value determines the target angle of attack (in degrees).
+        if (defaultPitchAngle > 0) {
+          defaultPitchAngle = Math.max(defaultPitchAngle - (pitchCorrectionRate * timeElapsed), 0);
         }
         else {
-          defaultPitchAngle = pitchAngle.getValue();
+          defaultPitchAngle = Math.min(defaultPitchAngle + (pitchCorrectionRate * timeElapsed), 0);
         }
+        // the PID processor settings could have been changed externally
+        pidPitch.pGain = pitchGainP.getValue();
+        pidPitch.iGain = pitchGainI.getValue();
+        pidPitch.dGain = pitchGainD.getValue();
+        pidPitch.iMin = pitchMinI.getValue();
+        pidPitch.iMax = pitchMaxI.getValue();
+        // the PID processor calculates the pitch correction value according to
+        // the difference between the default and the current pitch angle
+        double pitchError = pitchAngle.getValue() - defaultPitchAngle - pitchAnglePreset.getValue() - pitchTrim.getValue();
+        double pitchCorrection = Stabilization.updatePID(pidPitch, pitchError);
+        // clip the correction angle before it is converted to a servo value
+        pitchCorrection = Math.max(pitchCorrection, -MAX_ATTITUDE_ANGLE);
+        pitchCorrection = Math.min(pitchCorrection, MAX_ATTITUDE_ANGLE);
+        // convert the correction angle (degrees) to an elevator output value
+        elevatorValue = pitchCorrection / MAX_ATTITUDE_ANGLE;
+      }
+      else {
+        defaultPitchAngle = pitchAngle.getValue();
       }
-      // the elevator value is sent to the elevator input listeners
-      elevatorOutput.setValue(elevatorValue);
-
-      timer = new Date();
-    
-      try { sleep((long )(1000 / DEFAULT_UPDATE_FREQUENCY)); } catch(InterruptedException e) {} 
     }
+    // the elevator value is sent to the elevator input listeners
+    elevatorOutput.setValue(elevatorValue);
   }
   
   /**
@@ -0,0 +1,267 @@
+package jaron.autopilot;
+
+import jaron.components.Signal;
+import jaron.components.VectorSignal;
+import jaron.components.VectorSignalListener;
+
+/**
+ * The <code>NavigationEstimator</code> class estimates the position, the
+ * course and the speed over ground at the rate of the motion sensor.<br>
+ * Between two GPS fixes it dead-reckons: the course follows the turn rate
+ * (the yaw rate of the motion sensor) and the position moves
+ * with the airspeed along the course. Every GPS fix corrects the estimate:
+ * the position and the course are pulled towards the fix by a gain, and the
+ * difference between the speed over ground and the airspeed (e.g. wind) is
+ * learned. So the outputs are smooth and don't lag like values that are
+ * differenced from consecutive fixes.<br>
+ * The estimator is updated once per sensor frame as a
+ * <code>FrameListener</code> (see
+ * <code>FlightGearMotionSensor.addFrameListener</code>), reads the motion
+ * vector of the sensor (see <code>FlightGearMotionSensor.getMotion</code>)
+ * and receives the GPS
+ * fixes as a listener of the position vector (see
+ * <code>FlightGearGpsReceiver.getPosition</code>). The estimate starts with
+ * the first fix.<br>
+ * <br>
+ * Example:<br>
+ * <pre>
+ * NavigationEstimator estimator = new NavigationEstimator();
+ * motionSensor.addFrameListener(estimator);
+ * motionSensor.getMotion().addVectorSignalListener(estimator.getMotion());
+ * gpsReceiver.getPosition().addVectorSignalListener(estimator);
+ * </pre>
+ *
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+public class NavigationEstimator implements FrameListener, VectorSignalListener {
+  /**
+   * The default gain of {@value DEFAULT_POSITION_GAIN} by which a GPS fix
+   * corrects the estimated position.
+   */
+  public static final double DEFAULT_POSITION_GAIN = 0.3;
+
+  /**
+   * The default gain of {@value DEFAULT_COURSE_GAIN} by which a GPS fix
+   * corrects the estimated course.
+   */
+  public static final double DEFAULT_COURSE_GAIN = 0.2;
+
+  private static final double SPEED_GAIN = 0.1;
+  private static final double EARTH_RADIUS = 6371000; // in meters
+  private static final double MINIMUM_SPEED = 1;      // in km/h, below the GPS course is ignored
+  private static final double MAXIMUM_STEP = 0.5;     // in seconds, longer gaps aren't dead-reckoned
+
+  // Input/output
+  private VectorSignal motion = new VectorSignal(7); // from a motion sensor
+  private Signal latitude = new Signal();          // estimated output
+  private Signal longitude = new Signal();         // estimated output
+  private Signal courseOverGround = new Signal();  // estimated output
+  private Signal speedOverGround = new Signal();   // estimated output
+
+  // Estimate
+  private double positionGain = DEFAULT_POSITION_GAIN;
+  private double courseGain = DEFAULT_COURSE_GAIN;
+  private double referenceLatitude = 0;
+  private double referenceLongitude = 0;
+  private double metersPerDegreeLatitude = Math.toRadians(1) * EARTH_RADIUS;
+  private double metersPerDegreeLongitude = 0;
+  private double north = 0;        // in meters from the reference
+  private double east = 0;         // in meters from the reference
+  private double course = 0;       // in degrees
+  private double speedOffset = 0;  // speed over ground minus airspeed, in m/s
+  private double groundSpeed = 0;  // in m/s
+  private Boolean initialized = false;
+  private long lastUpdate = 0;
+
+  /**
+   * Returns the motion input vector. Its values are indexed like the motion
+   * vector of the motion sensor (see
+   * <code>FlightGearMotionSensor.getMotion</code>), so all the values of a
+   * frame are read at once.
+   * 
+   * @return the motion vector
+   * 
+   * @see VectorSignal
+   */
+  public VectorSignal getMotion() {
+    return motion;
+  }
+
+  /**
+   * Returns the estimated latitude signal.
+   * 
+   * @return the latitude signal
+   * 
+   * @see Signal
+   */
+  public Signal getLatitude() {
+    return latitude;
+  }
+
+  /**
+   * Returns the estimated longitude signal.
+   * 
+   * @return the longitude signal
+   * 
+   * @see Signal
+   */
+  public Signal getLongitude() {
+    return longitude;
+  }
+
+  /**
+   * Returns the estimated course over ground signal (0 to 360 degrees).
+   * 
+   * @return the course over ground signal
+   * 
+   * @see Signal
+   */
+  public Signal getCourseOverGround() {
+    return courseOverGround;
+  }
+
+  /**
+   * Returns the estimated speed over ground signal (km/h).
+   * 
+   * @return the speed over ground signal
+   * 
+   * @see Signal
+   */
+  public Signal getSpeedOverGround() {
+    return speedOverGround;
+  }
+
+  /**
+   * Sets the gain by which a GPS fix corrects the estimated position. The
+   * default gain is {@value DEFAULT_POSITION_GAIN}.
+   * 
+   * @param positionGain  the gain between 0 (the fixes are ignored) and 1 (the
+   *                      position jumps to the fix)
+   */
+  public void setPositionGain(double positionGain) {
+    this.positionGain = Math.max(0, Math.min(1, positionGain));
+  }
+
+  /**
+   * Sets the gain by which a GPS fix corrects the estimated course. The
+   * default gain is {@value DEFAULT_COURSE_GAIN}.
+   * 
+   * @param courseGain  the gain between 0 (the GPS course is ignored) and 1
+   *                    (the course jumps to the GPS course)
+   */
+  public void setCourseGain(double courseGain) {
+    this.courseGain = Math.max(0, Math.min(1, courseGain));
+  }
+
+  /* (non-Javadoc)
+   * @see jaron.autopilot.FrameListener#frameCompleted(long)
+   */
+  public void frameCompleted(long frame) {
+    update();
+  }
+
+  /**
+   * Dead-reckons the estimate from the last update until now and publishes
+   * it. This is called per sensor frame.
+   */
+  public void update() {
+    synchronized (this) {
+      long now = System.nanoTime();
+      double dt = lastUpdate != 0 ? (now - lastUpdate) / 1000000000.0 : 0;
+      lastUpdate = now;
+      if (!initialized) return;
+      dt = Math.min(dt, MAXIMUM_STEP);
+
+      // the values of one sensor frame
+      double[] m = motion.getValues();
+
+      // FlightGear's yaw rate is the rate of the heading (an Euler rate, not
+      // a body rate), so it is the turn rate as it is
+      course = wrapCourse(course + m[FlightGearMotionSensor.INDEX_YAW_ANGULAR_RATE] * dt);
+
+      // the horizontal airspeed plus what was learned from the fixes (wind)
+      double pitch = Math.toRadians(m[FlightGearMotionSensor.INDEX_PITCH_ANGLE]);
+      groundSpeed = Math.max(0, m[FlightGearMotionSensor.INDEX_AIR_SPEED] / 3.6 * Math.cos(pitch) + speedOffset);
+      double c = Math.toRadians(course);
+      north += groundSpeed * Math.cos(c) * dt;
+      east += groundSpeed * Math.sin(c) * dt;
+    }
+    publish();
+  }
+
+  /* (non-Javadoc)
+   * @see jaron.components.VectorSignalListener#accept(double[], long)
+   */
+  public void accept(double[] values, long timestamp) {
+    // the position vector is 0 until the first fix
+    if (timestamp == 0) return;
+    fix(values[FlightGearGpsReceiver.INDEX_LATITUDE], values[FlightGearGpsReceiver.INDEX_LONGITUDE],
+        values[FlightGearGpsReceiver.INDEX_COURSE_OVER_GROUND], values[FlightGearGpsReceiver.INDEX_SPEED_OVER_GROUND]);
+  }
+
+  /**
+   * Corrects the estimate with a GPS fix. The first fix initializes the
+   * estimate. The outputs aren't set here, the corrected estimate is
+   * published by the next <code>update</code>, so the outputs only change on
+   * the thread of the sensor frames.
+   * 
+   * @param lat       the latitude in decimal degrees
+   * @param lon       the longitude in decimal degrees
+   * @param gpsCourse the course over ground in degrees
+   * @param gpsSpeed  the speed over ground in km/h
+   */
+  public void fix(double lat, double lon, double gpsCourse, double gpsSpeed) {
+    synchronized (this) {
+      if (!initialized) {
+        referenceLatitude = lat;
+        referenceLongitude = lon;
+        metersPerDegreeLongitude = metersPerDegreeLatitude * Math.cos(Math.toRadians(lat));
+        north = east = 0;
+        course = wrapCourse(gpsCourse);
+        groundSpeed = gpsSpeed / 3.6;
+        initialized = true;
+      }
+      else {
+        north += positionGain * ((lat - referenceLatitude) * metersPerDegreeLatitude - north);
+        east += positionGain * ((lon - referenceLongitude) * metersPerDegreeLongitude - east);
+        // the direction of a slow vehicle is noise
+        if (gpsSpeed > MINIMUM_SPEED) {
+          double difference = wrapCourse(gpsCourse - course);
+          if (difference > 180) difference -= 360;
+          course = wrapCourse(course + courseGain * difference);
+        }
+        speedOffset += SPEED_GAIN * (gpsSpeed / 3.6 - groundSpeed);
+      }
+    }
+  }
+
+  /*
+   * Sets the output signals to the current estimate. This is only called by
+   * update, the estimate is copied under the lock and the signals are set by
+   * the frame thread alone.
+   */
+  private void publish() {
+    double lat, lon, cog, sog;
+    synchronized (this) {
+      if (!initialized) return;
+      lat = referenceLatitude + north / metersPerDegreeLatitude;
+      lon = referenceLongitude + east / metersPerDegreeLongitude;
+      cog = course;
+      sog = groundSpeed * 3.6;
+    }
+    latitude.setValue(lat);
+    longitude.setValue(lon);
+    courseOverGround.setValue(cog);
+    speedOverGround.setValue(sog);
+  }
+
+  /*
+   * Returns the course within [0, 360).
+   */
+  private static double wrapCourse(double value) {
+    value %= 360;
+    return value < 0 ? value + 360 : value;
+  }
+}
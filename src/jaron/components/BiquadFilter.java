@@ -0,0 +1,103 @@
+package jaron.components;
+
+/**
+ * The <code>BiquadFilter</code> class is a second order IIR filter (transposed
+ * direct form II) with normalized coefficients:<br>
+ * <code>y[n] = b0*x[n] + b1*x[n-1] + b2*x[n-2] - a1*y[n-1] - a2*y[n-2]</code><br>
+ * The factory methods <code>lowPass</code> and <code>highPass</code> compute
+ * the coefficients of the common filters (RBJ audio EQ cookbook), a quality
+ * of {@value BUTTERWORTH} results in a Butterworth filter.
+ *
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+public class BiquadFilter extends SignalFilter {
+  /**
+   * The quality of a Butterworth filter (1/sqrt(2)).
+   */
+  public static final double BUTTERWORTH = 0.7071067811865476;
+
+  private double b0, b1, b2, a1, a2;
+  private double z1 = 0;
+  private double z2 = 0;
+  private Boolean initialized = false;
+
+  /**
+   * Creates a new <code>BiquadFilter</code> with normalized coefficients
+   * (a0 = 1).
+   *
+   * @param b0  the feedforward coefficient of x[n]
+   * @param b1  the feedforward coefficient of x[n-1]
+   * @param b2  the feedforward coefficient of x[n-2]
+   * @param a1  the feedback coefficient of y[n-1]
+   * @param a2  the feedback coefficient of y[n-2]
+   */
+  public BiquadFilter(double b0, double b1, double b2, double a1, double a2) {
+    this.b0 = b0;
+    this.b1 = b1;
+    this.b2 = b2;
+    this.a1 = a1;
+    this.a2 = a2;
+  }
+
+  /**
+   * Creates a second order low-pass filter.
+   *
+   * @param cutoffFrequency the cutoff frequency in Hz
+   * @param sampleRate      the number of samples per second
+   * @param q               the quality, e.g. <code>BUTTERWORTH</code>
+   * @return                the filter
+   */
+  public static BiquadFilter lowPass(double cutoffFrequency, double sampleRate, double q) {
+    double w = 2 * Math.PI * cutoffFrequency / sampleRate;
+    double cos = Math.cos(w);
+    double alpha = Math.sin(w) / (2 * q);
+    double a0 = 1 + alpha;
+    return new BiquadFilter((1 - cos) / 2 / a0, (1 - cos) / a0, (1 - cos) / 2 / a0, -2 * cos / a0, (1 - alpha) / a0);
+  }
+
+  /**
+   * Creates a second order high-pass filter.
+   *
+   * @param cutoffFrequency the cutoff frequency in Hz
+   * @param sampleRate      the number of samples per second
+   * @param q               the quality, e.g. <code>BUTTERWORTH</code>
+   * @return                the filter
+   */
+  public static BiquadFilter highPass(double cutoffFrequency, double sampleRate, double q) {
+    double w = 2 * Math.PI * cutoffFrequency / sampleRate;
+    double cos = Math.cos(w);
+    double alpha = Math.sin(w) / (2 * q);
+    double a0 = 1 + alpha;
+    return new BiquadFilter((1 + cos) / 2 / a0, -(1 + cos) / a0, (1 + cos) / 2 / a0, -2 * cos / a0, (1 - alpha) / a0);
+  }
+
+  /* (non-Javadoc)
+   * @see jaron.components.SignalFilter#filter(double)
+   */
+  @Override
+  protected double filter(double value) {
+    if (!initialized) {
+      // settle the state to the first sample (steady state of a constant input)
+      double gain = (b0 + b1 + b2) / (1 + a1 + a2);
+      double y = value * gain;
+      z1 = y - b0 * value;
+      z2 = b2 * value - a2 * y;
+      initialized = true;
+    }
+    double y = b0 * value + z1;
+    z1 = b1 * value - a1 * y + z2;
+    z2 = b2 * value - a2 * y;
+    return y;
+  }
+
+  /* (non-Javadoc)
+   * @see jaron.components.SignalFilter#reset()
+   */
+  @Override
+  public void reset() {
+    z1 = z2 = 0;
+    initialized = false;
+  }
+}
@@ -0,0 +1,86 @@
+package jaron.components;
+
+/**
+ * The <code>ComplementaryFilter</code> class fuses an angular rate (e.g. of a
+ * gyroscope) with an angle measurement (e.g. derived from an accelerometer)
+ * to an attitude angle:<br>
+ * <code>angle = k * (angle + rate * dt) + (1 - k) * measuredAngle</code><br>
+ * The integrated rate is trusted in the short term, the measured angle in
+ * the long term, so the angle neither drifts like an integrated rate nor is
+ * it as noisy as the measurement. The time constant determines where the
+ * two meet.<br>
+ * The samples of the filter are the angular rates (one per sample period),
+ * the measured angle is set by the angle input signal, whose latest value is
+ * used with every rate sample.<br>
+ * <br>
+ * Example:<br>
+ * <pre>
+ * ComplementaryFilter pitch = new ComplementaryFilter(1, 50);
+ * accelerometer.getPitchAngle().addSignalListener(pitch.getAngleInput());
+ * gyroscope.getPitchRate().addSignalListener(pitch);
+ * pitch.getOutput().addSignalListener(flightData.getPitchAngle());
+ * </pre>
+ *
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+public class ComplementaryFilter extends SignalFilter {
+  private Signal angleInput = new Signal();
+  private double dt;
+  private double k;
+  private double angle = 0;
+  private Boolean initialized = false;
+
+  /**
+   * Creates a new <code>ComplementaryFilter</code>.
+   *
+   * @param timeConstant  the time constant in seconds
+   * @param sampleRate    the number of rate samples per second
+   */
+  public ComplementaryFilter(double timeConstant, double sampleRate) {
+    dt = 1 / sampleRate;
+    setTimeConstant(timeConstant);
+  }
+
+  /**
+   * Returns the angle input signal, the measured angle.
+   *
+   * @return  the angle input signal
+   */
+  public Signal getAngleInput() {
+    return angleInput;
+  }
+
+  /**
+   * Sets the time constant. The longer the time constant, the longer the
+   * integrated rate is trusted.
+   *
+   * @param timeConstant  the time constant in seconds
+   */
+  public void setTimeConstant(double timeConstant) {
+    k = Math.max(0, timeConstant) / (Math.max(0, timeConstant) + dt);
+  }
+
+  /* (non-Javadoc)
+   * @see jaron.components.SignalFilter#filter(double)
+   */
+  @Override
+  protected double filter(double rate) {
+    double measuredAngle = angleInput.getValue();
+    if (!initialized) {
+      angle = measuredAngle;
+      initialized = true;
+    }
+    angle = k * (angle + rate * dt) + (1 - k) * measuredAngle;
+    return angle;
+  }
+
+  /* (non-Javadoc)
+   * @see jaron.components.SignalFilter#reset()
+   */
+  @Override
+  public void reset() {
+    initialized = false;
+  }
+}
@@ -0,0 +1,31 @@
+package jaron.components;
+
+import java.util.EventListener;
+
+/**
+ * The <code>DoubleSignalListener</code> interface is the lightweight variant
+ * of the <code>SignalListener</code>: it receives the new value of a signal
+ * as a primitive <code>double</code>, no <code>SignalEvent</code> is created
+ * for the notification. It can be implemented by a lambda expression or a
+ * method reference.<br>
+ * <br>
+ * Example:<br>
+ * <pre>
+ * flightData.getPitchAngle().addDoubleSignalListener((value, timestamp) -> pitch = value);
+ * </pre>
+ *
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ * @see         Signal#addDoubleSignalListener(DoubleSignalListener)
+ */
+@FunctionalInterface
+public interface DoubleSignalListener extends EventListener {
+  /**
+   * Receives the new value of a signal.
+   *
+   * @param value     the new value of the signal
+   * @param timestamp the time of the change (<code>System.nanoTime</code>)
+   */
+  public void accept(double value, long timestamp);
+}
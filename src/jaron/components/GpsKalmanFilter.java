@@ -0,0 +1,179 @@
+package jaron.components;
+
+/**
+ * The <code>GpsKalmanFilter</code> class smooths GPS positions and estimates
+ * the velocity over ground. The positions are converted to meters north and
+ * east of the first fix and each axis is filtered by a
+ * <code>KalmanFilter</code>. The filtered position is published as latitude
+ * and longitude, the velocity as course and speed over ground.<br>
+ * The filter receives the positions either by <code>update</code> or as a
+ * <code>VectorSignalListener</code> of a position vector, where the latitude
+ * and longitude are expected at index 0 and 1 by default (like the position
+ * of the <code>FlightGearGpsReceiver</code>).<br>
+ * <br>
+ * Example:<br>
+ * <pre>
+ * GpsKalmanFilter filter = new GpsKalmanFilter(5);
+ * gpsReceiver.getPosition().addVectorSignalListener(filter);
+ * filter.getCourseOverGround().addSignalListener(flightData.getCourseOverGround());
+ * </pre>
+ *
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+public class GpsKalmanFilter implements VectorSignalListener {
+  /**
+   * The default process noise of {@value DEFAULT_PROCESS_NOISE} (m/s^2)^2/Hz.
+   */
+  public static final double DEFAULT_PROCESS_NOISE = 1;
+
+  /**
+   * The default measurement noise of {@value DEFAULT_MEASUREMENT_NOISE} m.
+   */
+  public static final double DEFAULT_MEASUREMENT_NOISE = 5;
+
+  private static final double EARTH_RADIUS = 6371000; // in meters
+  private static final double MIN_SPEED = 0.5;        // in m/s, below the course is kept
+
+  private KalmanFilter north;
+  private KalmanFilter east;
+  private Signal latitude = new Signal();
+  private Signal longitude = new Signal();
+  private Signal courseOverGround = new Signal();
+  private Signal speedOverGround = new Signal();
+  private int latitudeIndex = 0;
+  private int longitudeIndex = 1;
+  private double referenceLatitude = 0;
+  private double referenceLongitude = 0;
+  private double metersPerDegreeLatitude = 0;
+  private double metersPerDegreeLongitude = 0;
+  private Boolean referenced = false;
+
+  /**
+   * Creates a new <code>GpsKalmanFilter</code> with the default noise.
+   *
+   * @param sampleRate  the number of positions per second
+   */
+  public GpsKalmanFilter(double sampleRate) {
+    north = new KalmanFilter(sampleRate, DEFAULT_PROCESS_NOISE, DEFAULT_MEASUREMENT_NOISE);
+    east = new KalmanFilter(sampleRate, DEFAULT_PROCESS_NOISE, DEFAULT_MEASUREMENT_NOISE);
+  }
+
+  /**
+   * Returns the filtered latitude signal.
+   *
+   * @return  the latitude signal
+   */
+  public Signal getLatitude() {
+    return latitude;
+  }
+
+  /**
+   * Returns the filtered longitude signal.
+   *
+   * @return  the longitude signal
+   */
+  public Signal getLongitude() {
+    return longitude;
+  }
+
+  /**
+   * Returns the course over ground signal, the direction of the estimated
+   * velocity in degrees (0 to 360).
+   *
+   * @return  the course over ground signal
+   */
+  public Signal getCourseOverGround() {
+    return courseOverGround;
+  }
+
+  /**
+   * Returns the speed over ground signal, the estimated speed in km/h.
+   *
+   * @return  the speed over ground signal
+   */
+  public Signal getSpeedOverGround() {
+    return speedOverGround;
+  }
+
+  /**
+   * Sets the process noise of both axes.
+   *
+   * @param processNoise  the spectral density of the acceleration, in
+   *                      (m/s^2)^2 per Hz
+   */
+  public void setProcessNoise(double processNoise) {
+    north.setProcessNoise(processNoise);
+    east.setProcessNoise(processNoise);
+  }
+
+  /**
+   * Sets the measurement noise of both axes.
+   *
+   * @param measurementNoise  the standard deviation of a position, in meters
+   */
+  public void setMeasurementNoise(double measurementNoise) {
+    north.setMeasurementNoise(measurementNoise);
+    east.setMeasurementNoise(measurementNoise);
+  }
+
+  /**
+   * Sets the indices of the latitude and the longitude in the position
+   * vector.
+   *
+   * @param latitudeIndex   the index of the latitude
+   * @param longitudeIndex  the index of the longitude
+   */
+  public void setIndices(int latitudeIndex, int longitudeIndex) {
+    this.latitudeIndex = latitudeIndex;
+    this.longitudeIndex = longitudeIndex;
+  }
+
+  /**
+   * Filters a position and updates the output signals.
+   *
+   * @param lat the measured latitude in decimal degrees
+   * @param lon the measured longitude in decimal degrees
+   */
+  public void update(double lat, double lon) {
+    if (!referenced) {
+      referenceLatitude = lat;
+      referenceLongitude = lon;
+      metersPerDegreeLatitude = Math.toRadians(1) * EARTH_RADIUS;
+      metersPerDegreeLongitude = metersPerDegreeLatitude * Math.cos(Math.toRadians(lat));
+      referenced = true;
+    }
+    north.setValue((lat - referenceLatitude) * metersPerDegreeLatitude);
+    east.setValue((lon - referenceLongitude) * metersPerDegreeLongitude);
+    double vn = north.getVelocity().getValue();
+    double ve = east.getVelocity().getValue();
+    double speed = Math.sqrt(vn * vn + ve * ve);
+    latitude.setValue(referenceLatitude + north.getOutput().getValue() / metersPerDegreeLatitude);
+    longitude.setValue(referenceLongitude + east.getOutput().getValue() / metersPerDegreeLongitude);
+    // the direction of a velocity near 0 is noise
+    if (speed >= MIN_SPEED) {
+      double course = Math.toDegrees(Math.atan2(ve, vn));
+      courseOverGround.setValue(course < 0 ? course + 360 : course);
+    }
+    speedOverGround.setValue(speed * 3.6);
+  }
+
+  /* (non-Javadoc)
+   * @see jaron.components.VectorSignalListener#accept(double[], long)
+   */
+  public void accept(double[] values, long timestamp) {
+    // the vector is 0 until the first update
+    if (timestamp == 0) return;
+    update(values[latitudeIndex], values[longitudeIndex]);
+  }
+
+  /**
+   * Clears the state of the filter, the next position is the new reference.
+   */
+  public void reset() {
+    north.reset();
+    east.reset();
+    referenced = false;
+  }
+}
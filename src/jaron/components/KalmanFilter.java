@@ -0,0 +1,126 @@
+package jaron.components;
+
+/**
+ * The <code>KalmanFilter</code> class is a Kalman filter for one axis with
+ * a constant velocity model. The samples are position measurements at a
+ * fixed rate, the filter estimates the position (output signal) and the
+ * velocity (velocity signal).<br>
+ * The state and its covariance are a handful of fields, a sample costs a
+ * fixed number of multiplications and no memory is allocated.<br>
+ * The process noise describes how much the velocity changes (white noise
+ * acceleration), the measurement noise how much the measured positions
+ * scatter. The ratio of the two determines how smooth and how sluggish the
+ * estimates are.
+ *
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+public class KalmanFilter extends SignalFilter {
+  private Signal velocity = new Signal();
+  private double dt;
+  private double q;
+  private double r;
+  private double position = 0;
+  private double speed = 0;
+  private double p00, p01, p11;   // covariance of the state
+  private Boolean initialized = false;
+
+  /**
+   * Creates a new <code>KalmanFilter</code>.
+   *
+   * @param sampleRate        the number of measurements per second
+   * @param processNoise      the spectral density of the acceleration, in
+   *                          (units/s^2)^2 per Hz
+   * @param measurementNoise  the standard deviation of a measurement, in
+   *                          units
+   */
+  public KalmanFilter(double sampleRate, double processNoise, double measurementNoise) {
+    dt = 1 / sampleRate;
+    setProcessNoise(processNoise);
+    setMeasurementNoise(measurementNoise);
+  }
+
+  /**
+   * Returns the velocity signal, the estimated velocity in units per second.
+   *
+   * @return  the velocity signal
+   */
+  public Signal getVelocity() {
+    return velocity;
+  }
+
+  /**
+   * Sets the process noise.
+   *
+   * @param processNoise  the spectral density of the acceleration, in
+   *                      (units/s^2)^2 per Hz
+   */
+  public void setProcessNoise(double processNoise) {
+    q = Math.max(0, processNoise);
+  }
+
+  /**
+   * Sets the measurement noise.
+   *
+   * @param measurementNoise  the standard deviation of a measurement, in units
+   */
+  public void setMeasurementNoise(double measurementNoise) {
+    r = Math.max(1e-9, measurementNoise * measurementNoise);
+  }
+
+  /**
+   * Filters a measurement. The velocity signal is set before the output
+   * signal, so a listener of the position finds the matching velocity.
+   *
+   * @param value the measured position
+   */
+  @Override
+  public void setValue(double value) {
+    double estimate = filter(value);
+    velocity.setValue(speed);
+    getOutput().setValue(estimate);
+  }
+
+  /* (non-Javadoc)
+   * @see jaron.components.SignalFilter#filter(double)
+   */
+  @Override
+  protected double filter(double value) {
+    if (!initialized) {
+      // the position is measured, the velocity is unknown
+      position = value;
+      speed = 0;
+      p00 = r;
+      p01 = 0;
+      p11 = 1e6;
+      initialized = true;
+      return position;
+    }
+    // predict
+    position += speed * dt;
+    double dt2 = dt * dt;
+    p00 += 2 * dt * p01 + dt2 * p11 + q * dt2 * dt / 3;
+    p01 += dt * p11 + q * dt2 / 2;
+    p11 += q * dt;
+    // correct
+    double s = p00 + r;
+    double k0 = p00 / s;
+    double k1 = p01 / s;
+    double innovation = value - position;
+    position += k0 * innovation;
+    speed += k1 * innovation;
+    p11 -= k1 * p01;
+    p01 *= 1 - k0;
+    p00 *= 1 - k0;
+    return position;
+  }
+
+  /* (non-Javadoc)
+   * @see jaron.components.SignalFilter#reset()
+   */
+  @Override
+  public void reset() {
+    initialized = false;
+  }
+}
@@ -0,0 +1,121 @@
+package jaron.components;
+
+/**
+ * The <code>LowPassFilter</code> class is a first order IIR low-pass filter
+ * (exponential smoothing): <code>y += alpha * (x - y)</code>.<br>
+ * The smoothing factor is either set directly or derived from a cutoff
+ * frequency and the sample rate. The first sample after a reset initializes
+ * the output, so the filter doesn't start at 0.<br>
+ * A circular filter (see <code>setCircular</code>) filters angles like a
+ * course: the difference between a sample and the output is taken the short
+ * way round (e.g. from 350 to 10 degrees is +20, not -340) and the output
+ * stays within the range.
+ *
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+public class LowPassFilter extends SignalFilter {
+  private double alpha;
+  private double range = 0;
+  private double state = 0;
+  private Boolean initialized = false;
+
+  /**
+   * Creates a new <code>LowPassFilter</code> with a smoothing factor.
+   *
+   * @param alpha the smoothing factor between 0 (the output doesn't change)
+   *              and 1 (no filtering)
+   */
+  public LowPassFilter(double alpha) {
+    setAlpha(alpha);
+  }
+
+  /**
+   * Creates a new <code>LowPassFilter</code> with a cutoff frequency.
+   *
+   * @param cutoffFrequency the cutoff frequency in Hz
+   * @param sampleRate      the number of samples per second
+   */
+  public LowPassFilter(double cutoffFrequency, double sampleRate) {
+    setCutoffFrequency(cutoffFrequency, sampleRate);
+  }
+
+  /**
+   * Returns the smoothing factor.
+   *
+   * @return  the smoothing factor
+   */
+  public double getAlpha() {
+    return alpha;
+  }
+
+  /**
+   * Sets the smoothing factor.
+   *
+   * @param alpha the smoothing factor between 0 (the output doesn't change)
+   *              and 1 (no filtering)
+   */
+  public void setAlpha(double alpha) {
+    this.alpha = Math.max(0, Math.min(1, alpha));
+  }
+
+  /**
+   * Sets the smoothing factor according to a cutoff frequency.
+   *
+   * @param cutoffFrequency the cutoff frequency in Hz
+   * @param sampleRate      the number of samples per second
+   */
+  public void setCutoffFrequency(double cutoffFrequency, double sampleRate) {
+    double dt = 1 / sampleRate;
+    double rc = 1 / (2 * Math.PI * cutoffFrequency);
+    setAlpha(dt / (rc + dt));
+  }
+
+  /**
+   * Makes the filter circular, e.g. with a range of 360 for a course in
+   * degrees. The output is kept between 0 and the range.
+   *
+   * @param range the range of the values, 0 for a linear filter
+   */
+  public void setCircular(double range) {
+    this.range = Math.max(0, range);
+  }
+
+  /* (non-Javadoc)
+   * @see jaron.components.SignalFilter#filter(double)
+   */
+  @Override
+  protected double filter(double value) {
+    if (!initialized) {
+      state = wrap(value);
+      initialized = true;
+      return state;
+    }
+    double difference = value - state;
+    if (range > 0) {
+      // the short way round
+      difference = wrap(difference);
+      if (difference > range / 2) difference -= range;
+    }
+    state = wrap(state + alpha * difference);
+    return state;
+  }
+
+  /* (non-Javadoc)
+   * @see jaron.components.SignalFilter#reset()
+   */
+  @Override
+  public void reset() {
+    initialized = false;
+  }
+
+  /*
+   * Returns the value within [0, range) if the filter is circular.
+   */
+  private double wrap(double value) {
+    if (range <= 0) return value;
+    value %= range;
+    return value < 0 ? value + range : value;
+  }
+}
@@ -0,0 +1,67 @@
+package jaron.components;
+
+import java.util.Arrays;
+
+/**
+ * The <code>MovingAverageFilter</code> class averages the latest samples. The
+ * samples are kept in a ring buffer and the sum is updated per sample, so
+ * the costs don't depend on the length of the window. To keep rounding
+ * errors from adding up, the sum is recalculated once per round of the ring
+ * buffer. Until the window is filled, the average of the samples so far is
+ * published.
+ *
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+public class MovingAverageFilter extends SignalFilter {
+  private double[] samples;
+  private int index = 0;
+  private int count = 0;
+  private double sum = 0;
+
+  /**
+   * Creates a new <code>MovingAverageFilter</code>.
+   *
+   * @param size  the number of samples that are averaged
+   */
+  public MovingAverageFilter(int size) {
+    samples = new double[Math.max(1, size)];
+  }
+
+  /**
+   * Returns the number of samples that are averaged.
+   *
+   * @return  the length of the window
+   */
+  public int size() {
+    return samples.length;
+  }
+
+  /* (non-Javadoc)
+   * @see jaron.components.SignalFilter#filter(double)
+   */
+  @Override
+  protected double filter(double value) {
+    sum += value - samples[index];
+    samples[index] = value;
+    if (++index == samples.length) {
+      index = 0;
+      // the buffer is full, start over with an exact sum
+      sum = 0;
+      for (double sample : samples) sum += sample;
+    }
+    if (count < samples.length) ++count;
+    return sum / count;
+  }
+
+  /* (non-Javadoc)
+   * @see jaron.components.SignalFilter#reset()
+   */
+  @Override
+  public void reset() {
+    Arrays.fill(samples, 0);
+    index = count = 0;
+    sum = 0;
+  }
+}
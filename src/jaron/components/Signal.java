@@ -1,23 +1,54 @@
 package jaron.components;
 
-import javax.swing.event.EventListenerList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * The <code>Signal</code> class contains a single double value (signal) and
  * implements an <code>EventListener</code> mechanism that allows its registered
  * listeners to be informed if the signal's value has changes.
  * By implementing the <code>SignalListener</code> interface it can also receive
- * signal change events from other signals.
+ * signal change events from other signals.<br>
+ * By default every call of <code>setValue</code> notifies the listeners. The
+ * notification policies (notify on change, absolute or relative deadband,
+ * maximum notification rate) suppress the notifications that carry no
+ * meaningful change, the value of the signal itself is always updated.<br>
+ * A listener that is slow (e.g. one that does I/O) can be added with an
+ * <code>Executor</code>, it is then notified asynchronously and doesn't delay
+ * the other listeners and the thread that changes the signal.<br>
+ * The listeners are kept in a copy-on-write array, so the notification
+ * doesn't take a lock. A <code>DoubleSignalListener</code> receives the value
+ * without a <code>SignalEvent</code>, and so does a <code>Signal</code> that
+ * listens to another signal. Every other <code>SignalListener</code> is
+ * called through an adapter that creates the event.
  * 
  * @author      jarontec gmail com
  * @version     1.2
  * @since       1.0
  */
-public class Signal implements SignalListener {
-  private EventListenerList listeners = new EventListenerList();
+public class Signal implements SignalListener, DoubleSignalListener {
+  private static final DoubleSignalListener[] NO_LISTENERS = new DoubleSignalListener[0];
+
+  private volatile DoubleSignalListener[] listeners = NO_LISTENERS;
   private double value;
   private double high;
   private double low;
+  volatile SignalGraph.Plan plan = null; // set by a compiled SignalGraph
+  // notification policies, guarded by the signal's lock like the last
+  // notification (a signal may be set by several threads)
+  private Boolean notifyOnChange = false;
+  private double deadband = 0;
+  private double relativeDeadband = 0;
+  private long minInterval = 0;           // in nanoseconds
+  private volatile boolean filtered = false; // true if any of the policies is set
+  // the last notification
+  private boolean notified = false;
+  private double notifiedValue = 0;
+  private long notifiedTime = 0;
+  private long suppressed = 0;
 
   /**
    * Creates a <code>Signal</code> object that contains a single double
@@ -49,12 +80,67 @@ public class Signal implements SignalListener {
    * @param listener  the listener to be added
    */
   public void addSignalListener(SignalListener listener) {
-    // from now on the listener listens to signal changes
-    listeners.add(SignalListener.class, listener);
+    // from now on the listener listens to signal changes, a signal receives
+    // the values directly
+    if (listener instanceof Signal) add((Signal )listener);
+    else add(new ListenerAdapter(this, listener));
     // notify the new listener about the current value of the signal
     listener.setValue(getValue());
   }
+
+  /**
+   * Adds a listener that receives the changes of the signal as primitive
+   * values, without a <code>SignalEvent</code>. The listener is notified
+   * about the current value of the signal right away.
+   * 
+   * @param listener  the listener to be added (e.g. a lambda expression)
+   */
+  public void addDoubleSignalListener(DoubleSignalListener listener) {
+    add(listener);
+    listener.accept(getValue(), System.nanoTime());
+  }
+
+  /**
+   * Removes a listener that was added with
+   * <code>addDoubleSignalListener</code>.
+   * 
+   * @param listener  the listener to be removed
+   */
+  public void removeDoubleSignalListener(DoubleSignalListener listener) {
+    remove(listener);
+  }
   
+  /**
+   * Adds a listener that is notified asynchronously through an
+   * <code>Executor</code> (e.g. a thread pool). The listener has a mailbox
+   * that only holds the latest value: if the signal changes faster than the
+   * listener processes the changes, the values in between are dropped. The
+   * listener receives the changes in order and never concurrently, the
+   * other listeners and the thread that changes the signal don't wait for
+   * it.
+   * 
+   * @param listener  the listener to be added
+   * @param executor  the executor that runs the notifications
+   */
+  public void addSignalListener(SignalListener listener, Executor executor) {
+    AsyncListener asyncListener = new AsyncListener(this, listener, executor);
+    add(asyncListener);
+    // notify the new listener about the current value of the signal
+    asyncListener.accept(getValue(), System.nanoTime());
+  }
+
+  /**
+   * Returns the number of values that an asynchronous listener has missed
+   * because it was slower than the changes of the signal.
+   * 
+   * @param listener  a listener that was added with an executor
+   * @return          number of dropped values
+   */
+  public long getDroppedCount(SignalListener listener) {
+    AsyncListener asyncListener = getAsyncListener(listener);
+    return asyncListener != null ? asyncListener.dropped.get() : 0;
+  }
+
   /**
   * Returns the signal's bandwidth which is the high value minus the low value.
   * By default the bandwidth is 2.
@@ -85,6 +171,16 @@ public class Signal implements SignalListener {
     return low;
   }
 
+  /**
+   * Returns the number of notifications that have been suppressed by the
+   * notification policies.
+   * 
+   * @return  number of suppressed notifications
+   */
+  public synchronized long getSuppressedCount() {
+    return suppressed;
+  }
+
   /**
    * Returns the current value of the signal.
    * 
@@ -100,12 +196,23 @@ public class Signal implements SignalListener {
    * 
    * @param event     an <code>SignalEvent</code> object containig the changed value of the signal
    */
-  protected synchronized void notifySignalChange(SignalEvent event) {
-    // all the listeners are getting informed about a signal change
-    for (SignalListener l : listeners.getListeners(SignalListener.class)) 
-      l.signalChanged(event); 
+  protected void notifySignalChange(SignalEvent event) {
+    notifyListeners(event.getValue());
   } 
 
+  /*
+   * Passes a value to all the listeners. The most recently added listener is
+   * notified first (like the EventListenerList that was used before).
+   */
+  private void notifyListeners(double value) {
+    DoubleSignalListener[] l = listeners;
+    if (l.length == 0) return;
+    long timestamp = System.nanoTime();
+    for (int i=l.length-1; i>=0; --i) {
+      l[i].accept(value, timestamp);
+    }
+  }
+
   /**
    * Sets the low and the high values of the signal. This is equal to calling
    * <code>setLow</code> and <code>setHigh</code>.
@@ -127,6 +234,54 @@ public class Signal implements SignalListener {
     this.high = value;
   }
 
+  /**
+   * Sets whether the listeners are only notified if the value differs from
+   * the value of the last notification. A value that is bit-identical to the
+   * last notified value is stored but not passed on.
+   * 
+   * @param flag  <code>true</code> to notify on change only
+   */
+  public synchronized void setNotifyOnChange(Boolean flag) {
+    notifyOnChange = flag;
+    updatePolicies();
+  }
+
+  /**
+   * Sets an absolute deadband: the listeners are only notified if the value
+   * differs from the value of the last notification by more than the
+   * deadband. 0 disables the deadband.
+   * 
+   * @param deadband  the absolute deadband
+   */
+  public synchronized void setDeadband(double deadband) {
+    this.deadband = Math.abs(deadband);
+    updatePolicies();
+  }
+
+  /**
+   * Sets a relative deadband: the listeners are only notified if the value
+   * differs from the value of the last notification by more than the given
+   * fraction of that value (e.g. 0.01 for 1%). 0 disables the deadband.
+   * 
+   * @param fraction  the relative deadband
+   */
+  public synchronized void setRelativeDeadband(double fraction) {
+    relativeDeadband = Math.abs(fraction);
+    updatePolicies();
+  }
+
+  /**
+   * Sets the maximum number of notifications per second. The changes in
+   * between are stored but not passed on, so a listener may miss the last
+   * change until the signal changes again. 0 disables the limit.
+   * 
+   * @param rate  the maximum number of notifications per second
+   */
+  public synchronized void setMaxNotificationRate(float rate) {
+    minInterval = rate > 0 ? (long )(1000000000L / rate) : 0;
+    updatePolicies();
+  }
+
   /**
    * Sets the low value of the signal's bandwidth.
    * 
@@ -141,8 +296,71 @@ public class Signal implements SignalListener {
    */
   public void setValue(double value) { 
     this.value = value;
+    // the notification policies may suppress the change
+    if (filtered && !isNotificationDue(value)) return;
     // notify all the listeners that are listening to this signal
-    notifySignalChange(new SignalEvent(this, getValue()));
+    notifyListeners(value);
+    // the signals and listeners connected through a SignalGraph
+    SignalGraph.Plan p = plan;
+    if (p != null) p.dispatch(value);
+  }
+
+  /*
+   * Stores the value on behalf of a SignalGraph that dispatches it to the
+   * connected signals. Only the listeners that were added through
+   * addSignalListener are notified, and only if there are any.
+   */
+  void forward(double value) {
+    this.value = value;
+    if (listeners.length > 0 && (!filtered || isNotificationDue(value))) {
+      notifyListeners(value);
+    }
+  }
+
+  /*
+   * Returns true if no notification policy suppresses the value, the value
+   * then becomes the last notified value. The decision and the update of the
+   * last notification are atomic, so concurrent writers neither both pass a
+   * throttled window nor lose a suppressed count.
+   */
+  private synchronized boolean isNotificationDue(double value) {
+    long now = minInterval > 0 ? System.nanoTime() : 0;
+    if (notified) {
+      double delta = Math.abs(value - notifiedValue);
+      if ((notifyOnChange && Double.doubleToLongBits(value) == Double.doubleToLongBits(notifiedValue))
+          || (deadband > 0 && delta <= deadband)
+          || (relativeDeadband > 0 && delta <= relativeDeadband * Math.abs(notifiedValue))
+          || (minInterval > 0 && now - notifiedTime < minInterval)) {
+        ++suppressed;
+        return false;
+      }
+    }
+    notified = true;
+    notifiedValue = value;
+    notifiedTime = now;
+    return true;
+  }
+
+  /*
+   * Remembers whether any of the notification policies is set, so setValue
+   * only checks them if necessary.
+   */
+  private void updatePolicies() {
+    filtered = notifyOnChange || deadband > 0 || relativeDeadband > 0 || minInterval > 0;
+  }
+
+  /*
+   * Returns true if a notification policy is set.
+   */
+  boolean isFiltered() {
+    return filtered;
+  }
+
+  /* (non-Javadoc)
+   * @see jaron.components.DoubleSignalListener#accept(double, long)
+   */
+  public void accept(double value, long timestamp) {
+    setValue(value);
   }
 
   /* (non-Javadoc)
@@ -160,6 +378,122 @@ public class Signal implements SignalListener {
    */
   public void removeSignalListener(SignalListener listener) { 
     // from now on the listener isn't informed anymore about signal changes
-    listeners.remove(SignalListener.class, listener);
+    for (DoubleSignalListener l : listeners) {
+      if (l == listener
+          || (l instanceof ListenerAdapter && ((ListenerAdapter )l).listener == listener)
+          || (l instanceof AsyncListener && ((AsyncListener )l).listener == listener)) {
+        remove(l);
+        return;
+      }
+    }
   } 
+
+  /*
+   * Adds a listener to the copy-on-write array.
+   */
+  private synchronized void add(DoubleSignalListener listener) {
+    DoubleSignalListener[] l = listeners;
+    DoubleSignalListener[] grown = new DoubleSignalListener[l.length + 1];
+    System.arraycopy(l, 0, grown, 0, l.length);
+    grown[l.length] = listener;
+    listeners = grown;
+  }
+
+  /*
+   * Removes a listener from the copy-on-write array.
+   */
+  private synchronized void remove(DoubleSignalListener listener) {
+    DoubleSignalListener[] l = listeners;
+    for (int i=0; i<l.length; ++i) {
+      if (l[i] == listener) {
+        DoubleSignalListener[] shrunk = new DoubleSignalListener[l.length - 1];
+        System.arraycopy(l, 0, shrunk, 0, i);
+        System.arraycopy(l, i + 1, shrunk, i, l.length - i - 1);
+        listeners = l.length > 1 ? shrunk : NO_LISTENERS;
+        return;
+      }
+    }
+  }
+
+  /*
+   * Returns the asynchronous wrapper of a listener.
+   */
+  private AsyncListener getAsyncListener(SignalListener listener) {
+    for (DoubleSignalListener l : listeners) {
+      if (l instanceof AsyncListener && ((AsyncListener )l).listener == listener) return (AsyncListener )l;
+    }
+    return null;
+  }
+
+  /*
+   * The ListenerAdapter class is an internally used wrapper that passes the
+   * changes of the signal to a SignalListener as a SignalEvent.
+   */
+  private static class ListenerAdapter implements DoubleSignalListener {
+    private Signal source;
+    private SignalListener listener;
+
+    private ListenerAdapter(Signal source, SignalListener listener) {
+      this.source = source;
+      this.listener = listener;
+    }
+
+    public void accept(double value, long timestamp) {
+      listener.signalChanged(new SignalEvent(source, value));
+    }
+  }
+
+  /*
+   * The AsyncListener class is an internally used wrapper that passes the
+   * changes of the signal to a listener through an executor. The mailbox only
+   * holds the latest change, at most one task per listener is scheduled.
+   */
+  private static class AsyncListener implements DoubleSignalListener, Runnable {
+    private Signal source;
+    private SignalListener listener;
+    private Executor executor;
+    private AtomicReference<SignalEvent> mailbox = new AtomicReference<SignalEvent>();
+    private AtomicBoolean scheduled = new AtomicBoolean(false);
+    private AtomicLong dropped = new AtomicLong();
+
+    private AsyncListener(Signal source, SignalListener listener, Executor executor) {
+      this.source = source;
+      this.listener = listener;
+      this.executor = executor;
+    }
+
+    public void accept(double value, long timestamp) {
+      offer(new SignalEvent(source, value));
+    }
+
+    private void offer(SignalEvent event) {
+      if (mailbox.getAndSet(event) != null) dropped.incrementAndGet();
+      schedule();
+    }
+
+    private void schedule() {
+      if (scheduled.compareAndSet(false, true)) {
+        try {
+          executor.execute(this);
+        } catch (RejectedExecutionException e) {
+          scheduled.set(false);
+          System.out.println("RejectedExecutionException in Signal::schedule(): " + e.getMessage());
+        }
+      }
+    }
+
+    public void run() {
+      SignalEvent event;
+      while ((event = mailbox.getAndSet(null)) != null) {
+        try {
+          listener.signalChanged(event);
+        } catch (RuntimeException e) {
+          System.out.println("RuntimeException in Signal::run(): " + e.getMessage());
+        }
+      }
+      scheduled.set(false);
+      // a change may have arrived after the mailbox was found empty
+      if (mailbox.get() != null) schedule();
+    }
+  }
 }
@@ -0,0 +1,507 @@
+package jaron.components;
+
+import java.util.IdentityHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The <code>SignalCoalescer</code> class is a stage between the signals of
+ * the autopilot (e.g. the <code>FlightData</code>) and external consumers like
+ * a telemetry server or a logger.<br>
+ * The updates of every signal (channel) are merged over a window of time: the
+ * last value, the mean, the minimum and the maximum. At a fixed rate
+ * ({@value DEFAULT_RATE} frames per second by default) the merged values of
+ * all the channels are emitted as a <code>TelemetryFrame</code>.<br>
+ * The values of a <code>VectorSignal</code> can be channels as well, the
+ * channels of a vector are merged and closed together, so a frame never
+ * contains values of two different updates of the vector.<br>
+ * Every consumer has its own thread and a mailbox that holds only the latest
+ * frame, and optionally a maximum rate. A consumer that is slow or rate
+ * limited drops frames, it never blocks the threads that change the signals,
+ * the timer or the other consumers.<br>
+ * <br>
+ * Example:<br>
+ * <pre>
+ * SignalCoalescer coalescer = new SignalCoalescer(20);
+ * coalescer.addChannel("Pitch", flightData.getPitchAngle(), SignalCoalescer.LAST);
+ * coalescer.addChannel("Roll rate", flightData.getRollAngularRate(), SignalCoalescer.MEAN);
+ * coalescer.addTelemetryListener(logger, 1); // at most one frame per second
+ * </pre>
+ *
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ * @see         TelemetryFrame
+ */
+public class SignalCoalescer {
+  /**
+   * The value of a channel is the last value of the window.
+   */
+  public static final int LAST = 0;
+
+  /**
+   * The value of a channel is the mean of the values of the window.
+   */
+  public static final int MEAN = 1;
+
+  /**
+   * The value of a channel is the minimum of the values of the window.
+   */
+  public static final int MIN = 2;
+
+  /**
+   * The value of a channel is the maximum of the values of the window.
+   */
+  public static final int MAX = 3;
+
+  /**
+   * The default rate of {@value DEFAULT_RATE} frames per second.
+   */
+  public static final float DEFAULT_RATE = 20;
+
+  private float rate;
+  private ScheduledExecutorService timer;
+  private long frameNumber = 0;
+  private volatile Layout layout = new Layout(new Channel[0], new String[0], new int[0]);
+  private volatile VectorChannels[] vectors = new VectorChannels[0];
+  private IdentityHashMap<VectorSignal, VectorChannels> vectorChannels = new IdentityHashMap<VectorSignal, VectorChannels>();
+  private CopyOnWriteArrayList<Consumer> consumers = new CopyOnWriteArrayList<Consumer>();
+
+  /**
+   * Creates a new <code>SignalCoalescer</code> and starts its timer.
+   *
+   * @param rate  the number of frames per second
+   */
+  public SignalCoalescer(float rate) {
+    this.rate = Math.max(0.1f, rate);
+    timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "SignalCoalescer");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    long period = (long )(1000000 / this.rate);
+    timer.scheduleAtFixedRate(new Runnable() {
+      public void run() {
+        emit();
+      }
+    }, period, period, TimeUnit.MICROSECONDS);
+  }
+
+  /**
+   * Creates a new <code>SignalCoalescer</code> with the default rate of
+   * {@value DEFAULT_RATE} frames per second and starts its timer.
+   */
+  public SignalCoalescer() {
+    this(DEFAULT_RATE);
+  }
+
+  /**
+   * Adds a signal to the frames. The channels appear in the frames in the
+   * order they are added.
+   *
+   * @param name    the name of the channel
+   * @param signal  the signal whose updates are merged
+   * @param mode    the value of the channel in the frames (<code>LAST</code>,
+   *                <code>MEAN</code>, <code>MIN</code> or <code>MAX</code>)
+   * @return        the channel number
+   */
+  public synchronized int addChannel(String name, Signal signal, int mode) {
+    Channel channel = new Channel();
+    int index = append(name, channel, mode);
+    signal.addDoubleSignalListener(channel);
+    return index;
+  }
+
+  /**
+   * Adds a value of a vector to the frames. The channels appear in the frames
+   * in the order they are added.
+   *
+   * @param name    the name of the channel
+   * @param vector  the vector whose updates are merged
+   * @param element the index of the value in the vector
+   * @param mode    the value of the channel in the frames (<code>LAST</code>,
+   *                <code>MEAN</code>, <code>MIN</code> or <code>MAX</code>)
+   * @return        the channel number
+   */
+  public synchronized int addChannel(String name, VectorSignal vector, int element, int mode) {
+    Channel channel = new Channel();
+    int index = append(name, channel, mode);
+    VectorChannels group = vectorChannels.get(vector);
+    if (group == null) {
+      group = new VectorChannels(vector.size());
+      vectorChannels.put(vector, group);
+      VectorChannels[] grown = new VectorChannels[vectors.length + 1];
+      System.arraycopy(vectors, 0, grown, 0, vectors.length);
+      grown[vectors.length] = group;
+      vectors = grown;
+      group.add(element, channel);
+      vector.addVectorSignalListener(group);
+    }
+    else {
+      group.add(element, channel);
+      vector.read((values, timestamp) -> channel.accept(values[element], timestamp));
+    }
+    return index;
+  }
+
+  /**
+   * Adds a value of a vector to the frames. The value of the channel is the
+   * last value of the window.
+   *
+   * @param name    the name of the channel
+   * @param vector  the vector whose updates are merged
+   * @param element the index of the value in the vector
+   * @return        the channel number
+   */
+  public int addChannel(String name, VectorSignal vector, int element) {
+    return addChannel(name, vector, element, LAST);
+  }
+
+  /*
+   * Appends a channel to the frames and returns its number.
+   */
+  private int append(String name, Channel channel, int mode) {
+    Layout l = layout;
+    int index = l.channels.length;
+    Channel[] grownChannels = new Channel[index + 1];
+    String[] grownNames = new String[index + 1];
+    int[] grownModes = new int[index + 1];
+    System.arraycopy(l.channels, 0, grownChannels, 0, index);
+    System.arraycopy(l.names, 0, grownNames, 0, index);
+    System.arraycopy(l.modes, 0, grownModes, 0, index);
+    grownChannels[index] = channel;
+    grownNames[index] = name;
+    grownModes[index] = mode;
+    // the channels, names and modes are published at once
+    layout = new Layout(grownChannels, grownNames, grownModes);
+    return index;
+  }
+
+  /**
+   * Adds a signal to the frames. The value of the channel is the last value
+   * of the window.
+   *
+   * @param name    the name of the channel
+   * @param signal  the signal whose updates are merged
+   * @return        the channel number
+   */
+  public int addChannel(String name, Signal signal) {
+    return addChannel(name, signal, LAST);
+  }
+
+  /**
+   * Adds a consumer that receives the frames on its own thread, but not more
+   * than a certain number of frames per second.
+   *
+   * @param listener  the consumer to be added
+   * @param maxRate   the maximum number of frames per second, 0 for every frame
+   */
+  public void addTelemetryListener(TelemetryListener listener, float maxRate) {
+    Consumer consumer = new Consumer(listener);
+    consumer.setMaxRate(maxRate);
+    consumers.add(consumer);
+    consumer.start();
+  }
+
+  /**
+   * Adds a consumer that receives every frame on its own thread (as long as
+   * it keeps up with the rate of the frames).
+   *
+   * @param listener  the consumer to be added
+   */
+  public void addTelemetryListener(TelemetryListener listener) {
+    addTelemetryListener(listener, 0);
+  }
+
+  /**
+   * Removes a consumer and stops its thread.
+   *
+   * @param listener  the consumer to be removed
+   */
+  public void removeTelemetryListener(TelemetryListener listener) {
+    Consumer consumer = getConsumer(listener);
+    if (consumer != null) {
+      consumers.remove(consumer);
+      consumer.shutDown();
+    }
+  }
+
+  /**
+   * Sets the maximum number of frames per second a consumer receives.
+   *
+   * @param listener  the consumer
+   * @param maxRate   the maximum number of frames per second, 0 for every frame
+   */
+  public void setMaxRate(TelemetryListener listener, float maxRate) {
+    Consumer consumer = getConsumer(listener);
+    if (consumer != null) consumer.setMaxRate(maxRate);
+  }
+
+  /**
+   * Returns the number of frames a consumer has missed because it was slow
+   * or rate limited.
+   *
+   * @param listener  the consumer
+   * @return          number of dropped frames
+   */
+  public long getDroppedFrames(TelemetryListener listener) {
+    Consumer consumer = getConsumer(listener);
+    return consumer != null ? consumer.dropped.get() : 0;
+  }
+
+  /**
+   * Returns the number of frames per second.
+   *
+   * @return  the frame rate
+   */
+  public float getRate() {
+    return rate;
+  }
+
+  /**
+   * Stops the timer and the threads of all the consumers.
+   */
+  public void shutDown() {
+    timer.shutdownNow();
+    for (Consumer consumer : consumers) {
+      consumer.shutDown();
+    }
+    consumers.clear();
+  }
+
+  /*
+   * Closes the window of all the channels and offers the frame to the
+   * consumers. Called by the timer.
+   */
+  private void emit() {
+    // a channel that is added meanwhile appears in the next frame
+    Layout frameLayout = layout;
+    Channel[] frameChannels = frameLayout.channels;
+    String[] frameNames = frameLayout.names;
+    int[] frameModes = frameLayout.modes;
+    int size = frameChannels.length;
+    double[] last = new double[size];
+    double[] mean = new double[size];
+    double[] min = new double[size];
+    double[] max = new double[size];
+    int[] count = new int[size];
+    // no vector is updated while its channels are closed
+    VectorChannels[] frameVectors = vectors;
+    for (VectorChannels group : frameVectors) {
+      group.lock.lock();
+    }
+    try {
+      for (int i=0; i<size; ++i) {
+        frameChannels[i].close(i, last, mean, min, max, count);
+      }
+    }
+    finally {
+      for (VectorChannels group : frameVectors) {
+        group.lock.unlock();
+      }
+    }
+    TelemetryFrame frame = new TelemetryFrame(frameNumber++, System.currentTimeMillis(), frameNames, frameModes, last, mean, min, max, count);
+    for (Consumer consumer : consumers) {
+      consumer.offer(frame);
+    }
+  }
+
+  /*
+   * Returns the consumer of a listener.
+   */
+  private Consumer getConsumer(TelemetryListener listener) {
+    for (Consumer consumer : consumers) {
+      if (consumer.listener == listener) return consumer;
+    }
+    return null;
+  }
+
+  /*
+   * The Layout class is an internally used immutable set of the channels
+   * with their names and modes, so a frame always gets all three of the
+   * same size.
+   */
+  private static class Layout {
+    private final Channel[] channels;
+    private final String[] names;
+    private final int[] modes;
+
+    private Layout(Channel[] channels, String[] names, int[] modes) {
+      this.channels = channels;
+      this.names = names;
+      this.modes = modes;
+    }
+  }
+
+  /*
+   * The Channel class is an internally used listener that merges the updates
+   * of a signal during the current window.
+   */
+  private static class Channel implements DoubleSignalListener {
+    private double last = 0;
+    private double sum = 0;
+    private double min = 0;
+    private double max = 0;
+    private int count = 0;
+
+    public synchronized void accept(double value, long timestamp) {
+      if (count == 0) {
+        min = max = value;
+        sum = 0;
+      }
+      else {
+        if (value < min) min = value;
+        if (value > max) max = value;
+      }
+      sum += value;
+      last = value;
+      ++count;
+    }
+
+    /*
+     * Stores the merged values of the window and starts a new window.
+     */
+    private synchronized void close(int i, double[] lastValues, double[] meanValues, double[] minValues, double[] maxValues, int[] counts) {
+      lastValues[i] = last;
+      if (count > 0) {
+        meanValues[i] = sum / count;
+        minValues[i] = min;
+        maxValues[i] = max;
+      }
+      else {
+        // no update during the window
+        meanValues[i] = minValues[i] = maxValues[i] = last;
+      }
+      counts[i] = count;
+      count = 0;
+    }
+  }
+
+  /*
+   * The VectorChannels class is an internally used listener that merges the
+   * updates of a vector into the channels of its values. An update and the
+   * closing of the window are mutually exclusive.
+   */
+  private static class VectorChannels implements VectorSignalListener {
+    private ReentrantLock lock = new ReentrantLock();
+    private volatile Channel[] channels;
+
+    private VectorChannels(int size) {
+      channels = new Channel[size];
+    }
+
+    private void add(int element, Channel channel) {
+      lock.lock();
+      try {
+        // a value can be the source of several channels
+        Channel[] c = channels.clone();
+        c[element] = c[element] == null ? channel : new Channels(c[element], channel);
+        channels = c;
+      }
+      finally {
+        lock.unlock();
+      }
+    }
+
+    public void accept(double[] values, long timestamp) {
+      lock.lock();
+      try {
+        Channel[] c = channels;
+        for (int i=0; i<c.length; ++i) {
+          if (c[i] != null) c[i].accept(values[i], timestamp);
+        }
+      }
+      finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /*
+   * The Channels class is an internally used pair of channels that merge the
+   * same value of a vector.
+   */
+  private static class Channels extends Channel {
+    private Channel first;
+    private Channel second;
+
+    private Channels(Channel first, Channel second) {
+      this.first = first;
+      this.second = second;
+    }
+
+    @Override
+    public void accept(double value, long timestamp) {
+      first.accept(value, timestamp);
+      second.accept(value, timestamp);
+    }
+  }
+
+  /*
+   * The Consumer class is an internally used thread that delivers the frames
+   * to a listener. Its mailbox only holds the latest frame, a frame that is
+   * replaced before it was delivered is dropped.
+   */
+  private static class Consumer extends Thread {
+    private TelemetryListener listener;
+    private AtomicReference<TelemetryFrame> mailbox = new AtomicReference<TelemetryFrame>();
+    private AtomicLong dropped = new AtomicLong();
+    private volatile long minInterval = 0;   // in nanoseconds
+    private volatile Boolean running = true;
+    private long lastDelivery = 0;
+
+    private Consumer(TelemetryListener listener) {
+      super("SignalCoalescer consumer");
+      this.listener = listener;
+      setDaemon(true);
+    }
+
+    private void setMaxRate(float maxRate) {
+      minInterval = maxRate > 0 ? (long )(1000000000L / maxRate) : 0;
+      LockSupport.unpark(this);
+    }
+
+    private void offer(TelemetryFrame frame) {
+      if (mailbox.getAndSet(frame) != null) dropped.incrementAndGet();
+      LockSupport.unpark(this);
+    }
+
+    private void shutDown() {
+      running = false;
+      LockSupport.unpark(this);
+    }
+
+    @Override
+    public void run() {
+      while (running) {
+        if (mailbox.get() == null) {
+          LockSupport.park(this);
+          continue;
+        }
+        long wait = lastDelivery + minInterval - System.nanoTime();
+        if (lastDelivery != 0 && wait > 0) {
+          // rate limited, newer frames replace the waiting one
+          LockSupport.parkNanos(this, wait);
+          continue;
+        }
+        TelemetryFrame frame = mailbox.getAndSet(null);
+        if (frame == null) continue;
+        lastDelivery = System.nanoTime();
+        try {
+          listener.frameReceived(frame);
+        } catch (RuntimeException e) {
+          System.out.println("RuntimeException in SignalCoalescer::run(): " + e.getMessage());
+        }
+      }
+    }
+  }
+}
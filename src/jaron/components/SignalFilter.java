@@ -0,0 +1,72 @@
+package jaron.components;
+
+/**
+ * The <code>SignalFilter</code> class is the base of the filter blocks. A
+ * filter is a <code>SignalListener</code>: every value it receives (through
+ * <code>setValue</code>, a <code>SignalEvent</code> or as a
+ * <code>DoubleSignalListener</code>) is a sample, the filtered value is
+ * published by its output signal. So filters can be wired like any other
+ * component and chained through their output signals.<br>
+ * A filter keeps its state in fields and doesn't allocate memory per
+ * sample. It is meant to be fed by one thread (e.g. the thread of a sensor).
+ * <br>
+ * Example:<br>
+ * <pre>
+ * LowPassFilter filter = new LowPassFilter(1, 5);
+ * gpsReceiver.getSpeedOverGround().addSignalListener(filter);
+ * filter.getOutput().addSignalListener(flightData.getSpeedOverGround());
+ * </pre>
+ *
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+public abstract class SignalFilter implements SignalListener, DoubleSignalListener {
+  private Signal output = new Signal();
+
+  /**
+   * Returns the output signal, which publishes the filtered values.
+   *
+   * @return  the output signal
+   */
+  public Signal getOutput() {
+    return output;
+  }
+
+  /**
+   * Filters a sample and publishes the result by the output signal.
+   *
+   * @param value the sample
+   */
+  public void setValue(double value) {
+    output.setValue(filter(value));
+  }
+
+  /* (non-Javadoc)
+   * @see jaron.components.SignalListener#signalChanged(jaron.components.SignalEvent)
+   */
+  public void signalChanged(SignalEvent event) {
+    setValue(event.getValue());
+  }
+
+  /* (non-Javadoc)
+   * @see jaron.components.DoubleSignalListener#accept(double, long)
+   */
+  public void accept(double value, long timestamp) {
+    setValue(value);
+  }
+
+  /**
+   * Processes a sample and returns the filtered value.
+   *
+   * @param value the sample
+   * @return      the filtered value
+   */
+  protected abstract double filter(double value);
+
+  /**
+   * Clears the state of the filter, the next sample starts over. The output
+   * signal keeps its value until then.
+   */
+  public abstract void reset();
+}
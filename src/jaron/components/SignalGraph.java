@@ -0,0 +1,257 @@
+package jaron.components;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+/**
+ * The <code>SignalGraph</code> class wires signals like
+ * <code>addSignalListener</code> does, but instead of a chain of listeners
+ * every signal gets a flat dispatch plan.<br>
+ * The connections are collected first (<code>connect</code>) and then
+ * compiled (<code>compile</code>). For every signal the compiler determines all
+ * the signals and listeners that are reached through its connections and
+ * orders them topologically. A plain <code>Signal</code> in between (e.g. a
+ * signal of the <code>FlightData</code>) is a pure pass-through hop: it only
+ * stores the value and it only notifies the listeners that were added with
+ * <code>addSignalListener</code>, if there are any. So the costs of a value
+ * change depend on the number of real consumers, not on the depth of the
+ * wiring.<br>
+ * Signals that are subclasses of <code>Signal</code> (e.g. a
+ * <code>Servo</code>) and signals with a notification policy (which should be
+ * set before <code>compile</code> is called) are consumers, they receive the
+ * value through <code>setValue</code>. Other listeners are notified like by
+ * <code>addSignalListener</code>: a <code>DoubleSignalListener</code> through
+ * <code>accept</code>, any other listener through <code>signalChanged</code>
+ * with the signal it is connected to as the source of the event. A cycle in
+ * the connections is detected by the compiler.<br>
+ * <br>
+ * Example:<br>
+ * <pre>
+ * SignalGraph graph = new SignalGraph();
+ * graph.connect(missionController.getPitchAnglePreset(), flightData.getPitchAnglePreset());
+ * graph.connect(flightData.getPitchAnglePreset(), motionController.getPitchAnglePreset());
+ * graph.compile();
+ * </pre>
+ *
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+public class SignalGraph {
+  private static final int UNVISITED = 0;
+  private static final int VISITING = 1;
+  private static final int VISITED = 2;
+
+  private ArrayList<Signal> signals = new ArrayList<Signal>();
+  private IdentityHashMap<Signal, ArrayList<SignalListener>> connections = new IdentityHashMap<Signal, ArrayList<SignalListener>>();
+  private IdentityHashMap<Signal, Boolean> targets = new IdentityHashMap<Signal, Boolean>();
+
+  /**
+   * Connects a source signal to a target. The connection isn't active
+   * before <code>compile</code> is called.
+   *
+   * @param source  the signal whose changes are passed on
+   * @param target  the signal or listener that receives the changes
+   */
+  public synchronized void connect(Signal source, SignalListener target) {
+    ArrayList<SignalListener> listeners = getConnections(source);
+    if (!listeners.contains(target)) listeners.add(target);
+    if (target instanceof Signal) {
+      getConnections((Signal )target);
+      targets.put((Signal )target, Boolean.TRUE);
+    }
+  }
+
+  /**
+   * Compiles the connections into a dispatch plan for every signal and
+   * activates them. The signals that aren't the target of a connection pass
+   * their current value on, like <code>addSignalListener</code> does.<br>
+   * <code>compile</code> may be called again after further connections were
+   * made, the previous plans are replaced.
+   *
+   * @throws IllegalStateException  if the connections contain a cycle
+   */
+  public synchronized void compile() {
+    checkCycles();
+    for (Signal signal : signals) {
+      ArrayList<SignalListener> listeners = connections.get(signal);
+      signal.plan = listeners.isEmpty() ? null : createPlan(signal);
+    }
+    for (Signal signal : signals) {
+      if (signal.plan != null && !targets.containsKey(signal)) {
+        signal.plan.dispatch(signal.getValue());
+      }
+    }
+  }
+
+  /**
+   * Returns the number of signals in the graph.
+   *
+   * @return  number of signals
+   */
+  public synchronized int size() {
+    return signals.size();
+  }
+
+  /**
+   * Returns the number of steps the dispatch plan of a signal consists of,
+   * i.e. the number of signals and listeners that are updated when its value
+   * changes.
+   *
+   * @param signal  the source signal
+   * @return        number of steps, 0 if the signal has no plan
+   */
+  public int getPlanLength(Signal signal) {
+    Plan plan = signal.plan;
+    return plan != null ? plan.steps.length : 0;
+  }
+
+  /*
+   * Returns the connections of a signal, a new signal is added to the graph.
+   */
+  private ArrayList<SignalListener> getConnections(Signal signal) {
+    ArrayList<SignalListener> listeners = connections.get(signal);
+    if (listeners == null) {
+      listeners = new ArrayList<SignalListener>();
+      connections.put(signal, listeners);
+      signals.add(signal);
+    }
+    return listeners;
+  }
+
+  /*
+   * Throws an IllegalStateException if a signal can be reached from itself.
+   */
+  private void checkCycles() {
+    IdentityHashMap<Signal, Integer> states = new IdentityHashMap<Signal, Integer>();
+    for (Signal signal : signals) {
+      if (getState(states, signal) == UNVISITED) visit(states, signal);
+    }
+  }
+
+  /*
+   * Depth-first search that marks the signals on the current path.
+   */
+  private void visit(IdentityHashMap<Signal, Integer> states, Signal signal) {
+    states.put(signal, VISITING);
+    for (SignalListener listener : connections.get(signal)) {
+      if (!(listener instanceof Signal)) continue;
+      Signal target = (Signal )listener;
+      int state = getState(states, target);
+      if (state == VISITING) {
+        throw new IllegalStateException("SignalGraph::compile(): the connections contain a cycle (signal " + signals.indexOf(target) + ")");
+      }
+      if (state == UNVISITED) visit(states, target);
+    }
+    states.put(signal, VISITED);
+  }
+
+  /*
+   * Returns the search state of a signal.
+   */
+  private static int getState(IdentityHashMap<Signal, Integer> states, Signal signal) {
+    Integer state = states.get(signal);
+    return state != null ? state : UNVISITED;
+  }
+
+  /*
+   * Creates the dispatch plan of a signal: everything that is reached
+   * through pure pass-through signals, in topological order.
+   */
+  private Plan createPlan(Signal source) {
+    ArrayList<SignalListener> order = new ArrayList<SignalListener>();
+    IdentityHashMap<SignalListener, Signal> visited = new IdentityHashMap<SignalListener, Signal>();
+    for (SignalListener listener : connections.get(source)) {
+      collect(source, listener, visited, order);
+    }
+    // the reverse post-order is a topological order
+    int size = order.size();
+    SignalListener[] steps = new SignalListener[size];
+    Signal[] sources = new Signal[size];
+    int[] kinds = new int[size];
+    for (int i=0; i<size; ++i) {
+      steps[i] = order.get(size - 1 - i);
+      sources[i] = visited.get(steps[i]);
+      kinds[i] = getKind(steps[i]);
+    }
+    return new Plan(steps, sources, kinds);
+  }
+
+  /*
+   * Adds a listener and everything it passes on to the post-order. The
+   * signal the listener is connected to is remembered as the source of its
+   * events.
+   */
+  private void collect(Signal source, SignalListener listener, IdentityHashMap<SignalListener, Signal> visited, ArrayList<SignalListener> order) {
+    if (visited.containsKey(listener)) return;
+    visited.put(listener, source);
+    // a consumer passes the value on with its own plan
+    if (isPassThrough(listener)) {
+      for (SignalListener target : connections.get((Signal )listener)) {
+        collect((Signal )listener, target, visited, order);
+      }
+    }
+    order.add(listener);
+  }
+
+  /*
+   * Returns how a listener receives the value in a dispatch plan.
+   */
+  private static int getKind(SignalListener listener) {
+    if (isPassThrough(listener)) return Plan.FORWARD;
+    if (listener instanceof Signal) return Plan.SET_VALUE;
+    if (listener instanceof DoubleSignalListener) return Plan.ACCEPT;
+    return Plan.SIGNAL_CHANGED;
+  }
+
+  /*
+   * Returns true if the listener is a plain Signal without notification
+   * policies, which only stores the value.
+   */
+  private static boolean isPassThrough(SignalListener listener) {
+    return listener.getClass() == Signal.class && !((Signal )listener).isFiltered();
+  }
+
+  /*
+   * The Plan class is an internally used list of the steps that dispatch a
+   * value change of a signal. A pass-through signal is only forwarded (its
+   * value is stored), the consumer signals receive the value through
+   * setValue and the other listeners are notified like by addSignalListener.
+   */
+  static final class Plan {
+    private static final int FORWARD = 0;
+    private static final int SET_VALUE = 1;
+    private static final int ACCEPT = 2;
+    private static final int SIGNAL_CHANGED = 3;
+
+    private SignalListener[] steps;
+    private Signal[] sources;
+    private int[] kinds;
+
+    private Plan(SignalListener[] steps, Signal[] sources, int[] kinds) {
+      this.steps = steps;
+      this.sources = sources;
+      this.kinds = kinds;
+    }
+
+    void dispatch(double value) {
+      long timestamp = 0;
+      for (int i=0; i<steps.length; ++i) {
+        switch (kinds[i]) {
+          case FORWARD:
+            ((Signal )steps[i]).forward(value);
+            break;
+          case SET_VALUE:
+            steps[i].setValue(value);
+            break;
+          case ACCEPT:
+            if (timestamp == 0) timestamp = System.nanoTime();
+            ((DoubleSignalListener )steps[i]).accept(value, timestamp);
+            break;
+          default:
+            steps[i].signalChanged(new SignalEvent(sources[i], value));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,182 @@
+package jaron.components;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The <code>SignalMux</code> class implements a multiplexer with a number of
+ * input signals (channels) and one output signal. Only the value of the
+ * selected input is passed on to the output.<br>
+ * The inputs are wired like any other signal and may change at different
+ * rates. Selecting an input is a single write, the connections aren't
+ * changed, so a value change costs the same whichever input is selected and
+ * however often the selection changes.<br>
+ * Optionally the output is blended from its value at the time of the
+ * selection to the value of the new input over a period of time, so the
+ * handover between two inputs doesn't cause a jump. The blending progresses
+ * with every change of the selected input and with <code>update</code>,
+ * which should be called periodically if the selected input rarely
+ * changes.<br>
+ * <br>
+ * Example:<br>
+ * <pre>
+ * SignalMux mux = new SignalMux(2);
+ * mux.setBlendTime(1);
+ * missionController.getRollAnglePreset().addSignalListener(mux.getInput(1));
+ * mux.getOutput().addSignalListener(flightData.getRollAnglePreset());
+ * mux.select(1); // from now on the mission controller presets the roll angle
+ * </pre>
+ *
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+public class SignalMux {
+  private Input[] inputs;
+  private Signal output = new Signal();
+  private volatile int selected = 0;
+  private volatile long blendTime = 0;  // in nanoseconds
+  private AtomicReference<Handover> handover = new AtomicReference<Handover>();
+
+  /**
+   * Creates a new <code>SignalMux</code>. By default the first input is
+   * selected.
+   *
+   * @param size  the number of inputs
+   */
+  public SignalMux(int size) {
+    inputs = new Input[Math.max(1, size)];
+    for (int i=0; i<inputs.length; ++i) {
+      inputs[i] = new Input(i);
+    }
+  }
+
+  /**
+   * Returns an input signal.
+   *
+   * @param index the index of the input
+   * @return      the input signal
+   */
+  public Signal getInput(int index) {
+    return inputs[index];
+  }
+
+  /**
+   * Returns the output signal.
+   *
+   * @return  the output signal
+   */
+  public Signal getOutput() {
+    return output;
+  }
+
+  /**
+   * Returns the number of inputs.
+   *
+   * @return  number of inputs
+   */
+  public int size() {
+    return inputs.length;
+  }
+
+  /**
+   * Returns the index of the selected input.
+   *
+   * @return  the selected input
+   */
+  public int getSelected() {
+    return selected;
+  }
+
+  /**
+   * Sets the time over which the output is blended to a newly selected
+   * input, 0 (the default) switches at once.
+   *
+   * @param seconds the blending time in seconds
+   */
+  public void setBlendTime(double seconds) {
+    blendTime = (long )(Math.max(0, seconds) * 1000000000L);
+  }
+
+  /**
+   * Selects the input that is passed on to the output. The output takes the
+   * value of the input right away or, with a blending time, starts blending
+   * towards it.
+   *
+   * @param index the index of the input
+   */
+  public synchronized void select(int index) {
+    if (index < 0 || index >= inputs.length) {
+      throw new IllegalArgumentException("SignalMux::select(): there is no input " + index);
+    }
+    long time = blendTime;
+    if (time > 0) {
+      // the blending starts at the current output value
+      handover.set(new Handover(output.getValue(), System.nanoTime(), time));
+    }
+    else {
+      handover.set(null);
+    }
+    selected = index;
+    route(inputs[index].getValue());
+  }
+
+  /**
+   * Republishes the output while it is blended, so the blending progresses
+   * even if the selected input doesn't change.
+   */
+  public void update() {
+    if (handover.get() != null) route(inputs[selected].getValue());
+  }
+
+  /*
+   * Passes a value of the selected input on to the output.
+   */
+  private void route(double value) {
+    Handover h = handover.get();
+    if (h != null) {
+      double fraction = (double )(System.nanoTime() - h.start) / h.duration;
+      if (fraction < 1) {
+        value = h.from + (value - h.from) * fraction;
+      }
+      else {
+        // the handover is completed
+        handover.compareAndSet(h, null);
+      }
+    }
+    output.setValue(value);
+  }
+
+  /*
+   * The Input class is an internally used signal that passes its value on to
+   * the output of the multiplexer while it is selected.
+   */
+  private class Input extends Signal {
+    private int index;
+
+    private Input(int index) {
+      this.index = index;
+    }
+
+    @Override
+    public void setValue(double value) {
+      super.setValue(value);
+      if (index == selected) route(value);
+    }
+  }
+
+  /*
+   * The Handover class is an internally used record of a blended change of
+   * the selected input.
+   */
+  private static final class Handover {
+    private final double from;
+    private final long start;
+    private final long duration;
+
+    private Handover(double from, long start, long duration) {
+      this.from = from;
+      this.start = start;
+      this.duration = duration;
+    }
+  }
+}
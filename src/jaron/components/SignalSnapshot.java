@@ -0,0 +1,318 @@
+package jaron.components;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The <code>SignalSnapshot</code> class decouples the consumers of signals
+ * (e.g. the GUI) from the threads that change the signals (e.g. the sensors and
+ * the autopilot).<br>
+ * The changes of the source signals are only stored by the
+ * <code>SignalSnapshot</code>, no consumer code is executed on the thread that
+ * changes a signal. The consumer thread calls <code>sample</code> periodically
+ * (e.g. once per frame), which reads a consistent snapshot of all the source
+ * signals and passes the values that have changed on to the target signals.<br>
+ * The snapshot is read without locking (sequence lock): the reader retries if a
+ * source signal changed while it was reading, so it never sees a half updated
+ * state and never blocks the writing threads. Besides the last value the
+ * minimum and the maximum value of every source signal since the previous
+ * sample are passed on, so short spikes between two samples aren't lost (e.g.
+ * for a <code>Graph</code>).<br>
+ * The values of a <code>VectorSignal</code> can be connected as well, all
+ * the values of an update are stored at once, so a sample never contains
+ * values of two different updates of the vector.<br>
+ * <br>
+ * Example:<br>
+ * <pre>
+ * SignalSnapshot snapshot = new SignalSnapshot();
+ * snapshot.connect(flightData.getMotion(), FlightGearMotionSensor.INDEX_PITCH_ANGLE, artificialHorizon.getPitch());
+ * ...
+ * // in the draw method
+ * snapshot.sample();
+ * artificialHorizon.draw();
+ * </pre>
+ *
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+public class SignalSnapshot {
+  private volatile long sequence = 0; // odd while a source signal is written
+  private volatile int epoch = 0;     // incremented by every sample
+  private volatile Buffer buffer = new Buffer(0);
+  private ArrayList<Signal> sources = new ArrayList<Signal>();
+  private ArrayList<ArrayList<Signal>> targets = new ArrayList<ArrayList<Signal>>();
+  private IdentityHashMap<VectorSignal, VectorChannel> vectors = new IdentityHashMap<VectorSignal, VectorChannel>();
+  // the sampled values, only used by the sampling thread
+  private double[] last = new double[0];
+  private double[] min = new double[0];
+  private double[] max = new double[0];
+  private boolean[] changed = new boolean[0];
+  private double[] delivered = new double[0];
+  private boolean[] initialized = new boolean[0];
+
+  /**
+   * Connects a source signal to a target signal. The target signal receives
+   * the changes of the source signal with the next call of <code>sample</code>.
+   * A source signal can be connected to several target signals.<br>
+   * The connections should be made by the thread that calls
+   * <code>sample</code>, usually during the setup of the application.
+   *
+   * @param source  the signal that is changed by the producer
+   * @param target  the signal that is updated on the consumer's thread
+   */
+  public void connect(Signal source, Signal target) {
+    int channel = sources.indexOf(source);
+    if (channel < 0) {
+      channel = sources.size();
+      sources.add(source);
+      targets.add(new ArrayList<Signal>());
+      grow(channel + 1);
+      // the source signal only stores its changes in the buffer
+      source.addDoubleSignalListener(new Channel(channel));
+    }
+    targets.get(channel).add(target);
+    initialized[channel] = false;
+  }
+
+  /**
+   * Connects a value of a source vector to a target signal. The target
+   * signal receives the changes of the value with the next call of
+   * <code>sample</code>, together with the other values of the same vector
+   * update.<br>
+   * The connections should be made by the thread that calls
+   * <code>sample</code>, usually during the setup of the application.
+   *
+   * @param source  the vector that is changed by the producer
+   * @param index   the index of the value
+   * @param target  the signal that is updated on the consumer's thread
+   */
+  public void connect(VectorSignal source, int index, Signal target) {
+    VectorChannel vector = vectors.get(source);
+    if (vector == null) {
+      vector = new VectorChannel(source.size());
+      vectors.put(source, vector);
+      // the source vector only stores its updates in the buffer
+      source.addVectorSignalListener(vector);
+    }
+    int channel = vector.channels[index];
+    if (channel < 0) {
+      channel = sources.size();
+      sources.add(null);
+      targets.add(new ArrayList<Signal>());
+      grow(channel + 1);
+      vector.setChannel(index, channel);
+      write(channel, source.get(index));
+    }
+    targets.get(channel).add(target);
+    initialized[channel] = false;
+  }
+
+  /**
+   * Reads a consistent snapshot of the source signals and updates the target
+   * signals whose source signals have changed since the previous sample. If a
+   * source signal had different values since the previous sample, the targets
+   * receive its minimum and its maximum value before the last value.<br>
+   * This method has to be called by the consumer's thread (e.g. from the
+   * <code>draw</code> method of the Processing Development Environment).
+   */
+  public void sample() {
+    // the writers start collecting the next minimum and maximum values
+    int previous = epoch;
+    epoch = previous + 1;
+
+    long start;
+    do {
+      start = sequence;
+      while ((start & 1) != 0) {
+        // a source signal is written right now
+        Thread.yield();
+        start = sequence;
+      }
+      Buffer b = buffer;
+      for (int i=0; i<b.size && i<last.length; ++i) {
+        int slot = 2 * i + (previous & 1);
+        last[i] = Double.longBitsToDouble(b.last.get(i));
+        changed[i] = b.epochs.get(slot) == previous;
+        if (changed[i]) {
+          min[i] = Double.longBitsToDouble(b.min.get(slot));
+          max[i] = Double.longBitsToDouble(b.max.get(slot));
+        }
+      }
+    } while (start != sequence);
+
+    for (int i=0; i<last.length; ++i) {
+      if (!changed[i] && initialized[i] && last[i] == delivered[i]) continue;
+      for (Signal target : targets.get(i)) {
+        if (changed[i] && min[i] < max[i]) {
+          target.setValue(min[i]);
+          target.setValue(max[i]);
+        }
+        target.setValue(last[i]);
+      }
+      delivered[i] = last[i];
+      initialized[i] = true;
+    }
+  }
+
+  /**
+   * Returns the number of source signals (and connected vector values).
+   *
+   * @return  number of source signals
+   */
+  public int size() {
+    return sources.size();
+  }
+
+  /*
+   * Stores a new value of a source signal. The writers are serialized, the
+   * reader is only informed through the sequence number.
+   */
+  private synchronized void write(int channel, double value) {
+    ++sequence;
+    store(channel, value);
+    ++sequence;
+  }
+
+  /*
+   * Stores the values of a vector update at once, channels that are
+   * negative aren't connected.
+   */
+  private synchronized void write(int[] channels, double[] values) {
+    ++sequence;
+    for (int i=0; i<channels.length; ++i) {
+      if (channels[i] >= 0) store(channels[i], values[i]);
+    }
+    ++sequence;
+  }
+
+  /*
+   * Stores a value in the buffer, the caller holds the lock and has made the
+   * sequence number odd.
+   */
+  private void store(int channel, double value) {
+    Buffer b = buffer;
+    int e = epoch;
+    int slot = 2 * channel + (e & 1);
+    long bits = Double.doubleToLongBits(value);
+    if (b.epochs.get(slot) != e) {
+      // first value of this sample period
+      b.epochs.set(slot, e);
+      b.min.set(slot, bits);
+      b.max.set(slot, bits);
+    }
+    else {
+      if (value < Double.longBitsToDouble(b.min.get(slot))) b.min.set(slot, bits);
+      if (value > Double.longBitsToDouble(b.max.get(slot))) b.max.set(slot, bits);
+    }
+    b.last.set(channel, bits);
+  }
+
+  /*
+   * Enlarges the buffer and the sampled values to a certain number of source
+   * signals.
+   */
+  private void grow(int size) {
+    synchronized (this) {
+      ++sequence;
+      Buffer b = new Buffer(size);
+      Buffer old = buffer;
+      for (int i=0; i<old.size; ++i) {
+        b.last.set(i, old.last.get(i));
+      }
+      for (int i=0; i<2*old.size; ++i) {
+        b.epochs.set(i, old.epochs.get(i));
+        b.min.set(i, old.min.get(i));
+        b.max.set(i, old.max.get(i));
+      }
+      buffer = b;
+      ++sequence;
+    }
+    last = copyOf(last, size);
+    min = copyOf(min, size);
+    max = copyOf(max, size);
+    delivered = copyOf(delivered, size);
+    changed = new boolean[size];
+    boolean[] grown = new boolean[size];
+    System.arraycopy(initialized, 0, grown, 0, initialized.length);
+    initialized = grown;
+  }
+
+  /*
+   * Returns a copy of an array with a new length.
+   */
+  private static double[] copyOf(double[] values, int size) {
+    double[] copy = new double[size];
+    System.arraycopy(values, 0, copy, 0, Math.min(values.length, size));
+    return copy;
+  }
+
+  /*
+   * The Channel class is an internally used listener that stores the changes
+   * of a source signal.
+   */
+  private class Channel implements DoubleSignalListener {
+    private int index;
+
+    private Channel(int index) {
+      this.index = index;
+    }
+
+    public void accept(double value, long timestamp) {
+      write(index, value);
+    }
+  }
+
+  /*
+   * The VectorChannel class is an internally used listener that stores the
+   * updates of a source vector. It knows the channel of every connected
+   * value of the vector.
+   */
+  private class VectorChannel implements VectorSignalListener {
+    private volatile int[] channels;
+
+    private VectorChannel(int size) {
+      channels = new int[size];
+      Arrays.fill(channels, -1);
+    }
+
+    private void setChannel(int index, int channel) {
+      int[] c = channels.clone();
+      c[index] = channel;
+      channels = c;
+    }
+
+    public void accept(double[] values, long timestamp) {
+      write(channels, values);
+    }
+  }
+
+  /*
+   * The Buffer class is an internally used container for the values that are
+   * shared between the writers and the reader. Every source signal has a last
+   * value and two minimum/maximum slots, one for the current and one for the
+   * previous sample period.
+   */
+  private static class Buffer {
+    private int size;
+    private AtomicLongArray last;
+    private AtomicLongArray min;
+    private AtomicLongArray max;
+    private AtomicIntegerArray epochs;
+
+    private Buffer(int size) {
+      this.size = size;
+      last = new AtomicLongArray(size);
+      min = new AtomicLongArray(2 * size);
+      max = new AtomicLongArray(2 * size);
+      epochs = new AtomicIntegerArray(2 * size);
+      // no slot belongs to a sample period yet
+      for (int i=0; i<2*size; ++i) {
+        epochs.set(i, -1);
+      }
+    }
+  }
+}
@@ -0,0 +1,160 @@
+package jaron.components;
+
+/**
+ * The <code>TelemetryFrame</code> class contains the merged values of the
+ * channels of a <code>SignalCoalescer</code> for one period (window) of time.
+ * For every channel it provides the last value, the mean, the minimum and the
+ * maximum of the values the signal had during the window, as well as the
+ * number of updates. If a signal didn't change during the window, all of them
+ * are its last value and the number of updates is 0.<br>
+ * A frame doesn't change after it was created, so it can be passed between
+ * threads without synchronization.
+ *
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ * @see         SignalCoalescer
+ */
+public class TelemetryFrame {
+  private long number;
+  private long time;
+  private String[] names;
+  private int[] modes;
+  private double[] last;
+  private double[] mean;
+  private double[] min;
+  private double[] max;
+  private int[] count;
+
+  /*
+   * Creates a new frame, the arrays are owned by the frame from now on.
+   */
+  TelemetryFrame(long number, long time, String[] names, int[] modes, double[] last, double[] mean, double[] min, double[] max, int[] count) {
+    this.number = number;
+    this.time = time;
+    this.names = names;
+    this.modes = modes;
+    this.last = last;
+    this.mean = mean;
+    this.min = min;
+    this.max = max;
+    this.count = count;
+  }
+
+  /**
+   * Returns the consecutive number of the frame. A consumer that receives a
+   * frame whose number isn't the successor of the previous one has missed
+   * frames.
+   *
+   * @return  the frame number
+   */
+  public long getNumber() {
+    return number;
+  }
+
+  /**
+   * Returns the time at the end of the frame's window.
+   *
+   * @return  the time in milliseconds
+   */
+  public long getTime() {
+    return time;
+  }
+
+  /**
+   * Returns the number of channels.
+   *
+   * @return  number of channels
+   */
+  public int size() {
+    return names.length;
+  }
+
+  /**
+   * Returns the names of the channels. The array is shared by all the frames
+   * until a channel is added, so a consumer can detect a change of the
+   * channels by comparing the references.
+   *
+   * @return  the channel names (must not be modified)
+   */
+  public String[] getNames() {
+    return names;
+  }
+
+  /**
+   * Returns the name of a channel.
+   *
+   * @param channel the channel number
+   * @return        the name of the channel
+   */
+  public String getName(int channel) {
+    return names[channel];
+  }
+
+  /**
+   * Returns the value of a channel according to its mode (see
+   * <code>SignalCoalescer.LAST</code>, <code>MEAN</code>, <code>MIN</code>
+   * and <code>MAX</code>).
+   *
+   * @param channel the channel number
+   * @return        the merged value of the channel
+   */
+  public double getValue(int channel) {
+    switch (modes[channel]) {
+      case SignalCoalescer.MEAN: return mean[channel];
+      case SignalCoalescer.MIN: return min[channel];
+      case SignalCoalescer.MAX: return max[channel];
+      default: return last[channel];
+    }
+  }
+
+  /**
+   * Returns the last value of a channel.
+   *
+   * @param channel the channel number
+   * @return        the last value
+   */
+  public double getLast(int channel) {
+    return last[channel];
+  }
+
+  /**
+   * Returns the mean of the values of a channel during the window.
+   *
+   * @param channel the channel number
+   * @return        the mean value
+   */
+  public double getMean(int channel) {
+    return mean[channel];
+  }
+
+  /**
+   * Returns the minimum of the values of a channel during the window.
+   *
+   * @param channel the channel number
+   * @return        the minimum value
+   */
+  public double getMin(int channel) {
+    return min[channel];
+  }
+
+  /**
+   * Returns the maximum of the values of a channel during the window.
+   *
+   * @param channel the channel number
+   * @return        the maximum value
+   */
+  public double getMax(int channel) {
+    return max[channel];
+  }
+
+  /**
+   * Returns the number of updates of a channel during the window.
+   *
+   * @param channel the channel number
+   * @return        number of updates
+   */
+  public int getCount(int channel) {
+    return count[channel];
+  }
+}
@@ -0,0 +1,25 @@
+package jaron.components;
+
+import java.util.EventListener;
+
+/**
+ * The <code>TelemetryListener</code> interface is implemented by the
+ * consumers of the frames of a <code>SignalCoalescer</code> (e.g. a telemetry
+ * server or a logger).
+ *
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ * @see         SignalCoalescer
+ */
+public interface TelemetryListener extends EventListener {
+  /**
+   * Receives a frame. This method is called by a thread of the
+   * <code>SignalCoalescer</code> that only serves this listener. If frames
+   * arrive faster than the listener processes them, only the latest one is
+   * delivered.
+   *
+   * @param frame the latest frame
+   */
+  public void frameReceived(TelemetryFrame frame);
+}
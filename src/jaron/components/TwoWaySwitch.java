@@ -2,16 +2,19 @@ package jaron.components;
 
 /**
  * The <code>TwoWaySwitch</code> class implements a switch with an input and
- * two output signals (channels).
+ * two output signals (channels).<br>
+ * The input passes its values on to the selected output itself, toggling
+ * the switch doesn't add or remove listeners.
  * 
  * @author      jarontec gmail com
- * @version     1.2
+ * @version     1.3
  * @since       1.0
  */
 public class TwoWaySwitch extends Signal {
   private Signal input;
   private Signal output1;
   private Signal output2;
+  private volatile Signal selected;
 
   /**
    * Creates a <code>TwoWaySwitch</code> object. By default the switch's
@@ -19,7 +22,7 @@ public class TwoWaySwitch extends Signal {
    */
   public TwoWaySwitch() {
     // these are the input/output channels
-    input = new Signal();
+    input = new Input();
     output1 = new Signal();
     output2 = new Signal();
     
@@ -27,7 +30,7 @@ public class TwoWaySwitch extends Signal {
     setValue(getLow());
     
     // default output is output1
-    input.addSignalListener(output1);
+    selected = output1;
   }
   
   /**
@@ -63,14 +66,26 @@ public class TwoWaySwitch extends Signal {
    */
   public void toggleSwitch() {
     if (getValue() == getLow()) {
-      input.removeSignalListener(output1);
-      input.addSignalListener(output2);
+      selected = output2;
       setValue(getHigh());
     }
     else {
-      input.removeSignalListener(output2);
-      input.addSignalListener(output1);
+      selected = output1;
       setValue(getLow());
     }
+    // the selected output takes over the current input value
+    selected.setValue(input.getValue());
+  }
+
+  /*
+   * The Input class is an internally used signal that passes its value on to
+   * the selected output.
+   */
+  private class Input extends Signal {
+    @Override
+    public void setValue(double value) {
+      super.setValue(value);
+      selected.setValue(value);
+    }
   }
 }
@@ -0,0 +1,223 @@
+package jaron.components;
+
+/**
+ * The <code>VectorSignal</code> class contains a fixed number of double values
+ * that belong together (e.g. the attitude and the rates of a motion sensor
+ * packet, or a GPS position) and are always updated together.<br>
+ * An update publishes a new array of values and its time atomically and
+ * notifies the listeners once, so a consumer never sees a combination of
+ * values from different updates and one update costs one notification
+ * instead of one per value.<br>
+ * For the consumers that work with single values, every component is also
+ * available as a <code>Signal</code>. A component signal is only created (and
+ * updated) if it is requested through <code>getComponent</code>.<br>
+ * A <code>VectorSignal</code> is itself a <code>VectorSignalListener</code>,
+ * so a vector can be passed on to another vector (e.g. from a sensor to the
+ * <code>FlightData</code>) with one update.<br>
+ * <br>
+ * Example:<br>
+ * <pre>
+ * VectorSignal attitude = new VectorSignal(2);
+ * attitude.addVectorSignalListener((values, timestamp) -> control(values[0], values[1]));
+ * attitude.set(new double[] {pitch, roll});
+ * </pre>
+ *
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+public class VectorSignal implements VectorSignalListener {
+  private static final VectorSignalListener[] NO_LISTENERS = new VectorSignalListener[0];
+
+  private volatile Update update;
+  private volatile VectorSignalListener[] listeners = NO_LISTENERS;
+  private volatile Signal[] components;
+
+  /**
+   * Creates a new <code>VectorSignal</code> whose values are 0.
+   *
+   * @param size  the number of values
+   */
+  public VectorSignal(int size) {
+    update = new Update(new double[size], 0);
+    components = new Signal[size];
+  }
+
+  /**
+   * Returns the number of values.
+   *
+   * @return  number of values
+   */
+  public int size() {
+    return update.values.length;
+  }
+
+  /**
+   * Returns a value of the latest update.
+   *
+   * @param index the index of the value
+   * @return      the value
+   */
+  public double get(int index) {
+    return update.values[index];
+  }
+
+  /**
+   * Returns a copy of the values of the latest update. The values are
+   * consistent, they all belong to the same update.
+   *
+   * @return  the values
+   */
+  public double[] getValues() {
+    return update.values.clone();
+  }
+
+  /**
+   * Returns the time of the latest update (<code>System.nanoTime</code>),
+   * 0 if there hasn't been an update yet. The values and the time of the
+   * same update are passed on by <code>read</code>.
+   *
+   * @return  the time of the latest update
+   */
+  public long getTimestamp() {
+    return update.timestamp;
+  }
+
+  /**
+   * Passes the values of the latest update together with its time to a
+   * listener, like an update does. The array must not be modified.
+   *
+   * @param listener  the listener that receives the latest update
+   */
+  public void read(VectorSignalListener listener) {
+    Update u = update;
+    listener.accept(u.values, u.timestamp);
+  }
+
+  /**
+   * Publishes new values and notifies the listeners once. The values are
+   * copied, so the array can be reused by the caller.
+   *
+   * @param newValues the new values, the length must be equal to
+   *                  <code>size</code>
+   */
+  public void set(double[] newValues) {
+    if (newValues.length != size()) {
+      throw new IllegalArgumentException("VectorSignal::set(): " + newValues.length + " values instead of " + size());
+    }
+    publish(newValues.clone(), System.nanoTime());
+  }
+
+  /**
+   * Publishes the values of another vector with their timestamp. The array
+   * isn't copied, like every listener the vector doesn't modify it.
+   *
+   * @param newValues the new values, the length must be equal to
+   *                  <code>size</code>
+   * @param time      the time of the update (<code>System.nanoTime</code>)
+   */
+  public void accept(double[] newValues, long time) {
+    if (newValues.length != size()) {
+      throw new IllegalArgumentException("VectorSignal::accept(): " + newValues.length + " values instead of " + size());
+    }
+    publish(newValues, time);
+  }
+
+  /*
+   * Publishes an array that nobody modifies anymore and notifies the
+   * listeners and the component signals.
+   */
+  private void publish(double[] published, long time) {
+    // the values and their time are published at once
+    update = new Update(published, time);
+    for (VectorSignalListener listener : listeners) {
+      listener.accept(published, time);
+    }
+    // the component signals that are in use
+    Signal[] c = components;
+    for (int i=0; i<c.length; ++i) {
+      if (c[i] != null) c[i].setValue(published[i]);
+    }
+  }
+
+  /**
+   * Returns a signal that follows one of the values. The signal is created
+   * on the first request and from then on updated after the vector listeners.
+   *
+   * @param index the index of the value
+   * @return      the component signal
+   */
+  public synchronized Signal getComponent(int index) {
+    Signal[] c = components;
+    if (c[index] == null) {
+      Signal[] grown = c.clone();
+      grown[index] = new Signal(update.values[index]);
+      components = grown;
+      c = grown;
+    }
+    return c[index];
+  }
+
+  /**
+   * Replaces the signal that follows one of the values. From now on the
+   * given signal is updated instead of the previous component signal.
+   *
+   * @param index   the index of the value
+   * @param signal  the new component signal
+   */
+  public synchronized void setComponent(int index, Signal signal) {
+    Signal[] c = components.clone();
+    c[index] = signal;
+    components = c;
+    signal.setValue(update.values[index]);
+  }
+
+  /**
+   * Adds a listener that receives all the values of every update. The
+   * listener is notified about the current values right away.
+   *
+   * @param listener  the listener to be added
+   */
+  public void addVectorSignalListener(VectorSignalListener listener) {
+    synchronized (this) {
+      VectorSignalListener[] l = listeners;
+      VectorSignalListener[] grown = new VectorSignalListener[l.length + 1];
+      System.arraycopy(l, 0, grown, 0, l.length);
+      grown[l.length] = listener;
+      listeners = grown;
+    }
+    read(listener);
+  }
+
+  /**
+   * Removes a listener.
+   *
+   * @param listener  the listener to be removed
+   */
+  public synchronized void removeVectorSignalListener(VectorSignalListener listener) {
+    VectorSignalListener[] l = listeners;
+    for (int i=0; i<l.length; ++i) {
+      if (l[i] == listener) {
+        VectorSignalListener[] shrunk = new VectorSignalListener[l.length - 1];
+        System.arraycopy(l, 0, shrunk, 0, i);
+        System.arraycopy(l, i + 1, shrunk, i, l.length - i - 1);
+        listeners = l.length > 1 ? shrunk : NO_LISTENERS;
+        return;
+      }
+    }
+  }
+
+  /*
+   * The Update class is an internally used immutable pair of the values of
+   * an update and its time.
+   */
+  private static class Update {
+    private final double[] values;
+    private final long timestamp;
+
+    private Update(double[] values, long timestamp) {
+      this.values = values;
+      this.timestamp = timestamp;
+    }
+  }
+}
@@ -0,0 +1,25 @@
+package jaron.components;
+
+import java.util.EventListener;
+
+/**
+ * The <code>VectorSignalListener</code> interface receives the updates of a
+ * <code>VectorSignal</code>: all the values of an update at once. It can be
+ * implemented by a lambda expression or a method reference.
+ *
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ * @see         VectorSignal#addVectorSignalListener(VectorSignalListener)
+ */
+@FunctionalInterface
+public interface VectorSignalListener extends EventListener {
+  /**
+   * Receives the values of an update. The array is shared by all the
+   * listeners and by <code>VectorSignal.get</code>, it must not be modified.
+   *
+   * @param values    the values of the update
+   * @param timestamp the time of the update (<code>System.nanoTime</code>)
+   */
+  public void accept(double[] values, long timestamp);
+}
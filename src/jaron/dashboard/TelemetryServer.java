@@ -0,0 +1,583 @@
+package jaron.dashboard;
+
+import jaron.components.Signal;
+import jaron.components.SignalCoalescer;
+import jaron.components.TelemetryFrame;
+import jaron.components.TelemetryListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The <code>TelemetryServer</code> class streams the values of a set of
+ * signals (e.g. the <code>FlightData</code>) to web browsers. It is a
+ * lightweight alternative to the PDE user interface: the visualization runs
+ * in the browser on another machine, so the autopilot host needs neither a
+ * display nor the CPU time for rendering.<br>
+ * The server is a single non-blocking thread (Java NIO) that listens at port
+ * {@value DEFAULT_PORT} by default. It serves the dashboard page at
+ * <code>/</code> and streams the signal values through a WebSocket at
+ * <code>/telemetry</code>:
+ * <ul>
+ * <li>a text message with the channel names as JSON array, whenever the
+ * channels have changed and before the first frame</li>
+ * <li>a binary message per frame ({@value DEFAULT_FRAME_RATE} frames per
+ * second by default), containing the frame number as 32-bit integer followed
+ * by the value of every channel as 32-bit float (big endian)</li>
+ * </ul>
+ * The frames are provided by a <code>SignalCoalescer</code>, which merges the
+ * signal changes per frame, so no network code is executed on the threads
+ * that change the signals. The server can have a coalescer of its own or
+ * share one with other consumers (e.g. a logger). A frame is only sent to a
+ * client that has received the previous one, a slow client drops frames
+ * instead of slowing down the server or the other clients.<br>
+ * <br>
+ * Example:<br>
+ * <pre>
+ * TelemetryServer dashboard = new TelemetryServer();
+ * dashboard.addChannel("Pitch", flightData.getPitchAngle());
+ * dashboard.addChannel("Roll", flightData.getRollAngle());
+ * // open http://host:8081/ in a browser
+ * </pre>
+ *
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+public class TelemetryServer extends Thread implements TelemetryListener {
+  /**
+   * The default port {@value DEFAULT_PORT} of the HTTP server.
+   */
+  public static final int DEFAULT_PORT = 8081;
+
+  /**
+   * The default rate of {@value DEFAULT_FRAME_RATE} frames per second.
+   */
+  public static final float DEFAULT_FRAME_RATE = 10;
+
+  /**
+   * The path of the WebSocket that streams the telemetry frames.
+   */
+  public static final String TELEMETRY_PATH = "/telemetry";
+
+  private static final String WEBSOCKET_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+  private static final String DASHBOARD_PAGE = "dashboard.html";
+  private static final int MAX_REQUEST_SIZE = 8192;
+  private static final int OPCODE_TEXT = 0x1;
+  private static final int OPCODE_BINARY = 0x2;
+  private static final int OPCODE_CLOSE = 0x8;
+  private static final int OPCODE_PING = 0x9;
+  private static final int OPCODE_PONG = 0xA;
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+  private Selector selector = null;
+  private ServerSocketChannel server = null;
+  private SignalCoalescer coalescer;
+  private Boolean ownCoalescer;
+  private AtomicReference<TelemetryFrame> nextFrame = new AtomicReference<TelemetryFrame>();
+  private volatile float frameRate = DEFAULT_FRAME_RATE;
+  private volatile Boolean running = true;
+  private byte[] page;
+  private Boolean debug = false;
+
+  /**
+   * Creates a new <code>TelemetryServer</code> that streams the frames of a
+   * <code>SignalCoalescer</code> and starts the thread that serves the
+   * dashboard and streams the frames. The channels of the coalescer are the
+   * channels of the dashboard.
+   *
+   * @param coalescer the coalescer that provides the frames
+   * @param port      the port to be used for the HTTP connections
+   */
+  public TelemetryServer(SignalCoalescer coalescer, int port) {
+    this(coalescer, false, port);
+  }
+
+  /**
+   * Creates a new <code>TelemetryServer</code> with a coalescer of its own and
+   * starts the thread that serves the dashboard and streams the frames.
+   *
+   * @param port  the port to be used for the HTTP connections
+   */
+  public TelemetryServer(int port) {
+    this(new SignalCoalescer(DEFAULT_FRAME_RATE), true, port);
+  }
+
+  /*
+   * Creates the server, opens the port and starts the thread.
+   */
+  private TelemetryServer(SignalCoalescer coalescer, Boolean ownCoalescer, int port) {
+    super("TelemetryServer");
+    this.coalescer = coalescer;
+    this.ownCoalescer = ownCoalescer;
+    page = loadPage();
+    try {
+      selector = Selector.open();
+      server = ServerSocketChannel.open();
+      server.configureBlocking(false);
+      server.socket().setReuseAddress(true);
+      server.socket().bind(new InetSocketAddress(port));
+      server.register(selector, SelectionKey.OP_ACCEPT);
+    } catch (IOException e) {
+      System.out.println("IOException in TelemetryServer(): " + e.getMessage());
+    }
+    setDaemon(true);
+    start();
+    coalescer.addTelemetryListener(this, frameRate);
+  }
+
+  /**
+   * Creates a new <code>TelemetryServer</code> with a coalescer of its own at
+   * the default port
+   * {@value DEFAULT_PORT} and starts the thread that serves the dashboard and
+   * streams the frames.
+   */
+  public TelemetryServer() {
+    this(DEFAULT_PORT);
+  }
+
+  /**
+   * Adds a signal to the frames (to the coalescer of the server). The channels
+   * appear in the frames in the order they are added.
+   *
+   * @param name    the name of the channel that is displayed by the dashboard
+   * @param signal  the signal whose values are streamed
+   */
+  public void addChannel(String name, Signal signal) {
+    coalescer.addChannel(name, signal);
+  }
+
+  /* (non-Javadoc)
+   * @see jaron.components.TelemetryListener#frameReceived(jaron.components.TelemetryFrame)
+   */
+  public void frameReceived(TelemetryFrame frame) {
+    // the frame is sent by the server's thread
+    nextFrame.set(frame);
+    if (selector != null) selector.wakeup();
+  }
+
+  /**
+   * Returns the number of frames per second.
+   *
+   * @return  the frame rate
+   */
+  public float getFrameRate() {
+    return frameRate;
+  }
+
+  /**
+   * Sets the maximum number of frames per second that are sent to the
+   * clients. The default frame rate is {@value DEFAULT_FRAME_RATE} frames per
+   * second, it can't be higher than the rate of the coalescer.
+   *
+   * @param frameRate the new frame rate
+   */
+  public void setFrameRate(float frameRate) {
+    this.frameRate = Math.max(0.1f, frameRate);
+    coalescer.setMaxRate(this, this.frameRate);
+  }
+
+  /**
+   * Sets the debugging flag which determines if the debugging informations should
+   * be printed to the console. This is for debugging purpose only.
+   *
+   * @param debug    set to <code>true</code> if additional debugging information
+   *                 should be printed
+   */
+  public void setDebug(Boolean debug) {
+    this.debug = debug;
+  }
+
+  /**
+   * Shuts the server down and disconnects all the clients.
+   */
+  public void shutDown() {
+    coalescer.removeTelemetryListener(this);
+    if (ownCoalescer) coalescer.shutDown();
+    running = false;
+    if (selector != null) selector.wakeup();
+    if (debug) System.out.println("TelemetryServer::shutDown(): Server is shut down.");
+  }
+
+  /* (non-Javadoc)
+   * @see java.lang.Thread#run()
+   */
+  @Override
+  public void run() {
+    if (selector == null || server == null) return;
+    while (running) {
+      try {
+        TelemetryFrame frame = nextFrame.getAndSet(null);
+        if (frame != null) {
+          broadcast(frame);
+        }
+        selector.select();
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          if (!key.isValid()) continue;
+          if (key.isAcceptable()) {
+            accept();
+          }
+          else {
+            Client client = (Client )key.attachment();
+            try {
+              if (key.isReadable()) client.read();
+              if (key.isValid() && key.isWritable()) client.write();
+            } catch (IOException e) {
+              client.close();
+            } catch (RuntimeException e) {
+              // a malformed request only closes its own connection
+              System.out.println("RuntimeException in TelemetryServer::run(): " + e.getMessage());
+              client.close();
+            }
+          }
+        }
+      } catch (IOException e) {
+        System.out.println("IOException in TelemetryServer::run(): " + e.getMessage());
+      }
+    }
+    closeAll();
+  }
+
+  /*
+   * Accepts a new connection.
+   */
+  private void accept() throws IOException {
+    SocketChannel socket = server.accept();
+    if (socket == null) return;
+    socket.configureBlocking(false);
+    socket.socket().setTcpNoDelay(true);
+    SelectionKey key = socket.register(selector, SelectionKey.OP_READ);
+    key.attach(new Client(socket, key));
+    if (debug) System.out.println("TelemetryServer::accept(): Client " + socket.socket().getRemoteSocketAddress() + " connected.");
+  }
+
+  /*
+   * Sends a frame to all the WebSocket clients that have received the
+   * previous frame.
+   */
+  private void broadcast(TelemetryFrame frame) {
+    ByteBuffer message = null;
+    ByteBuffer names = null;
+    for (SelectionKey key : selector.keys()) {
+      if (!(key.attachment() instanceof Client)) continue;
+      Client client = (Client )key.attachment();
+      if (!client.webSocket || client.output != null) continue;
+      if (message == null) message = encodeFrame(frame);
+      if (client.names != frame.getNames()) {
+        // the client has to know the channels before it can read the frame
+        if (names == null) names = encodeNames(frame.getNames());
+        client.names = frame.getNames();
+        client.send(concat(names.duplicate(), message.duplicate()));
+      }
+      else {
+        client.send(message.duplicate());
+      }
+    }
+  }
+
+  /*
+   * Closes the server and all the connections.
+   */
+  private void closeAll() {
+    try {
+      for (SelectionKey key : selector.keys()) {
+        key.channel().close();
+      }
+      selector.close();
+    } catch (IOException e) {
+      System.out.println("IOException in TelemetryServer::closeAll(): " + e.getMessage());
+    }
+  }
+
+  /*
+   * Encodes a binary WebSocket message with the frame number and the values
+   * of the channels.
+   */
+  private static ByteBuffer encodeFrame(TelemetryFrame frame) {
+    ByteBuffer payload = ByteBuffer.allocate(4 + 4 * frame.size());
+    payload.putInt((int )frame.getNumber());
+    for (int i=0; i<frame.size(); ++i) {
+      payload.putFloat((float )frame.getValue(i));
+    }
+    payload.flip();
+    return encodeMessage(OPCODE_BINARY, payload);
+  }
+
+  /*
+   * Encodes a text WebSocket message with the names of the channels as JSON
+   * array.
+   */
+  private static ByteBuffer encodeNames(String[] names) {
+    StringBuilder json = new StringBuilder("[");
+    for (int i=0; i<names.length; ++i) {
+      if (i > 0) json.append(',');
+      json.append('"');
+      String name = names[i];
+      for (int j=0; j<name.length(); ++j) {
+        char c = name.charAt(j);
+        if (c == '"' || c == '\\') json.append('\\');
+        if (c >= ' ') json.append(c);
+      }
+      json.append('"');
+    }
+    json.append(']');
+    return encodeMessage(OPCODE_TEXT, ByteBuffer.wrap(json.toString().getBytes(UTF8)));
+  }
+
+  /*
+   * Encodes an unmasked WebSocket message (a single frame) as it is sent by a
+   * server.
+   */
+  private static ByteBuffer encodeMessage(int opcode, ByteBuffer payload) {
+    int length = payload.remaining();
+    ByteBuffer message = ByteBuffer.allocate(10 + length);
+    message.put((byte )(0x80 | opcode)); // final fragment
+    if (length < 126) {
+      message.put((byte )length);
+    }
+    else if (length < 65536) {
+      message.put((byte )126);
+      message.putShort((short )length);
+    }
+    else {
+      message.put((byte )127);
+      message.putLong(length);
+    }
+    message.put(payload);
+    message.flip();
+    return message;
+  }
+
+  /*
+   * Returns a buffer with the remaining bytes of two buffers.
+   */
+  private static ByteBuffer concat(ByteBuffer first, ByteBuffer second) {
+    ByteBuffer buffer = ByteBuffer.allocate(first.remaining() + second.remaining());
+    buffer.put(first);
+    buffer.put(second);
+    buffer.flip();
+    return buffer;
+  }
+
+  /*
+   * Loads the dashboard page from the class path.
+   */
+  private byte[] loadPage() {
+    InputStream in = TelemetryServer.class.getResourceAsStream(DASHBOARD_PAGE);
+    if (in == null) {
+      return ("<html><body>" + DASHBOARD_PAGE + " is missing, the telemetry is available at " + TELEMETRY_PATH + "</body></html>").getBytes(UTF8);
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      byte[] buffer = new byte[4096];
+      int n;
+      while ((n = in.read(buffer)) > 0) {
+        out.write(buffer, 0, n);
+      }
+      in.close();
+    } catch (IOException e) {
+      System.out.println("IOException in TelemetryServer::loadPage(): " + e.getMessage());
+    }
+    return out.toByteArray();
+  }
+
+  /*
+   * Returns the accept key of the WebSocket handshake.
+   */
+  private static String getAcceptKey(String key) {
+    try {
+      MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+      return Base64.getEncoder().encodeToString(sha1.digest((key + WEBSOCKET_GUID).getBytes(ISO_8859_1)));
+    } catch (NoSuchAlgorithmException e) {
+      System.out.println("NoSuchAlgorithmException in TelemetryServer::getAcceptKey(): " + e.getMessage());
+      return "";
+    }
+  }
+
+  /*
+   * The Client class is an internally used container for the state of a
+   * connection. It starts as HTTP connection and either serves the dashboard
+   * page or is upgraded to a WebSocket.
+   */
+  private class Client {
+    private SocketChannel socket;
+    private SelectionKey key;
+    private ByteBuffer input = ByteBuffer.allocate(MAX_REQUEST_SIZE);
+    private ByteBuffer output = null;   // the data that hasn't been written yet
+    private Boolean webSocket = false;
+    private Boolean closeAfterWrite = false;
+    private String[] names = null;      // the channels the client knows
+
+    private Client(SocketChannel socket, SelectionKey key) {
+      this.socket = socket;
+      this.key = key;
+    }
+
+    private void read() throws IOException {
+      if (socket.read(input) < 0) {
+        close();
+        return;
+      }
+      if (webSocket) {
+        readMessages();
+      }
+      else {
+        readRequest();
+      }
+    }
+
+    private void readRequest() throws IOException {
+      String request = new String(input.array(), 0, input.position(), ISO_8859_1);
+      int end = request.indexOf("\r\n\r\n");
+      if (end < 0) {
+        // the request isn't complete yet
+        if (!input.hasRemaining()) sendResponse("431 Request Header Fields Too Large", "text/plain", new byte[0]);
+        return;
+      }
+      input.clear();
+
+      String[] lines = request.substring(0, end).split("\r\n");
+      String[] requestLine = lines[0].split(" ");
+      HashMap<String, String> headers = new HashMap<String, String>();
+      for (int i=1; i<lines.length; ++i) {
+        int colon = lines[i].indexOf(':');
+        if (colon > 0) headers.put(lines[i].substring(0, colon).trim().toLowerCase(), lines[i].substring(colon + 1).trim());
+      }
+      if (requestLine.length < 2 || !requestLine[0].equals("GET")) {
+        sendResponse("405 Method Not Allowed", "text/plain", new byte[0]);
+        return;
+      }
+      String path = requestLine[1];
+      if (path.indexOf('?') >= 0) path = path.substring(0, path.indexOf('?'));
+
+      if (path.equals(TELEMETRY_PATH) && "websocket".equalsIgnoreCase(headers.get("upgrade")) && headers.get("sec-websocket-key") != null) {
+        String response =
+          "HTTP/1.1 101 Switching Protocols\r\n" +
+          "Upgrade: websocket\r\n" +
+          "Connection: Upgrade\r\n" +
+          "Sec-WebSocket-Accept: " + getAcceptKey(headers.get("sec-websocket-key")) + "\r\n\r\n";
+        webSocket = true;
+        send(ByteBuffer.wrap(response.getBytes(ISO_8859_1)));
+        if (debug) System.out.println("TelemetryServer::readRequest(): WebSocket opened.");
+      }
+      else if (path.equals("/") || path.equals("/" + DASHBOARD_PAGE)) {
+        sendResponse("200 OK", "text/html; charset=UTF-8", page);
+      }
+      else {
+        sendResponse("404 Not Found", "text/plain", new byte[0]);
+      }
+    }
+
+    private void readMessages() throws IOException {
+      input.flip();
+      while (input.remaining() >= 2) {
+        int start = input.position();
+        int opcode = input.get(start) & 0x0f;
+        boolean masked = (input.get(start + 1) & 0x80) != 0;
+        long length = input.get(start + 1) & 0x7f;
+        int header = 2;
+        if (length == 126) {
+          if (input.remaining() < 4) break;
+          length = input.getShort(start + 2) & 0xffff;
+          header = 4;
+        }
+        else if (length == 127) {
+          if (input.remaining() < 10) break;
+          length = input.getLong(start + 2);
+          header = 10;
+        }
+        // a client must mask its frames, a control frame carries at most
+        // 125 bytes and the browser only sends small control messages
+        if (!masked || length < 0 || ((opcode & 0x8) != 0 && length > 125) || length + header + 4 > input.capacity()) {
+          close();
+          return;
+        }
+        header += 4;
+        if (input.remaining() < header + length) break;
+
+        byte[] payload = new byte[(int )length];
+        for (int i=0; i<length; ++i) {
+          payload[i] = (byte )(input.get(start + header + i) ^ input.get(start + header - 4 + (i % 4)));
+        }
+        input.position(start + header + (int )length);
+
+        if (opcode == OPCODE_CLOSE) {
+          closeAfterWrite = true;
+          if (output == null) send(encodeMessage(OPCODE_CLOSE, ByteBuffer.wrap(payload)));
+          else close();
+          return;
+        }
+        else if (opcode == OPCODE_PING && output == null) {
+          send(encodeMessage(OPCODE_PONG, ByteBuffer.wrap(payload)));
+        }
+      }
+      input.compact();
+    }
+
+    private void sendResponse(String status, String contentType, byte[] content) throws IOException {
+      String header =
+        "HTTP/1.1 " + status + "\r\n" +
+        "Content-Type: " + contentType + "\r\n" +
+        "Content-Length: " + content.length + "\r\n" +
+        "Cache-Control: no-cache\r\n" +
+        "Connection: close\r\n\r\n";
+      closeAfterWrite = true;
+      send(concat(ByteBuffer.wrap(header.getBytes(ISO_8859_1)), ByteBuffer.wrap(content)));
+    }
+
+    private void send(ByteBuffer data) {
+      output = data;
+      try {
+        write();
+      } catch (IOException e) {
+        close();
+      }
+    }
+
+    private void write() throws IOException {
+      if (output != null) {
+        socket.write(output);
+        if (output.hasRemaining()) {
+          // the rest is written as soon as the socket is ready
+          key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+          return;
+        }
+        output = null;
+      }
+      if (closeAfterWrite) {
+        close();
+        return;
+      }
+      key.interestOps(SelectionKey.OP_READ);
+    }
+
+    private void close() {
+      key.cancel();
+      try {
+        socket.close();
+      } catch (IOException e) {
+        System.out.println("IOException in TelemetryServer::close(): " + e.getMessage());
+      }
+      if (debug) System.out.println("TelemetryServer::close(): Client disconnected.");
+    }
+  }
+}
@@ -1,13 +1,30 @@
 package jaron.google;
 
+import jaron.gps.TrackIndex;
+import jaron.gps.TrackSimplifier;
 import jaron.gps.Trackpath;
 import jaron.gps.Trackpoint;
 import jaron.gps.TrackpointListener;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
@@ -33,6 +50,51 @@ import com.sun.net.httpserver.HttpServer;
       &lt;refreshInterval&gt;2&lt;/refreshInterval&gt;
     &lt;/Link&gt;
   &lt;/NetworkLink&gt;
+&lt;/kml&gt;</pre>
+ * Requesting <code>http://127.0.0.1:8080/track.kmz</code> returns the same
+ * information as a compressed KMZ file. The KML file is sent gzip compressed
+ * to clients that accept it. Every response carries an ETag and a
+ * Last-Modified header that change with the track, so a client that polls an
+ * unchanged track with If-None-Match gets a short "304 Not Modified"
+ * response. If-Modified-Since is not evaluated, the track changes several
+ * times per second and HTTP dates only have a resolution of one second.<br>
+ * The track line is written as a simplified polyline (see
+ * <code>setTrackTolerance</code>), so the size of the KML structure stays small
+ * even during a long mission. The placemarks and the statistics are still based
+ * on the full track.<br>
+ * The following query parameters request a certain part of the track:
+ * <ul>
+ * <li><code>?minutes=N</code> returns the track of the last N minutes at
+ * full detail.</li>
+ * <li><code>?since=X</code> returns the track points from sequence number X
+ * on (the position of the track point in the track) as a
+ * <code>NetworkLinkControl</code> update that adds them to a document loaded
+ * from <code>/</code>. The response contains a cookie with the sequence number
+ * of the next update, so a polling network link only receives the new track
+ * points. If an update interval is set (see <code>setUpdateInterval</code>)
+ * the document at <code>/</code> contains such a polling network link that
+ * starts at the sequence number of the document itself.</li>
+ * <li><code>?lod</code> returns the track in blocks of
+ * {@value TrackIndex#DEFAULT_BLOCK_SIZE} track points. Each block is shown as
+ * a coarse line as long as its region is small on the screen, the full
+ * detail of a block is loaded from <code>?block=N</code> when the user zooms
+ * in. The most recent block is always contained at full detail.</li>
+ * </ul>
+ * The parts of the track are found by the <code>TrackIndex</code> of the
+ * track path and are assembled from the encoded track points, so the costs of
+ * a request depend on the size of the response and not on the length of the
+ * track. With <code>provider.setUpdateInterval(2)</code> the following KML
+ * file loads the track once and then only polls the new track points every
+ * two seconds:<br>
+ * <pre>
+&lt;?xml version="1.0" encoding="UTF-8"?>
+&lt;kml xmlns="http://earth.google.com/kml/2.2"&gt;
+  &lt;NetworkLink&gt;
+    &lt;name&gt;UAV Playground Track&lt;/name&gt;
+    &lt;Link&gt;
+      &lt;href&gt;http://127.0.0.1:8080/&lt;/href&gt;
+    &lt;/Link&gt;
+  &lt;/NetworkLink&gt;
 &lt;/kml&gt;</pre>
  * 
  * @author      jarontec gmail com
@@ -59,29 +121,129 @@ public class GoogleEarthKMLProvider implements TrackpointListener {
    * The default port {@value DEFAULT_PORT} that is used for the HTTP server.
    */
   public static final int DEFAULT_PORT = 8080;
+
+  /**
+   * The default number {@value DEFAULT_THREADS} of threads that serve the
+   * HTTP requests.
+   */
+  public static final int DEFAULT_THREADS = 4;
+
+  /**
+   * The size {@value LOD_PIXELS} in pixels from which on a block of the
+   * <code>?lod</code> response is shown at full detail.
+   */
+  public static final int LOD_PIXELS = 256;
+
+  /**
+   * The tolerance {@value LOD_TOLERANCE} meters of the coarse lines of the
+   * <code>?lod</code> response.
+   */
+  public static final double LOD_TOLERANCE = 50;
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  private static final String CONTENT_TYPE_KML = "application/vnd.google-earth.kml+xml";
+  private static final String CONTENT_TYPE_KMZ = "application/vnd.google-earth.kmz";
+  private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+  private static final byte[] DOCUMENT_PREFIX = encode(
+      "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+      "<kml xmlns=\"http://earth.google.com/kml/2.2\">\n" +
+      "<Document>\n" +
+      "<open>1</open>\n" +
+      // styles
+      "<Style id=\"icon1\">\n" +
+      "<IconStyle>\n" +
+      "<scale>0.5</scale>\n" +
+      "</IconStyle>\n" +
+      "</Style>\n" +
+      "<Style id=\"color1\">\n" +
+      "<LineStyle>\n" +
+      "<color>ff0060ff</color>\n" +
+      "<colorMode>normal</colorMode>\n" +
+      "<width>4</width>\n" +
+      "</LineStyle>\n" +
+      "</Style>\n");
+  private static final byte[] PLACEMARKS_PREFIX = encode(
+      "<Folder id=\"trackpoints\">\n" +
+      "<name>Trackpoints</name>\n" +
+      "<open>0</open>\n");
+  private static final byte[] FOLDER_SUFFIX = encode(
+      "</Folder>\n");
+  private static final byte[] TRACK_SUFFIX = encode(
+      "</coordinates>\n" +
+      "</LineString>\n" +
+      "</Placemark>\n" +
+      "</Folder>\n");
+  private static final byte[] DOCUMENT_SUFFIX = encode(
+      "</Document>\n" +
+      "</kml>\n");
+  private static final byte[] UPDATE_PREFIX = encode(
+      "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+      "<kml xmlns=\"http://earth.google.com/kml/2.2\">\n" +
+      "<NetworkLinkControl>\n");
+  private static final byte[] CREATE_PLACEMARKS_PREFIX = encode(
+      "<Create>\n" +
+      "<Folder targetId=\"trackpoints\">\n");
+  private static final byte[] CREATE_SUFFIX = encode(
+      "</Folder>\n" +
+      "</Create>\n");
+  private static final byte[] UPDATE_SUFFIX = encode(
+      "</Update>\n");
+  private static final byte[] CONTROL_SUFFIX = encode(
+      "</NetworkLinkControl>\n" +
+      "</kml>\n");
   
+  private HttpServer server = null;
+  private ExecutorService executor = null;
   private Trackpath trackpath = new Trackpath();
+  private TrackSimplifier trackSimplifier = new TrackSimplifier();
   private Boolean writeTrack = true;
   private Boolean writePlacemaks = true;
   private String trackAltitudeMode = ALTITUDE_MODE_ABSOLUTE;
   private String placemarkAltitudeMode = ALTITUDE_MODE_ABSOLUTE;
+  private KMLBuffer placemarkBuffer = new KMLBuffer();
+  private KMLBuffer trackBuffer = new KMLBuffer();
+  private KMLBuffer coordinateBuffer = new KMLBuffer();
+  private KMLBuffer lodBuffer = new KMLBuffer();
+  private byte[] trackPrefix = encode(getTrackPrefix());
+  private int encodedKeypoints = 0;
+  private int encodedBlocks = 0;
+  private long version = 0;
+  private long lastModified = System.currentTimeMillis();
+  private int updateInterval = 0;
+  private CompressedResponse gzipResponse = null;
+  private CompressedResponse kmzResponse = null;
   
   /**
    * Creates a new <code>GoogleEarthKMLProvider</code> and starts its HTTP
-   * server through which the KML tracking data is provided.
+   * server through which the KML tracking data is provided. The requests
+   * are served by a pool of threads, so several clients can be served at
+   * the same time.
    * 
-   * @param port the port to be used for the HTTP connection
+   * @param port    the port to be used for the HTTP connection
+   * @param threads the number of threads that serve the requests
    */
-  public GoogleEarthKMLProvider(int port) {
+  public GoogleEarthKMLProvider(int port, int threads) {
     try {
-      HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+      server = HttpServer.create(new InetSocketAddress(port), 0);
       server.createContext( "/", new KMLCodeProvider() );
+      executor = createExecutor(threads);
+      server.setExecutor(executor);
       server.start();
     } catch (IOException e) {
       System.out.println("IOException in GoogleEarthKMLProvider(): " + e.getMessage());
     }
   }
   
+  /**
+   * Creates a new <code>GoogleEarthKMLProvider</code> and starts its HTTP
+   * server through which the KML tracking data is provided.
+   * 
+   * @param port the port to be used for the HTTP connection
+   */
+  public GoogleEarthKMLProvider(int port) {
+    this(port, DEFAULT_THREADS);
+  }
+  
   /**
    * Creates a new <code>GoogleEarthKMLProvider</code> and starts its HTTP
    * server through which the KML tracking data is provided.
@@ -90,20 +252,178 @@ public class GoogleEarthKMLProvider implements TrackpointListener {
     this(DEFAULT_PORT);
   }
 
+  /**
+   * Stops the HTTP server and the threads that serve the requests.
+   */
+  public void shutDown() {
+    if (server != null) {
+      server.stop(0);
+      server = null;
+    }
+    if (executor != null) {
+      executor.shutdown();
+      executor = null;
+    }
+  }
+
+  /*
+   * Creates the thread pool that serves the HTTP requests. The threads are
+   * daemon threads, so they don't keep the application alive.
+   */
+  private static ExecutorService createExecutor(int threads) {
+    return Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "GoogleEarthKMLProvider");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
   /**
    * The <code>KMLCodeProvider</code> class is internally used by the HTTP
    * server to handle a certain client request.
    */
   private class KMLCodeProvider implements HttpHandler  { 
     public void handle(HttpExchange httpExchange) throws IOException { 
-      httpExchange.getResponseHeaders().add( "Content-type", "text/html" ); 
-      String response = getKML(); 
-      httpExchange.sendResponseHeaders(200, response.length()); 
-      OutputStream os = httpExchange.getResponseBody(); 
-      os.write(response.getBytes()); 
-      os.close(); 
+      boolean kmz = httpExchange.getRequestURI().getPath().endsWith(".kmz");
+      String acceptEncoding = httpExchange.getRequestHeaders().getFirst("Accept-Encoding");
+      boolean gzip = !kmz && acceptEncoding != null && acceptEncoding.contains("gzip");
+      boolean head = httpExchange.getRequestMethod().equalsIgnoreCase("HEAD");
+      String query = httpExchange.getRequestURI().getRawQuery();
+      String variant = (query != null ? "-" + Integer.toHexString(query.hashCode()) : "") + (kmz ? "-kmz" : (gzip ? "-gzip" : ""));
+
+      // answer with 304 if the client already has the current version
+      long currentVersion;
+      long currentLastModified;
+      synchronized (GoogleEarthKMLProvider.this) {
+        currentVersion = version;
+        currentLastModified = lastModified;
+      }
+      if (isNotModified(httpExchange, "\"" + currentVersion + variant + "\"")) {
+        setCacheHeaders(httpExchange, "\"" + currentVersion + variant + "\"", currentLastModified);
+        httpExchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        httpExchange.sendResponseHeaders(304, -1);
+        httpExchange.close();
+        return;
+      }
+
+      KMLDocument response;
+      try {
+        response = getKMLDocument(getParameters(query), getTargetHref(httpExchange));
+      } catch (NumberFormatException e) {
+        httpExchange.sendResponseHeaders(400, -1);
+        httpExchange.close();
+        return;
+      }
+      setCacheHeaders(httpExchange, "\"" + response.version + variant + "\"", response.lastModified);
+      httpExchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+      if (kmz || gzip) {
+        CompressedResponse compressed = getCompressedResponse(response, kmz, query == null);
+        httpExchange.getResponseHeaders().set("Content-Type", kmz ? CONTENT_TYPE_KMZ : CONTENT_TYPE_KML);
+        if (gzip) httpExchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        httpExchange.sendResponseHeaders(200, head ? -1 : compressed.data.length); 
+        if (!head) httpExchange.getResponseBody().write(compressed.data);
+      }
+      else {
+        httpExchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE_KML);
+        httpExchange.sendResponseHeaders(200, head ? -1 : response.getSize()); 
+        if (!head) response.writeTo(httpExchange.getResponseBody()); 
+      }
+      httpExchange.close(); 
     } 
   }
+
+  /*
+   * Returns the parameters of a query string. If a parameter appears several
+   * times the last value is used (Google Earth appends the cookie of an update
+   * to the query).
+   */
+  private static Map<String, String> getParameters(String query) {
+    Map<String, String> parameters = new HashMap<String, String>();
+    if (query != null) {
+      for (String parameter : query.split("&")) {
+        int i = parameter.indexOf('=');
+        if (i < 0) parameters.put(parameter, "");
+        else parameters.put(parameter.substring(0, i), parameter.substring(i + 1));
+      }
+    }
+    return parameters;
+  }
+
+  /*
+   * Returns the URL of the document that is updated by a NetworkLinkControl.
+   */
+  private static String getTargetHref(HttpExchange httpExchange) {
+    String host = httpExchange.getRequestHeaders().getFirst("Host");
+    if (host == null) {
+      InetSocketAddress address = httpExchange.getLocalAddress();
+      host = address.getHostString() + ":" + address.getPort();
+    }
+    return "http://" + host + "/";
+  }
+
+  /*
+   * Checks the If-None-Match header. If-Modified-Since is ignored: a track
+   * that changes within the second of the previous response would be
+   * reported as unchanged, HTTP dates have a resolution of one second.
+   */
+  private static boolean isNotModified(HttpExchange httpExchange, String etag) {
+    String ifNoneMatch = httpExchange.getRequestHeaders().getFirst("If-None-Match");
+    return ifNoneMatch != null && (ifNoneMatch.trim().equals("*") || ifNoneMatch.contains(etag));
+  }
+
+  /*
+   * Sets the headers that are used by the client to revalidate its copy.
+   */
+  private static void setCacheHeaders(HttpExchange httpExchange, String etag, long lastModified) {
+    httpExchange.getResponseHeaders().set("ETag", etag);
+    httpExchange.getResponseHeaders().set("Last-Modified", getHttpDateFormat().format(new Date(lastModified)));
+    httpExchange.getResponseHeaders().set("Cache-Control", "no-cache");
+  }
+
+  /*
+   * Returns a new date format for HTTP headers (SimpleDateFormat isn't thread safe).
+   */
+  private static SimpleDateFormat getHttpDateFormat() {
+    SimpleDateFormat format = new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US);
+    format.setTimeZone(TimeZone.getTimeZone("GMT"));
+    return format;
+  }
+
+  /*
+   * Returns the gzip or KMZ compressed document. The compressed full document
+   * is cached, so polling clients share the compression of a certain version.
+   */
+  private CompressedResponse getCompressedResponse(KMLDocument document, boolean kmz, boolean cacheable) throws IOException {
+    synchronized (this) {
+      CompressedResponse cached = kmz ? kmzResponse : gzipResponse;
+      if (cacheable && cached != null && cached.version == document.version) {
+        return cached;
+      }
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(document.getSize() / 4 + 64);
+    if (kmz) {
+      ZipOutputStream zip = new ZipOutputStream(bytes);
+      zip.putNextEntry(new ZipEntry("doc.kml"));
+      document.writeTo(zip);
+      zip.closeEntry();
+      zip.close();
+    }
+    else {
+      GZIPOutputStream gzip = new GZIPOutputStream(bytes);
+      document.writeTo(gzip);
+      gzip.close();
+    }
+    CompressedResponse compressed = new CompressedResponse(document.version, bytes.toByteArray());
+    if (cacheable) {
+      synchronized (this) {
+        if (kmz) kmzResponse = compressed;
+        else gzipResponse = compressed;
+      }
+    }
+    return compressed;
+  }
   
   /**
    * Sets the track write flag. If set to true (default) the track information
@@ -111,8 +431,9 @@ public class GoogleEarthKMLProvider implements TrackpointListener {
    *  
    * @param flag  true if the track information should part of the KML output 
    */
-  public void setWriteTrack(Boolean flag) {
+  public synchronized void setWriteTrack(Boolean flag) {
     this.writeTrack = flag;
+    updateVersion();
   }
 
   /**
@@ -121,8 +442,43 @@ public class GoogleEarthKMLProvider implements TrackpointListener {
    *  
    * @param flag  true if the placemaks should part of the KML output 
    */
-  public void setWritePlacemaks(Boolean flag) {
+  public synchronized void setWritePlacemaks(Boolean flag) {
     this.writePlacemaks = flag;
+    updateVersion();
+  }
+
+  /**
+   * Sets the interval of the network link that the document at
+   * <code>/</code> contains to poll the new track points. The link starts at
+   * the sequence number of the document, so the track points of the
+   * document aren't added again. The default interval 0 omits the link.
+   *  
+   * @param seconds the polling interval in seconds, 0 for no link
+   */
+  public synchronized void setUpdateInterval(int seconds) {
+    this.updateInterval = Math.max(0, seconds);
+    updateVersion();
+  }
+
+  /**
+   * Sets the tolerance that is used to simplify the track line. The track line
+   * deviates at most by this distance from the recorded track. Setting the
+   * tolerance to 0 writes every track point that isn't on a straight line.
+   * The default tolerance is {@value TrackSimplifier#DEFAULT_TOLERANCE} meters.
+   *  
+   * @param tolerance the tolerance in meters
+   */
+  public synchronized void setTrackTolerance(double tolerance) {
+    // rebuild the simplified track line with the new tolerance
+    trackSimplifier.clear();
+    trackSimplifier.setTolerance(tolerance);
+    for (Trackpoint t : trackpath.getTrackpoints()) {
+      trackSimplifier.addTrackpoint(t);
+    }
+    trackBuffer = new KMLBuffer();
+    encodedKeypoints = 0;
+    encodeTrack();
+    updateVersion();
   }
 
   /**
@@ -131,8 +487,14 @@ public class GoogleEarthKMLProvider implements TrackpointListener {
    *  
    * @param trackAltitudeMode a KML &lt;altitudeMode&gt; value
    */
-  public void setTrackAltitudeMode(String trackAltitudeMode) {
+  public synchronized void setTrackAltitudeMode(String trackAltitudeMode) {
     this.trackAltitudeMode = trackAltitudeMode;
+    trackPrefix = encode(getTrackPrefix());
+    // the altitude mode is part of the coarse block lines
+    lodBuffer = new KMLBuffer();
+    encodedBlocks = 0;
+    encodeBlocks();
+    updateVersion();
   }
 
   /**
@@ -141,8 +503,14 @@ public class GoogleEarthKMLProvider implements TrackpointListener {
    *  
    * @param placemarkAltitudeMode a KML &lt;altitudeMode&gt; value
    */
-  public void setPlacemarkAltitudeMode(String placemarkAltitudeMode) {
+  public synchronized void setPlacemarkAltitudeMode(String placemarkAltitudeMode) {
     this.placemarkAltitudeMode = placemarkAltitudeMode;
+    // the altitude mode is part of every placemark
+    placemarkBuffer = new KMLBuffer();
+    for (Trackpoint t : trackpath.getTrackpoints()) {
+      placemarkBuffer.append(getPlacemark(t));
+    }
+    updateVersion();
   }
   
   /**
@@ -153,25 +521,179 @@ public class GoogleEarthKMLProvider implements TrackpointListener {
    * @return  KML track information
    */
   public String getKML() {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    try {
+      getKMLDocument().writeTo(os);
+    } catch (IOException e) {
+      System.out.println("IOException in GoogleEarthKMLProvider::getKML(): " + e.getMessage());
+    }
+    return new String(os.toByteArray(), UTF8);
+  }
+
+  /*
+   * Assembles the KML document from the cached segments. Only the statistics
+   * and the floating end of the track line are encoded per request, so the
+   * costs don't depend on the length of the track.
+   */
+  private synchronized KMLDocument getKMLDocument() {
+    KMLDocument kml = new KMLDocument(version, lastModified);
+    kml.add(DOCUMENT_PREFIX);
+    kml.add(encode(getHeader()));
+    // placemarks
+    if (writePlacemaks) {
+      kml.add(PLACEMARKS_PREFIX);
+      kml.add(placemarkBuffer);
+      kml.add(FOLDER_SUFFIX);
+    }
+    // track
+    if (writeTrack) {
+      kml.add(trackPrefix);
+      kml.add(trackBuffer);
+      Trackpoint tail = trackSimplifier.getTail();
+      if (tail != null) {
+        kml.add(encode(getCoordinates(tail)));
+      }
+      kml.add(TRACK_SUFFIX);
+    }
+    // the link that polls the updates from the end of this document on
+    if (updateInterval > 0) {
+      kml.add(encode(getUpdateLink(trackpath.getIndex().size())));
+    }
+    // footer
+    kml.add(DOCUMENT_SUFFIX);
+    return kml;
+  }
+
+  /*
+   * Assembles the KML document that is requested by the query parameters.
+   */
+  private KMLDocument getKMLDocument(Map<String, String> parameters, String targetHref) {
+    if (parameters.containsKey("since")) {
+      return getUpdateDocument(Integer.parseInt(parameters.get("since")), targetHref);
+    }
+    if (parameters.containsKey("minutes")) {
+      return getWindowDocument(Double.parseDouble(parameters.get("minutes")));
+    }
+    if (parameters.containsKey("block")) {
+      return getBlockDocument(Integer.parseInt(parameters.get("block")));
+    }
+    if (parameters.containsKey("lod")) {
+      return getLODDocument();
+    }
+    return getKMLDocument();
+  }
+
+  /*
+   * Assembles the KML document of the last minutes of the track at full
+   * detail. The first track point is found by a binary search in the index.
+   */
+  private synchronized KMLDocument getWindowDocument(double minutes) {
+    TrackIndex index = trackpath.getIndex();
+    int size = index.size();
+    int from = size > 0 ? index.getIndex(index.getTimestamp(size - 1) - (long )(minutes * 60 * 1000)) : 0;
+
+    KMLDocument kml = new KMLDocument(version, lastModified);
+    kml.add(DOCUMENT_PREFIX);
+    kml.add(encode(getHeader()));
+    if (writePlacemaks) {
+      kml.add(PLACEMARKS_PREFIX);
+      kml.add(placemarkBuffer, from, size);
+      kml.add(FOLDER_SUFFIX);
+    }
+    if (writeTrack) {
+      kml.add(trackPrefix);
+      kml.add(coordinateBuffer, from, size);
+      kml.add(TRACK_SUFFIX);
+    }
+    kml.add(DOCUMENT_SUFFIX);
+    return kml;
+  }
+
+  /*
+   * Assembles the update that adds the track points from a certain sequence
+   * number on to the document at the target URL. The line segment starts at
+   * the previous track point, so it connects to the existing track line.
+   */
+  private synchronized KMLDocument getUpdateDocument(int since, String targetHref) {
+    int size = trackpath.getIndex().size();
+    since = Math.max(0, Math.min(since, size));
+
+    KMLDocument kml = new KMLDocument(version, lastModified);
+    kml.add(UPDATE_PREFIX);
+    kml.add(encode("<cookie>since=" + size + "</cookie>\n"));
+    if (since < size && (writeTrack || writePlacemaks)) {
+      kml.add(encode("<Update>\n<targetHref>" + targetHref + "</targetHref>\n"));
+      if (writeTrack && size - Math.max(0, since - 1) > 1) {
+        kml.add(encode(getSegmentPrefix(since, size)));
+        kml.add(coordinateBuffer, Math.max(0, since - 1), size);
+        kml.add(TRACK_SUFFIX);
+        kml.add(encode("</Create>\n"));
+      }
+      if (writePlacemaks) {
+        kml.add(CREATE_PLACEMARKS_PREFIX);
+        kml.add(placemarkBuffer, since, size);
+        kml.add(CREATE_SUFFIX);
+      }
+      kml.add(UPDATE_SUFFIX);
+    }
+    kml.add(CONTROL_SUFFIX);
+    return kml;
+  }
+
+  /*
+   * Assembles the KML document with the coarse lines of the completed blocks
+   * and the most recent block at full detail.
+   */
+  private synchronized KMLDocument getLODDocument() {
+    int size = trackpath.getIndex().size();
+    int from = encodedBlocks * trackpath.getIndex().getBlockSize();
+
+    KMLDocument kml = new KMLDocument(version, lastModified);
+    kml.add(DOCUMENT_PREFIX);
+    kml.add(encode(getHeader()));
+    if (writeTrack) {
+      kml.add(lodBuffer);
+    }
+    if (writePlacemaks) {
+      kml.add(PLACEMARKS_PREFIX);
+      kml.add(placemarkBuffer, from, size);
+      kml.add(FOLDER_SUFFIX);
+    }
+    if (writeTrack) {
+      kml.add(trackPrefix);
+      kml.add(coordinateBuffer, from, size);
+      kml.add(TRACK_SUFFIX);
+    }
+    kml.add(DOCUMENT_SUFFIX);
+    return kml;
+  }
+
+  /*
+   * Assembles the KML document of a single block at full detail. The line
+   * includes the first track point of the next block, so the blocks connect.
+   */
+  private synchronized KMLDocument getBlockDocument(int block) {
+    TrackIndex index = trackpath.getIndex();
+    int from = Math.max(0, Math.min(block * index.getBlockSize(), index.size()));
+    int to = Math.max(from, Math.min(from + index.getBlockSize() + 1, index.size()));
+
+    KMLDocument kml = new KMLDocument(version, lastModified);
+    kml.add(DOCUMENT_PREFIX);
+    kml.add(encode("<name>Block " + block + "</name>\n"));
+    if (writeTrack && to - from > 1) {
+      kml.add(trackPrefix);
+      kml.add(coordinateBuffer, from, to);
+      kml.add(TRACK_SUFFIX);
+    }
+    kml.add(DOCUMENT_SUFFIX);
+    return kml;
+  }
+
+  /*
+   * Returns the track name and the track statistics.
+   */
+  private String getHeader() {
     StringBuilder xml = new StringBuilder();
-    // header
-    xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");   
-    xml.append("<kml xmlns=\"http://earth.google.com/kml/2.2\">\n");
-    xml.append("<Document>\n");
-    xml.append("<open>1</open>\n");
-    // styles
-    xml.append("<Style id=\"icon1\">\n");
-    xml.append("<IconStyle>\n");
-    xml.append("<scale>0.5</scale>\n");
-    xml.append("</IconStyle>\n");
-    xml.append("</Style>\n");
-    xml.append("<Style id=\"color1\">\n");
-    xml.append("<LineStyle>\n");
-    xml.append("<color>ff0060ff</color>\n");
-    xml.append("<colorMode>normal</colorMode>\n");
-    xml.append("<width>4</width>\n");
-    xml.append("</LineStyle>\n");
-    xml.append("</Style>\n");
     // track name
     xml.append("<name>" + trackpath.getName() + "</name>\n");
     // track description
@@ -186,64 +708,299 @@ public class GoogleEarthKMLProvider implements TrackpointListener {
     xml.append("<tr><td>Min.&nbsp;satellites: </td><td>" + trackpath.getSatMin() + "</td></tr>\n");
     xml.append("</table>\n");
     xml.append("]]></description>\n");
-    // placemarks
-    if (writePlacemaks) {
-      xml.append("<Folder>\n");
-      xml.append("<name>Trackpoints</name>\n");
-      xml.append("<open>0</open>\n");
-      for (Trackpoint t : trackpath.getTrackpoints()) {
-        xml.append("<Placemark>\n");
-        xml.append("<name>" + String.format(Locale.US, "%.1f", t.getAltitude()) + " m - " + String.format(Locale.US, "%.2f", t.getGroundSpeed()) + " km/h</name>\n");
-        xml.append("<styleUrl>#icon1</styleUrl>\n");
-        xml.append("<description><![CDATA[<h3>Track&nbsp;point</h3>\n");
-        xml.append("<table>\n");
-        xml.append("<tr><td>Duration: </td><td>" + t.getDuration() + "</td></tr>\n");
-        xml.append("<tr><td>Distance: </td><td>" + String.format(Locale.US, "%.3f", t.getDistance()) + "&nbsp;km</td></tr>\n");
-        xml.append("<tr><td>Speed: </td><td>" + String.format(Locale.US, "%.2f", t.getGroundSpeed()) + "&nbsp;km/h</td></tr>\n");
-        xml.append("<tr><td>Altitude: </td><td>" + String.format(Locale.US, "%.1f", t.getAltitude()) + "&nbsp;m</td></tr>\n");
-        xml.append("<tr><td>Satellites: </td><td>" + t.getSatellites() + "</td></tr>\n");
-        xml.append("</table>\n");
-        xml.append("]]></description>\n");
-        xml.append("<Point>\n");
-        xml.append("<altitudeMode>" + placemarkAltitudeMode + "</altitudeMode>\n");
-        xml.append("<coordinates>" + t.getLongitude().getDecimal() + "," + t.getLatitude().getDecimal() + "," + t.getAltitude() + "</coordinates>\n");
-        xml.append("</Point>\n");
-        xml.append("</Placemark>\n");
-      }
-      xml.append("</Folder>\n");
-    }
-    // track
-    if (writeTrack) {
-      xml.append("<Folder>\n");
-      xml.append("<name>Tracks</name>\n");
-      xml.append("<open>0</open>\n");
-      xml.append("<Placemark>\n");
-      xml.append("<name>GPS Track</name>\n");
-      xml.append("<styleUrl>#color1</styleUrl>\n");
-      xml.append("<LineString>\n");
-      xml.append("<extrude>0</extrude>\n");
-      xml.append("<tessellate>1</tessellate>\n");
-      xml.append("<altitudeMode>" + trackAltitudeMode + "</altitudeMode>\n");
-      xml.append("<coordinates>\n");
-      for (Trackpoint t : trackpath.getTrackpoints()) {
-        xml.append(t.getLongitude().getDecimal() + "," + t.getLatitude().getDecimal() + "," + t.getAltitude() + "\n");
-      }
-      xml.append("</coordinates>\n");
-      xml.append("</LineString>\n");
-      xml.append("</Placemark>\n");
-      xml.append("</Folder>\n");
+    return xml.toString();
+  }
+
+  /*
+   * Returns the placemark of a single track point.
+   */
+  private String getPlacemark(Trackpoint t) {
+    StringBuilder xml = new StringBuilder();
+    xml.append("<Placemark>\n");
+    xml.append("<name>" + String.format(Locale.US, "%.1f", t.getAltitude()) + " m - " + String.format(Locale.US, "%.2f", t.getGroundSpeed()) + " km/h</name>\n");
+    xml.append("<styleUrl>#icon1</styleUrl>\n");
+    xml.append("<description><![CDATA[<h3>Track&nbsp;point</h3>\n");
+    xml.append("<table>\n");
+    xml.append("<tr><td>Duration: </td><td>" + t.getDuration() + "</td></tr>\n");
+    xml.append("<tr><td>Distance: </td><td>" + String.format(Locale.US, "%.3f", t.getDistance()) + "&nbsp;km</td></tr>\n");
+    xml.append("<tr><td>Speed: </td><td>" + String.format(Locale.US, "%.2f", t.getGroundSpeed()) + "&nbsp;km/h</td></tr>\n");
+    xml.append("<tr><td>Altitude: </td><td>" + String.format(Locale.US, "%.1f", t.getAltitude()) + "&nbsp;m</td></tr>\n");
+    xml.append("<tr><td>Satellites: </td><td>" + t.getSatellites() + "</td></tr>\n");
+    xml.append("</table>\n");
+    xml.append("]]></description>\n");
+    xml.append("<Point>\n");
+    xml.append("<altitudeMode>" + placemarkAltitudeMode + "</altitudeMode>\n");
+    xml.append("<coordinates>" + getCoordinates(t).trim() + "</coordinates>\n");
+    xml.append("</Point>\n");
+    xml.append("</Placemark>\n");
+    return xml.toString();
+  }
+
+  /*
+   * Returns the beginning of the track folder up to the coordinates.
+   */
+  private String getTrackPrefix() {
+    StringBuilder xml = new StringBuilder();
+    xml.append("<Folder id=\"tracks\">\n");
+    xml.append("<name>Tracks</name>\n");
+    xml.append("<open>0</open>\n");
+    xml.append("<Placemark>\n");
+    xml.append("<name>GPS Track</name>\n");
+    xml.append("<styleUrl>#color1</styleUrl>\n");
+    xml.append("<LineString>\n");
+    xml.append("<extrude>0</extrude>\n");
+    xml.append("<tessellate>1</tessellate>\n");
+    xml.append("<altitudeMode>" + trackAltitudeMode + "</altitudeMode>\n");
+    xml.append("<coordinates>\n");
+    return xml.toString();
+  }
+
+  /*
+   * Returns the network link that polls the updates from a certain sequence
+   * number on. The URL is relative to the document, so it works with every
+   * host name the document is loaded from.
+   */
+  private String getUpdateLink(int since) {
+    StringBuilder xml = new StringBuilder();
+    xml.append("<NetworkLink>\n");
+    xml.append("<name>Updates</name>\n");
+    xml.append("<Link>\n");
+    xml.append("<href>/?since=" + since + "</href>\n");
+    xml.append("<refreshMode>onInterval</refreshMode>\n");
+    xml.append("<refreshInterval>" + updateInterval + "</refreshInterval>\n");
+    xml.append("</Link>\n");
+    xml.append("</NetworkLink>\n");
+    return xml.toString();
+  }
+
+  /*
+   * Returns the beginning of a track line segment that is added to the track
+   * folder by an update. The id contains the range of the track points, so a
+   * poll that is retried with the same cookie but more track points creates
+   * a new segment, and the same update applied twice has the same id.
+   */
+  private String getSegmentPrefix(int since, int size) {
+    StringBuilder xml = new StringBuilder();
+    xml.append("<Create>\n");
+    xml.append("<Folder targetId=\"tracks\">\n");
+    xml.append("<Placemark id=\"segment" + since + "-" + size + "\">\n");
+    xml.append("<styleUrl>#color1</styleUrl>\n");
+    xml.append("<LineString>\n");
+    xml.append("<extrude>0</extrude>\n");
+    xml.append("<tessellate>1</tessellate>\n");
+    xml.append("<altitudeMode>" + trackAltitudeMode + "</altitudeMode>\n");
+    xml.append("<coordinates>\n");
+    return xml.toString();
+  }
+
+  /*
+   * Returns the folder of a completed block. It contains the coarse line of
+   * the block, which is hidden when the block gets large on the screen, and
+   * a network link that loads the block at full detail at that size.
+   */
+  private String getBlock(int block) {
+    TrackIndex index = trackpath.getIndex();
+    List<Trackpoint> trackpoints = trackpath.getTrackpoints();
+    int from = block * index.getBlockSize();
+    TrackSimplifier simplifier = new TrackSimplifier(LOD_TOLERANCE);
+    for (int i=from; i<=from+index.getBlockSize(); ++i) {
+      simplifier.addTrackpoint(trackpoints.get(i));
     }
-    // footer
-    xml.append("</Document>\n");    
-    xml.append("</kml>\n");
+    String box = "<LatLonAltBox>\n" +
+        "<north>" + index.getNorth(block) + "</north>\n" +
+        "<south>" + index.getSouth(block) + "</south>\n" +
+        "<east>" + index.getEast(block) + "</east>\n" +
+        "<west>" + index.getWest(block) + "</west>\n" +
+        "</LatLonAltBox>\n";
 
+    StringBuilder xml = new StringBuilder();
+    xml.append("<Folder>\n");
+    xml.append("<name>Block " + block + "</name>\n");
+    // coarse line
+    xml.append("<Placemark>\n");
+    xml.append("<styleUrl>#color1</styleUrl>\n");
+    xml.append("<Region>\n" + box);
+    xml.append("<Lod><minLodPixels>0</minLodPixels><maxLodPixels>" + LOD_PIXELS + "</maxLodPixels></Lod>\n");
+    xml.append("</Region>\n");
+    xml.append("<LineString>\n");
+    xml.append("<tessellate>1</tessellate>\n");
+    xml.append("<altitudeMode>" + trackAltitudeMode + "</altitudeMode>\n");
+    xml.append("<coordinates>\n");
+    for (Trackpoint t : simplifier.getPolyline()) {
+      xml.append(getCoordinates(t));
+    }
+    xml.append("</coordinates>\n");
+    xml.append("</LineString>\n");
+    xml.append("</Placemark>\n");
+    // full detail
+    xml.append("<NetworkLink>\n");
+    xml.append("<Region>\n" + box);
+    xml.append("<Lod><minLodPixels>" + LOD_PIXELS + "</minLodPixels></Lod>\n");
+    xml.append("</Region>\n");
+    xml.append("<Link>\n");
+    xml.append("<href>/?block=" + block + "</href>\n");
+    xml.append("<viewRefreshMode>onRegion</viewRefreshMode>\n");
+    xml.append("</Link>\n");
+    xml.append("</NetworkLink>\n");
+    xml.append("</Folder>\n");
     return xml.toString();
   }
+
+  /*
+   * Returns the KML coordinates line of a track point.
+   */
+  private static String getCoordinates(Trackpoint t) {
+    return t.getLongitude().getDecimal() + "," + t.getLatitude().getDecimal() + "," + t.getAltitude() + "\n";
+  }
+
+  /*
+   * Encodes the key points of the simplified track line that haven't been
+   * encoded yet. Key points don't change anymore, so they are encoded once.
+   */
+  private void encodeTrack() {
+    List<Trackpoint> keypoints = trackSimplifier.getKeypoints();
+    for (; encodedKeypoints < keypoints.size(); ++encodedKeypoints) {
+      trackBuffer.append(getCoordinates(keypoints.get(encodedKeypoints)));
+    }
+  }
+
+  /*
+   * Encodes the blocks that have been completed. A block is completed as soon
+   * as the first track point of the next block exists.
+   */
+  private void encodeBlocks() {
+    TrackIndex index = trackpath.getIndex();
+    int completed = Math.max(0, (index.size() - 1) / index.getBlockSize());
+    for (; encodedBlocks < completed; ++encodedBlocks) {
+      lodBuffer.append(getBlock(encodedBlocks));
+    }
+  }
+
+  /*
+   * Returns the UTF-8 representation of a string.
+   */
+  private static byte[] encode(String s) {
+    return s.getBytes(UTF8);
+  }
   
   /* (non-Javadoc)
    * @see jaron.gps.TrackpointListener#trackpointChanged(jaron.gps.Trackpoint)
    */
-  public void trackpointChanged(Trackpoint trackpoint) {
+  public synchronized void trackpointChanged(Trackpoint trackpoint) {
     trackpath.addTrackpoint(trackpoint);
+    trackSimplifier.addTrackpoint(trackpoint);
+    // only the new data is encoded
+    placemarkBuffer.append(getPlacemark(trackpoint));
+    coordinateBuffer.append(getCoordinates(trackpoint));
+    encodeTrack();
+    encodeBlocks();
+    updateVersion();
+  }
+
+  /*
+   * Marks the KML document as changed. The version is used as the ETag of
+   * the HTTP responses.
+   */
+  private void updateVersion() {
+    ++version;
+    lastModified = System.currentTimeMillis();
+  }
+
+  /*
+   * The KMLBuffer class is an internally used append-only byte buffer. The
+   * bytes that have been appended never change, so a snapshot of the buffer
+   * (data and size) can be written to a client without holding a lock. The
+   * offset of every appended string is kept, so a range of the appended
+   * strings can be written as well.
+   */
+  private static class KMLBuffer {
+    private byte[] data = new byte[4096];
+    private int size = 0;
+    private int[] offsets = new int[256];
+    private int count = 0;
+
+    private void append(String s) {
+      byte[] b = encode(s);
+      if (size + b.length > data.length) {
+        // the old array is kept unchanged for the snapshots that refer to it
+        byte[] grown = new byte[Math.max(data.length * 2, size + b.length)];
+        System.arraycopy(data, 0, grown, 0, size);
+        data = grown;
+      }
+      if (count == offsets.length) {
+        int[] grown = new int[offsets.length * 2];
+        System.arraycopy(offsets, 0, grown, 0, count);
+        offsets = grown;
+      }
+      offsets[count++] = size;
+      System.arraycopy(b, 0, data, size, b.length);
+      size += b.length;
+    }
+
+    private int getOffset(int i) {
+      return i < count ? offsets[i] : size;
+    }
+  }
+
+  /*
+   * The KMLDocument class is an internally used container for the segments
+   * a KML document consists of.
+   */
+  private static class KMLDocument {
+    private long version;
+    private long lastModified;
+    private ArrayList<byte[]> data = new ArrayList<byte[]>();
+    private ArrayList<Integer> offsets = new ArrayList<Integer>();
+    private ArrayList<Integer> lengths = new ArrayList<Integer>();
+    private int size = 0;
+
+    private KMLDocument(long version, long lastModified) {
+      this.version = version;
+      this.lastModified = lastModified;
+    }
+
+    private void add(byte[] b) {
+      add(b, 0, b.length);
+    }
+
+    private void add(KMLBuffer buffer) {
+      add(buffer.data, 0, buffer.size);
+    }
+
+    private void add(KMLBuffer buffer, int from, int to) {
+      int offset = buffer.getOffset(from);
+      add(buffer.data, offset, buffer.getOffset(to) - offset);
+    }
+
+    private void add(byte[] b, int offset, int length) {
+      data.add(b);
+      offsets.add(offset);
+      lengths.add(length);
+      size += length;
+    }
+
+    private int getSize() {
+      return size;
+    }
+
+    private void writeTo(OutputStream os) throws IOException {
+      for (int i=0; i<data.size(); ++i) {
+        os.write(data.get(i), offsets.get(i), lengths.get(i));
+      }
+    }
+  }
+
+  /*
+   * The CompressedResponse class is an internally used container for a
+   * compressed version of the KML document.
+   */
+  private static class CompressedResponse {
+    private long version;
+    private byte[] data;
+
+    private CompressedResponse(long version, byte[] data) {
+      this.version = version;
+      this.data = data;
+    }
   }
 }
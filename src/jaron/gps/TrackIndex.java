@@ -0,0 +1,200 @@
+package jaron.gps;
+
+/**
+ * The <code>TrackIndex</code> class is an index over the track points of a
+ * <code>Trackpath</code>. It provides the position of a track point by its
+ * time and the bounding box of fixed size blocks of track points. This allows
+ * parts of the track to be found without iterating the whole track.<br>
+ * The index is updated in constant time per track point.
+ *
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+public class TrackIndex {
+  /**
+   * The default number {@value DEFAULT_BLOCK_SIZE} of track points per block.
+   */
+  public static final int DEFAULT_BLOCK_SIZE = 256;
+
+  private int blockSize = DEFAULT_BLOCK_SIZE;
+  private int size = 0;
+  private long[] timestamps = new long[1024];
+  // bounds per block: north, south, east, west, minimum and maximum altitude
+  private double[] bounds = new double[6 * 16];
+
+  /**
+   * Creates a new <code>TrackIndex</code> with a certain block size.
+   *
+   * @param blockSize the number of track points per block
+   */
+  public TrackIndex(int blockSize) {
+    this.blockSize = Math.max(1, blockSize);
+  }
+
+  /**
+   * Creates a new <code>TrackIndex</code> with the default block size of
+   * {@value DEFAULT_BLOCK_SIZE} track points.
+   */
+  public TrackIndex() {
+    this(DEFAULT_BLOCK_SIZE);
+  }
+
+  /**
+   * Adds a track point to the index. The track points have to be added in
+   * chronological order.
+   *
+   * @param trackpoint  the track point to be added
+   */
+  public void add(Trackpoint trackpoint) {
+    if (size == timestamps.length) {
+      long[] grown = new long[timestamps.length * 2];
+      System.arraycopy(timestamps, 0, grown, 0, size);
+      timestamps = grown;
+    }
+    timestamps[size] = trackpoint.getTimestamp() != null ? trackpoint.getTimestamp().getTime() : 0;
+
+    int block = size / blockSize;
+    int i = block * 6;
+    if (i == bounds.length) {
+      double[] grown = new double[bounds.length * 2];
+      System.arraycopy(bounds, 0, grown, 0, bounds.length);
+      bounds = grown;
+    }
+    double latitude = trackpoint.getLatitude().getDecimal();
+    double longitude = trackpoint.getLongitude().getDecimal();
+    double altitude = trackpoint.getAltitude();
+    if (size % blockSize == 0) {
+      // first track point of a new block
+      bounds[i] = bounds[i + 1] = latitude;
+      bounds[i + 2] = bounds[i + 3] = longitude;
+      bounds[i + 4] = bounds[i + 5] = altitude;
+    }
+    else {
+      bounds[i] = Math.max(bounds[i], latitude);
+      bounds[i + 1] = Math.min(bounds[i + 1], latitude);
+      bounds[i + 2] = Math.max(bounds[i + 2], longitude);
+      bounds[i + 3] = Math.min(bounds[i + 3], longitude);
+      bounds[i + 4] = Math.min(bounds[i + 4], altitude);
+      bounds[i + 5] = Math.max(bounds[i + 5], altitude);
+    }
+    ++size;
+  }
+
+  /**
+   * Returns the position of the first track point that was recorded at or
+   * after a certain time.
+   *
+   * @param time  the time in milliseconds
+   * @return      the position of the track point or the number of track
+   *              points if there is no such track point
+   */
+  public int getIndex(long time) {
+    // binary search for the first timestamp that isn't before the time
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (timestamps[mid] < time) low = mid + 1;
+      else high = mid;
+    }
+    return low;
+  }
+
+  /**
+   * Returns the time of a certain track point.
+   *
+   * @param index the position of the track point
+   * @return      the time in milliseconds
+   */
+  public long getTimestamp(int index) {
+    return timestamps[index];
+  }
+
+  /**
+   * Returns the number of track points in the index.
+   *
+   * @return  number of track points
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the number of track points per block.
+   *
+   * @return  the block size
+   */
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+  /**
+   * Returns the number of blocks that contain at least one track point.
+   *
+   * @return  number of blocks
+   */
+  public int getBlockCount() {
+    return (size + blockSize - 1) / blockSize;
+  }
+
+  /**
+   * Returns the northern bound of a block.
+   *
+   * @param block the block number
+   * @return      the maximum latitude in decimal form
+   */
+  public double getNorth(int block) {
+    return bounds[block * 6];
+  }
+
+  /**
+   * Returns the southern bound of a block.
+   *
+   * @param block the block number
+   * @return      the minimum latitude in decimal form
+   */
+  public double getSouth(int block) {
+    return bounds[block * 6 + 1];
+  }
+
+  /**
+   * Returns the eastern bound of a block.
+   *
+   * @param block the block number
+   * @return      the maximum longitude in decimal form
+   */
+  public double getEast(int block) {
+    return bounds[block * 6 + 2];
+  }
+
+  /**
+   * Returns the western bound of a block.
+   *
+   * @param block the block number
+   * @return      the minimum longitude in decimal form
+   */
+  public double getWest(int block) {
+    return bounds[block * 6 + 3];
+  }
+
+  /**
+   * Returns the minimum altitude of a block.
+   *
+   * @param block the block number
+   * @return      the minimum altitude in meters
+   */
+  public double getMinAltitude(int block) {
+    return bounds[block * 6 + 4];
+  }
+
+  /**
+   * Returns the maximum altitude of a block.
+   *
+   * @param block the block number
+   * @return      the maximum altitude in meters
+   */
+  public double getMaxAltitude(int block) {
+    return bounds[block * 6 + 5];
+  }
+}
@@ -0,0 +1,182 @@
+package jaron.gps;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The <code>TrackSimplifier</code> class reduces a GPS track to a compact
+ * polyline while it is recorded. It is a streaming variant of the
+ * Douglas-Peucker algorithm (opening window): the simplified polyline consists
+ * of key points and a floating end point. A new track point replaces the
+ * floating end point as long as all the track points since the last key point
+ * stay within the tolerance of the line from the last key point to the new
+ * track point. Otherwise the floating end point becomes a new key point.<br>
+ * Each track point is compared to at most {@value DEFAULT_WINDOW} preceding
+ * track points (see <code>setMaxWindow</code>), so the simplification costs
+ * constant time per track point no matter how long the track is.
+ *
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+public class TrackSimplifier {
+  /**
+   * The default tolerance of {@value DEFAULT_TOLERANCE} meters.
+   */
+  public static final double DEFAULT_TOLERANCE = 10;
+
+  /**
+   * The default maximum number {@value DEFAULT_WINDOW} of track points between
+   * two key points.
+   */
+  public static final int DEFAULT_WINDOW = 250;
+
+  private static final double EARTH_RADIUS = 6371000; // in meters
+
+  private double tolerance = DEFAULT_TOLERANCE;
+  private int maxWindow = DEFAULT_WINDOW;
+  private ArrayList<Trackpoint> keypoints = new ArrayList<Trackpoint>();
+  private ArrayList<Trackpoint> window = new ArrayList<Trackpoint>();
+
+  /**
+   * Creates a new <code>TrackSimplifier</code> with a certain tolerance.
+   *
+   * @param tolerance the maximum deviation of the simplified polyline from the track in meters
+   */
+  public TrackSimplifier(double tolerance) {
+    this.tolerance = tolerance;
+  }
+
+  /**
+   * Creates a new <code>TrackSimplifier</code> with the default tolerance of
+   * {@value DEFAULT_TOLERANCE} meters.
+   */
+  public TrackSimplifier() {
+    this(DEFAULT_TOLERANCE);
+  }
+
+  /**
+   * Adds a track point to the simplified polyline.
+   *
+   * @param trackpoint  the track point to be added
+   */
+  public void addTrackpoint(Trackpoint trackpoint) {
+    if (keypoints.size() == 0) {
+      // the first track point is always a key point
+      keypoints.add(trackpoint);
+      return;
+    }
+
+    window.add(trackpoint);
+    if (window.size() > maxWindow || !isWithinTolerance(trackpoint)) {
+      // the previous floating end point becomes a key point and the
+      // new track point is the floating end point of the next segment
+      keypoints.add(window.get(window.size() - 2));
+      window.clear();
+      window.add(trackpoint);
+    }
+  }
+
+  /**
+   * Removes all the track points.
+   */
+  public void clear() {
+    keypoints.clear();
+    window.clear();
+  }
+
+  /**
+   * Returns the key points of the simplified polyline. Key points don't change
+   * anymore once they are added, so the list only grows at its end.
+   *
+   * @return  the key points
+   */
+  public List<Trackpoint> getKeypoints() {
+    return keypoints;
+  }
+
+  /**
+   * Returns the floating end point of the simplified polyline. It is replaced
+   * by the next track point that is added.
+   *
+   * @return  the floating end point or <code>null</code> if there is none
+   */
+  public Trackpoint getTail() {
+    return window.size() > 0 ? window.get(window.size() - 1) : null;
+  }
+
+  /**
+   * Returns the simplified polyline (the key points followed by the floating
+   * end point).
+   *
+   * @return  a new list containing the points of the simplified polyline
+   */
+  public List<Trackpoint> getPolyline() {
+    ArrayList<Trackpoint> polyline = new ArrayList<Trackpoint>(keypoints);
+    Trackpoint tail = getTail();
+    if (tail != null) {
+      polyline.add(tail);
+    }
+    return polyline;
+  }
+
+  /**
+   * Returns the tolerance of the simplification.
+   *
+   * @return  the tolerance in meters
+   */
+  public double getTolerance() {
+    return tolerance;
+  }
+
+  /**
+   * Sets the tolerance of the simplification. The new tolerance applies to the
+   * track points that are added from now on.
+   *
+   * @param tolerance the maximum deviation of the simplified polyline from the track in meters
+   */
+  public void setTolerance(double tolerance) {
+    this.tolerance = tolerance;
+  }
+
+  /**
+   * Sets the maximum number of track points between two key points. This limits
+   * the time that is needed to add a track point. The default value is
+   * {@value DEFAULT_WINDOW}.
+   *
+   * @param maxWindow the maximum number of track points between two key points
+   */
+  public void setMaxWindow(int maxWindow) {
+    this.maxWindow = Math.max(2, maxWindow);
+  }
+
+  /*
+   * Checks if all the track points since the last key point are within the
+   * tolerance of the line from the last key point to the new end point.
+   */
+  private boolean isWithinTolerance(Trackpoint end) {
+    Trackpoint anchor = keypoints.get(keypoints.size() - 1);
+    double lat0 = anchor.getLatitude().getDecimal();
+    double lon0 = anchor.getLongitude().getDecimal();
+    // project the coordinates onto a plane (equirectangular) around the anchor
+    double scaleX = Math.toRadians(1) * EARTH_RADIUS * Math.cos(Math.toRadians(lat0));
+    double scaleY = Math.toRadians(1) * EARTH_RADIUS;
+    double ex = (end.getLongitude().getDecimal() - lon0) * scaleX;
+    double ey = (end.getLatitude().getDecimal() - lat0) * scaleY;
+    double length2 = ex * ex + ey * ey;
+
+    for (int i=0; i<window.size()-1; ++i) {
+      Trackpoint t = window.get(i);
+      double px = (t.getLongitude().getDecimal() - lon0) * scaleX;
+      double py = (t.getLatitude().getDecimal() - lat0) * scaleY;
+      // the distance between the point and the line segment
+      double u = length2 > 0 ? Math.max(0, Math.min(1, (px * ex + py * ey) / length2)) : 0;
+      double dx = px - u * ex;
+      double dy = py - u * ey;
+      if (dx * dx + dy * dy > tolerance * tolerance) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,306 @@
+package jaron.gps;
+
+/**
+ * The <code>TrackStatistics</code> class collects the statistics of a GPS
+ * track (duration, distance, speed, altitude and satellite reception) in a
+ * streaming way. Every track point is processed in constant time and the
+ * track points themselves don't have to be kept.<br>
+ * The mean and the variance of the speed are calculated with Welford's
+ * algorithm, the distance is the cumulative length of the track path and the
+ * speed percentiles are estimated with a fixed bucket histogram.<br>
+ * The statistics of two consecutive track segments can be merged. This allows
+ * the analysis of a large track log to be split into segments that are
+ * processed in parallel.
+ *
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+public class TrackStatistics {
+  /**
+   * The width {@value HISTOGRAM_BUCKET_WIDTH} km/h of a single speed histogram
+   * bucket. This is also the maximum error of the speed percentiles.
+   */
+  public static final double HISTOGRAM_BUCKET_WIDTH = 1;
+
+  /**
+   * The number of speed histogram buckets. Speeds above the highest bucket
+   * are counted in the highest bucket.
+   */
+  public static final int HISTOGRAM_BUCKETS = 1000;
+
+  private long count = 0;
+  private double distance = 0;
+  private double speedMean = 0;
+  private double speedM2 = 0;
+  private double speedMin = 0;
+  private double speedMax = 0;
+  private double altitudeMin = 0;
+  private double altitudeMax = 0;
+  private int satMin = 0;
+  private int satMax = 0;
+  private Trackpoint first = null;
+  private Trackpoint last = null;
+  private long[] speedHistogram = new long[HISTOGRAM_BUCKETS];
+
+  /**
+   * Adds a track point to the statistics. The track points have to be added
+   * in chronological order.
+   *
+   * @param trackpoint  the track point to be added
+   */
+  public void add(Trackpoint trackpoint) {
+    double speed = trackpoint.getGroundSpeed();
+    double altitude = trackpoint.getAltitude();
+    int satellites = trackpoint.getSatellites();
+
+    if (count == 0) {
+      first = trackpoint;
+      speedMin = speedMax = speed;
+      altitudeMin = altitudeMax = altitude;
+      satMin = satMax = satellites;
+    }
+    else {
+      // the distance is the length of the path and not the beeline
+      distance += GPSUtil.getDistance(last, trackpoint);
+      speedMin = Math.min(speedMin, speed);
+      speedMax = Math.max(speedMax, speed);
+      altitudeMin = Math.min(altitudeMin, altitude);
+      altitudeMax = Math.max(altitudeMax, altitude);
+      satMin = Math.min(satMin, satellites);
+      satMax = Math.max(satMax, satellites);
+    }
+    last = trackpoint;
+
+    // Welford's algorithm for the running mean and variance
+    ++count;
+    double delta = speed - speedMean;
+    speedMean += delta / count;
+    speedM2 += delta * (speed - speedMean);
+
+    ++speedHistogram[getBucket(speed)];
+  }
+
+  /**
+   * Merges the statistics of a following track segment into this statistics.
+   * The first track point of the other segment is supposed to follow the last
+   * track point of this segment, so the gap between the two segments is added
+   * to the distance.
+   *
+   * @param other   the statistics of the following track segment
+   */
+  public void merge(TrackStatistics other) {
+    if (other.count == 0) {
+      return;
+    }
+    if (count == 0) {
+      first = other.first;
+      speedMin = other.speedMin;
+      speedMax = other.speedMax;
+      altitudeMin = other.altitudeMin;
+      altitudeMax = other.altitudeMax;
+      satMin = other.satMin;
+      satMax = other.satMax;
+    }
+    else {
+      distance += GPSUtil.getDistance(last, other.first);
+      speedMin = Math.min(speedMin, other.speedMin);
+      speedMax = Math.max(speedMax, other.speedMax);
+      altitudeMin = Math.min(altitudeMin, other.altitudeMin);
+      altitudeMax = Math.max(altitudeMax, other.altitudeMax);
+      satMin = Math.min(satMin, other.satMin);
+      satMax = Math.max(satMax, other.satMax);
+    }
+    last = other.last;
+    distance += other.distance;
+
+    // Chan's formula for combining the mean and variance of two sets
+    long n = count + other.count;
+    double delta = other.speedMean - speedMean;
+    speedMean += delta * other.count / n;
+    speedM2 += other.speedM2 + delta * delta * count * other.count / n;
+    count = n;
+
+    for (int i=0; i<HISTOGRAM_BUCKETS; ++i) {
+      speedHistogram[i] += other.speedHistogram[i];
+    }
+  }
+
+  /**
+   * Returns the number of track points that were added.
+   *
+   * @return  number of track points
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Returns the cumulative distance along the track path.
+   *
+   * @return  track distance in kilometers
+   */
+  public double getDistance() {
+    return distance;
+  }
+
+  /**
+   * Returns the time between the first and the last track point.
+   *
+   * @return  track duration in milliseconds
+   */
+  public long getDurationMillis() {
+    if (count < 2) {
+      return 0;
+    }
+    return last.getTimestamp().getTime() - first.getTimestamp().getTime();
+  }
+
+  /**
+   * Returns the time between the first and the last track point in the form
+   * hh:mm:ss.
+   *
+   * @return  track duration
+   */
+  public String getDuration() {
+    long diff = getDurationMillis();
+    long hours = diff / (1000 * 60 * 60);
+    long minutes = (diff % (1000 * 60 * 60)) / (1000 * 60);
+    long seconds = (diff % (1000 * 60)) / 1000;
+    return String.format("%02d:%02d:%02d", hours, minutes, seconds);
+  }
+
+  /**
+   * Returns the average speed of the track.
+   *
+   * @return  average speed in kilometers per hour
+   */
+  public double getSpeedMean() {
+    return speedMean;
+  }
+
+  /**
+   * Returns the variance of the track's speed.
+   *
+   * @return  speed variance
+   */
+  public double getSpeedVariance() {
+    return count > 1 ? speedM2 / (count - 1) : 0;
+  }
+
+  /**
+   * Returns the standard deviation of the track's speed.
+   *
+   * @return  speed standard deviation in kilometers per hour
+   */
+  public double getSpeedStandardDeviation() {
+    return Math.sqrt(getSpeedVariance());
+  }
+
+  /**
+   * Returns the minimum speed of the track.
+   *
+   * @return  minimum speed in kilometers per hour
+   */
+  public double getSpeedMin() {
+    return speedMin;
+  }
+
+  /**
+   * Returns the maximum speed of the track.
+   *
+   * @return  maximum speed in kilometers per hour
+   */
+  public double getSpeedMax() {
+    return speedMax;
+  }
+
+  /**
+   * Returns an estimation of a speed percentile. The estimation is accurate
+   * to {@value HISTOGRAM_BUCKET_WIDTH} km/h.
+   *
+   * @param percentile  the percentile between 0 and 100 (e.g. 50 for the median)
+   * @return            the speed percentile in kilometers per hour
+   */
+  public double getSpeedPercentile(double percentile) {
+    if (count == 0) {
+      return 0;
+    }
+    double rank = Math.max(0, Math.min(100, percentile)) / 100 * count;
+    long cumulated = 0;
+    for (int i=0; i<HISTOGRAM_BUCKETS; ++i) {
+      if (speedHistogram[i] > 0 && cumulated + speedHistogram[i] >= rank) {
+        // interpolate linearly within the bucket
+        double fraction = (rank - cumulated) / speedHistogram[i];
+        double speed = (i + fraction) * HISTOGRAM_BUCKET_WIDTH;
+        return Math.max(speedMin, Math.min(speedMax, speed));
+      }
+      cumulated += speedHistogram[i];
+    }
+    return speedMax;
+  }
+
+  /**
+   * Returns the minimum altitude of the track.
+   *
+   * @return  minimum altitude in meters
+   */
+  public double getAltitudeMin() {
+    return altitudeMin;
+  }
+
+  /**
+   * Returns the maximum altitude of the track.
+   *
+   * @return  maximum altitude in meters
+   */
+  public double getAltitudeMax() {
+    return altitudeMax;
+  }
+
+  /**
+   * Returns the minimal count of satellites that where reachable during the
+   * track.
+   *
+   * @return minimal reachable satellites
+   */
+  public int getSatMin() {
+    return satMin;
+  }
+
+  /**
+   * Returns the maximum count of satellites that where reachable during the
+   * track.
+   *
+   * @return maximum reachable satellites
+   */
+  public int getSatMax() {
+    return satMax;
+  }
+
+  /**
+   * Returns the first track point of the track.
+   *
+   * @return  the first track point or <code>null</code> if the track is empty
+   */
+  public Trackpoint getFirst() {
+    return first;
+  }
+
+  /**
+   * Returns the last track point of the track.
+   *
+   * @return  the last track point or <code>null</code> if the track is empty
+   */
+  public Trackpoint getLast() {
+    return last;
+  }
+
+  /*
+   * Returns the histogram bucket of a certain speed.
+   */
+  private int getBucket(double speed) {
+    int bucket = (int )(Math.max(0, speed) / HISTOGRAM_BUCKET_WIDTH);
+    return Math.min(bucket, HISTOGRAM_BUCKETS - 1);
+  }
+}
@@ -12,13 +12,9 @@ import java.util.ArrayList;
  */
 public class Trackpath {
   private ArrayList<Trackpoint> trackpoints = new ArrayList<Trackpoint>();
+  private TrackStatistics statistics = new TrackStatistics();
+  private TrackIndex index = new TrackIndex();
   private String name = "UAV Playground";
-  private String duration = "00:00:00";
-  private double distance = 0;
-  private double vMax = 0;
-  private double vAverage = 0;
-  private int satMin = 0;
-  private int satMax = 0;
   
   /**
    * Adds a trackpoint to the track path.
@@ -26,35 +22,12 @@ public class Trackpath {
    * @param trackpoint  the track point to be added
    */
   public void addTrackpoint(Trackpoint trackpoint) {
-    int n = trackpoints.size();
-
-    if (n > 0) {
-      Trackpoint first = trackpoints.get(0);
-
-      // calculate the overall track duration
-      double diff = trackpoint.getTimestamp().getTime() - first.getTimestamp().getTime();
-      int hours = (int )(diff / (1000 * 60 * 60));
-      int minutes = (int )(diff % (1000 * 60 * 60)) / (1000 * 60);
-      int seconds = (int )((diff % (1000 * 60 * 60)) % (1000 * 60)) / 1000;
-      duration = String.format("%02d:%02d:%02d", hours, minutes, seconds);
-      trackpoint.setDuration(duration);
-      
-      // calculate the track overall distance
-      distance = GPSUtil.getDistance(first, trackpoint);
-      
-      // calculate avrage and maximum speed
-      vAverage = (vAverage + trackpoint.getGroundSpeed()) / 2;
-      vMax = Math.max(vMax, trackpoint.getGroundSpeed());
-      
-      // calculate the satellite receiving
-      satMax = Math.max(satMax, trackpoint.getSatellites());
-    }
-    else {
-      vAverage = vMax = trackpoint.getGroundSpeed();
-      satMin = satMax = trackpoint.getSatellites();
-    }
-    trackpoint.setDistance(distance);
+    // update the running statistics (constant time per track point)
+    statistics.add(trackpoint);
+    trackpoint.setDuration(statistics.getDuration());
+    trackpoint.setDistance(statistics.getDistance());
     trackpoints.add(trackpoint);
+    index.add(trackpoint);
   }
 
   /**
@@ -63,16 +36,16 @@ public class Trackpath {
    * @return  duration of the track
    */
   public String getDuration() {
-    return duration;
+    return statistics.getDuration();
   }
 
   /**
-   * Returns the overall distance of the track.
+   * Returns the overall distance along the track path.
    * 
    * @return track distance
    */
   public double getDistance() {
-    return distance;
+    return statistics.getDistance();
   }
 
   /**
@@ -81,7 +54,7 @@ public class Trackpath {
    * @return maximum track speed
    */
   public double getVMax() {
-    return vMax;
+    return statistics.getSpeedMax();
   }
 
   /**
@@ -90,7 +63,7 @@ public class Trackpath {
    * @return average track speed
    */
   public double getVAverage() {
-    return vAverage;
+    return statistics.getSpeedMean();
   }
 
   /**
@@ -100,7 +73,7 @@ public class Trackpath {
    * @return minimal reachable satellites
    */
   public int getSatMin() {
-    return satMin;
+    return statistics.getSatMin();
   }
 
   /**
@@ -110,7 +83,32 @@ public class Trackpath {
    * @return maximum reachable satellites
    */
   public int getSatMax() {
-    return satMax;
+    return statistics.getSatMax();
+  }
+
+  /**
+   * Returns the statistics of the track. Besides the values that are directly
+   * provided by the <code>Trackpath</code> it contains the speed variance and
+   * percentiles as well as the altitude range.
+   * 
+   * @return the track statistics
+   * 
+   * @see TrackStatistics
+   */
+  public TrackStatistics getStatistics() {
+    return statistics;
+  }
+
+  /**
+   * Returns the index over the track points. The index is used to find the
+   * track points of a certain time or area without iterating the whole track.
+   * 
+   * @return the track index
+   * 
+   * @see TrackIndex
+   */
+  public TrackIndex getIndex() {
+    return index;
   }
 
   /**
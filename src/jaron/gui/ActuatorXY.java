@@ -15,7 +15,7 @@ import jaron.components.SignalListener;
  * @version     1.2
  * @since       1.0
  */
-public class ActuatorXY extends Rect implements SignalListener {
+public class ActuatorXY extends Rect implements SignalListener, MouseControl {
   public Rect control;
   private Axis axisX;
   private Axis axisY;
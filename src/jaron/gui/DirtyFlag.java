@@ -0,0 +1,64 @@
+package jaron.gui;
+
+import jaron.components.SignalEvent;
+import jaron.components.SignalListener;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The <code>DirtyFlag</code> class keeps track of whether a visual component
+ * has to be redrawn. The flag is set when the component is created, when one
+ * of the signals it listens to changes and whenever <code>invalidate</code> is
+ * called (e.g. on a mouse event that changes the component's appearance).<br>
+ * A component that only draws itself if its flag is set doesn't cost any
+ * drawing time as long as nothing changes. The flag can be set by any thread,
+ * while it is usually cleared by the drawing thread.
+ *
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+public class DirtyFlag implements SignalListener {
+  private AtomicBoolean dirty = new AtomicBoolean(true);
+
+  /**
+   * Sets the flag, so the component is redrawn the next time it is drawn.
+   */
+  public void invalidate() {
+    dirty.set(true);
+  }
+
+  /**
+   * Returns the state of the flag.
+   *
+   * @return  true if the component has to be redrawn
+   */
+  public boolean isDirty() {
+    return dirty.get();
+  }
+
+  /**
+   * Clears the flag and returns its previous state. The flag is cleared before
+   * the component is drawn, so a signal change during the drawing sets the flag
+   * again and isn't lost.
+   *
+   * @return  true if the component has to be redrawn
+   */
+  public boolean clear() {
+    return dirty.getAndSet(false);
+  }
+
+  /* (non-Javadoc)
+   * @see jaron.components.SignalListener#setValue(double)
+   */
+  public void setValue(double value) {
+    invalidate();
+  }
+
+  /* (non-Javadoc)
+   * @see jaron.components.SignalListener#signalChanged(jaron.components.SignalEvent)
+   */
+  public void signalChanged(SignalEvent event) {
+    invalidate();
+  }
+}
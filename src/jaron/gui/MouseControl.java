@@ -0,0 +1,44 @@
+package jaron.gui;
+
+/**
+ * The <code>MouseControl</code> interface is implemented by the GUI controls
+ * that are operated with the mouse (e.g. a slider or a button). The mouse
+ * coordinates are passed in the coordinate system of the window.
+ *
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+public interface MouseControl {
+  /**
+   * Handles a <code>mouseDragged</code> event that occurred in the GUI.
+   *
+   * @param x     the current x value of the mouse
+   * @param y     the current y value of the mouse
+   */
+  public void mouseDragged(int x, int y);
+
+  /**
+   * Handles a <code>mouseMoved</code> event that occurred in the GUI.
+   *
+   * @param x     the current x value of the mouse
+   * @param y     the current y value of the mouse
+   */
+  public void mouseMoved(int x, int y);
+
+  /**
+   * Handles a <code>mousePressed</code> event that occurred in the GUI.
+   *
+   * @param x     the current x value of the mouse
+   * @param y     the current y value of the mouse
+   */
+  public void mousePressed(int x, int y);
+
+  /**
+   * Handles a <code>mouseReleased</code> event that occurred in the GUI.
+   *
+   * @param x     the current x value of the mouse
+   * @param y     the current y value of the mouse
+   */
+  public void mouseReleased(int x, int y);
+}
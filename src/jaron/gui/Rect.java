@@ -48,8 +48,8 @@ public class Rect {
    * @return    true if the point (x,y) is inside this rectangle; false otherwise
    */
   public Boolean contains(int x, int y) {
-    Rectangle rect = new Rectangle(left, top, width, height);
-    return rect.contains(x, y);
+    // same as java.awt.Rectangle.contains, but without creating an object
+    return width > 0 && height > 0 && x >= left && y >= top && x < left + width && y < top + height;
   }
   
   /**
@@ -2,7 +2,9 @@ package jaron.pde;
 
 import jaron.components.Signal;
 import jaron.gui.Colors;
+import jaron.gui.DirtyFlag;
 import jaron.gui.Panel;
+import jaron.gui.Rect;
 
 import processing.core.PApplet;
 import processing.core.PGraphics;
@@ -23,19 +25,22 @@ import processing.core.PGraphics;
  * @version     1.2
  * @since       1.0
  */
-public class ArtificialHorizon extends Panel {
+public class ArtificialHorizon extends Panel implements Widget {
   private static int COLOR_GROUND = Colors.BROWN;
   private static int COLOR_SKY = Colors.BLUE_LIGHT;
   private static int COLOR_PLANE = Colors.BLACK;
   private static int COLOR_INDICATOR = Colors.RED;
 
   private PApplet applet;
+  private PGraphics offscreen = null;
+  private PGraphics horizon = null;  // pre-rendered ground, sky and ground layer
   private Signal roll;
   private Signal pitch;
   private Signal elevator;
   private Signal aileron;
   private int maxDeflection = 120; // for elevator and aileron (from low to high signal)
   private Boolean debug = false;
+  private DirtyFlag dirty = new DirtyFlag();
 
   /**
    * Creates a new <code>ArtificialHorizon</code> object for the Processing Development
@@ -58,6 +63,12 @@ public class ArtificialHorizon extends Panel {
     aileron = new Signal();
     elevator.setValue(0F);
     aileron.setValue(0F);
+
+    // the horizon is redrawn when one of its inputs changes
+    roll.addSignalListener(dirty);
+    pitch.addSignalListener(dirty);
+    elevator.addSignalListener(dirty);
+    aileron.addSignalListener(dirty);
   }
 
   /**
@@ -78,8 +89,12 @@ public class ArtificialHorizon extends Panel {
    * ensures that the horizon is updated periodically.
    */
   public void draw() {
-    // prepare for 'clipping' (drawing  into an offline graphics port)
-    PGraphics pg = applet.createGraphics((int )content.getWidth(), (int )content.getHeight(), PApplet.JAVA2D);
+    // only draw if something has changed since the last frame
+    if (!dirty.clear()) return;
+
+    // prepare for 'clipping' (drawing  into an offline graphics port), the
+    // horizon layer covers the whole port, so the previous frame needn't be cleared
+    PGraphics pg = getGraphics();
     pg.beginDraw();
     
     // get the current angles for pitch and roll and convert them to radian degrees
@@ -101,25 +116,21 @@ public class ArtificialHorizon extends Panel {
     applet.stroke(Colors.STROKE);
     applet.strokeWeight(1);
 
-    // draw the horizon
-    double radius = (content.getHeight() / 2);
-    pg.pushMatrix();
-    pg.translate(0, (float )radius);
-    // draw the ground (background)
-    pg.fill(COLOR_GROUND);
-    pg.rect(0, (float )-radius, content.getWidth(), content.getHeight());
-    // draw the sky (pitch input)
-    pg.fill(COLOR_SKY);
-    if (Math.cos(pitchAngle) > 0) {
-      pg.rect(0, (float )(Math.sin(pitchAngle) * radius), content.getWidth(), -content.getHeight());
+    // draw the horizon, the pitch input only moves the pre-rendered layer
+    int height = content.getHeight();
+    float radius = (height / 2);
+    float pitchOffset = TrigTable.sin(pitchAngle) * radius;
+    if (TrigTable.cos(pitchAngle) > 0) {
+      // the sky is above the horizon line
+      pg.image(horizon, 0, radius + pitchOffset - 2 * height);
     }
     else {
-      pg.rect(0, (float )-(Math.sin(pitchAngle) * radius), content.getWidth(), content.getHeight());
+      // upside down, the ground is above the horizon line
+      pg.image(horizon, 0, radius - pitchOffset - height);
     }
-    pg.popMatrix();
     
     // draw the indicator (elevator and aileron input)
-    double elevatorOffset = Math.sin(elevatorAngle) * radius;
+    float elevatorOffset = TrigTable.sin(elevatorAngle) * radius;
     int wingLength = content.getWidth() / 4;
     int rudderHeight = wingLength / 2;
     int indicatorOversize = wingLength / 4;
@@ -127,8 +138,7 @@ public class ArtificialHorizon extends Panel {
     pg.fill(COLOR_INDICATOR);
     pg.stroke(COLOR_INDICATOR);
     pg.pushMatrix();
-    pg.translate(content.getWidth() / 2, content.getHeight() / 2 + (float )elevatorOffset);
-    pg.rotate((float )aileronAngle);
+    rotate(pg, content.getWidth() / 2, content.getHeight() / 2 + elevatorOffset, aileronAngle);
     pg.strokeWeight(3);
     pg.line(-wingLength - indicatorOversize, 0, wingLength + indicatorOversize, 0);
     pg.line(0, 0, 0, - (rudderHeight + indicatorOversize));
@@ -140,8 +150,7 @@ public class ArtificialHorizon extends Panel {
     pg.fill(COLOR_PLANE);
     pg.stroke(COLOR_PLANE);
     pg.pushMatrix();
-    pg.translate(content.getWidth() / 2, content.getHeight() / 2);
-    pg.rotate((float )rollAngle);
+    rotate(pg, content.getWidth() / 2, content.getHeight() / 2, rollAngle);
     pg.strokeWeight(3);
     pg.line(-wingLength, 0, wingLength, 0);
     pg.line(0, 0, 0, - rudderHeight);
@@ -209,6 +218,23 @@ public class ArtificialHorizon extends Panel {
     return roll;
   }
   
+  /* (non-Javadoc)
+   * @see jaron.pde.Widget#getBounds()
+   */
+  public Rect getBounds() {
+    return getFrame();
+  }
+
+  /**
+   * Marks the horizon to be redrawn on the next call of <code>draw</code>.
+   * Changes of the pitch, roll, elevator and aileron signals are tracked
+   * automatically, so this is only needed if the horizon's area on the screen
+   * was painted over.
+   */
+  public void invalidate() {
+    dirty.invalidate();
+  }
+
   /**
    * Sets the debugging flag which determines if the debugging informations should
    * be printed to the console. This is for debugging purpose only.
@@ -229,5 +255,49 @@ public class ArtificialHorizon extends Panel {
    */
   public void setMaxDeflection(int maxDeflection) {
     this.maxDeflection = maxDeflection;
+    dirty.invalidate();
+  }
+
+  /*
+   * Returns the offscreen graphics port the content is drawn into. It is
+   * allocated once and again only if the size of the content has changed,
+   * together with the pre-rendered horizon layer.
+   */
+  private PGraphics getGraphics() {
+    if (offscreen == null || offscreen.width != content.getWidth() || offscreen.height != content.getHeight()) {
+      offscreen = applet.createGraphics(content.getWidth(), content.getHeight(), PApplet.JAVA2D);
+      horizon = createHorizon(content.getWidth(), content.getHeight());
+    }
+    return offscreen;
+  }
+
+  /*
+   * Renders the static horizon layer. It is three times as high as the content
+   * (ground, sky and ground), so for any pitch angle the visible part is
+   * completely covered by it, both the right way up and upside down.
+   */
+  private PGraphics createHorizon(int width, int height) {
+    PGraphics pg = applet.createGraphics(width, 3 * height, PApplet.JAVA2D);
+    pg.beginDraw();
+    pg.noStroke();
+    pg.fill(COLOR_GROUND);
+    pg.rect(0, 0, width, 3 * height);
+    pg.stroke(COLOR_PLANE);
+    pg.strokeWeight(1);
+    pg.fill(COLOR_SKY);
+    pg.rect(0, height, width, height);
+    pg.endDraw();
+    return pg;
+  }
+
+  /*
+   * Moves the origin of a graphics port to a certain position and rotates it
+   * by a certain angle (like translate and rotate, but with the sine and the
+   * cosine taken from the TrigTable).
+   */
+  private static void rotate(PGraphics pg, float x, float y, double angle) {
+    float cos = TrigTable.cos(angle);
+    float sin = TrigTable.sin(angle);
+    pg.applyMatrix(cos, -sin, x, sin, cos, y);
   }
 }
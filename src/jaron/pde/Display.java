@@ -4,7 +4,9 @@ import processing.core.PApplet;
 
 import jaron.components.Signal;
 import jaron.gui.Colors;
+import jaron.gui.DirtyFlag;
 import jaron.gui.Panel;
+import jaron.gui.Rect;
 
 import java.util.TreeMap;
 
@@ -22,9 +24,11 @@ import java.util.TreeMap;
  * @version     1.2
  * @since       1.0
  */
-public class Display extends Panel {
+public class Display extends Panel implements Widget {
   private PApplet applet;
   private TreeMap<String, Signal> lines =  new TreeMap<String, Signal>();
+  private TreeMap<String, FixedPointFormat> formats =  new TreeMap<String, FixedPointFormat>();
+  private DirtyFlag dirty = new DirtyFlag();
 
   /**
    * Creates a new <code>Display</code> object for the Processing Development Environment
@@ -59,6 +63,9 @@ public class Display extends Panel {
    * order.
    */
   public void draw() {
+    // only draw if something has changed since the last frame
+    if (!dirty.clear()) return;
+
     // initialize the graphics environment
     applet.fill(Colors.GRAY_BACKGROUND);
     applet.stroke(Colors.STROKE);
@@ -79,7 +86,7 @@ public class Display extends Panel {
       applet.text(key, Fonts.LINE_SPACING, y);
       applet.textFont(Fonts.getFontPlain(applet), Fonts.FONT_SIZE);
       applet.textAlign(PApplet.RIGHT);
-      applet.text(String.format("%1.2f", line.getValue()), (int )content.getWidth() - Fonts.LINE_SPACING, y);
+      applet.text(formats.get(key).format(line.getValue()), (int )content.getWidth() - Fonts.LINE_SPACING, y);
       y += Fonts.LINE_HEIGHT;
     }
     applet.popMatrix();
@@ -101,6 +108,24 @@ public class Display extends Panel {
   public Signal createTextLine(String label) {
     Signal line = new Signal();
     lines.put(label, line);
+    formats.put(label, new FixedPointFormat(2));
+    line.addSignalListener(dirty);
     return line;
   }
+
+  /* (non-Javadoc)
+   * @see jaron.pde.Widget#getBounds()
+   */
+  public Rect getBounds() {
+    return getFrame();
+  }
+
+  /**
+   * Marks the display to be redrawn on the next call of <code>draw</code>.
+   * Signal changes are tracked automatically, so this is only needed if the
+   * display's area on the screen was painted over.
+   */
+  public void invalidate() {
+    dirty.invalidate();
+  }
 }
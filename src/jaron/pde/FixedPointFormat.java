@@ -0,0 +1,94 @@
+package jaron.pde;
+
+/**
+ * The <code>FixedPointFormat</code> class formats numbers with a fixed number
+ * of decimals for the on-screen readouts of the PDE components (like
+ * <code>String.format("%1.2f", value)</code>, but always with a decimal point).<br>
+ * The formatter is meant to be used for a single readout. It remembers the
+ * last value at display precision and returns the same <code>String</code> as
+ * long as the displayed text doesn't change. A new text is written into a
+ * reusable character buffer, so neither a format string is parsed nor a
+ * <code>Formatter</code> is allocated per frame.
+ *
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+public class FixedPointFormat {
+  private static final long[] POWERS_OF_TEN = {
+    1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L
+  };
+
+  private int decimals;
+  private double scale;
+  private char[] buffer = new char[32];
+  private long lastUnits = 0;
+  private String lastText = null;
+
+  /**
+   * Creates a new <code>FixedPointFormat</code> with a certain number of decimals.
+   *
+   * @param decimals  the number of decimals between 0 and 9
+   */
+  public FixedPointFormat(int decimals) {
+    this.decimals = Math.max(0, Math.min(POWERS_OF_TEN.length - 1, decimals));
+    scale = POWERS_OF_TEN[this.decimals];
+  }
+
+  /**
+   * Returns the text of a value rounded to the number of decimals. If the text
+   * is the same as the one of the previous call, the same <code>String</code>
+   * is returned without formatting the value again.
+   *
+   * @param value the value to be formatted
+   * @return      the formatted value
+   */
+  public String format(double value) {
+    double scaled = value * scale;
+    if (Double.isNaN(scaled) || Math.abs(scaled) >= Long.MAX_VALUE / 10) {
+      // out of the fixed point range (NaN, infinite or huge values)
+      lastText = null;
+      return String.valueOf(value);
+    }
+    long units = Math.round(scaled);
+    if (lastText == null || units != lastUnits) {
+      lastUnits = units;
+      lastText = toText(units);
+    }
+    return lastText;
+  }
+
+  /**
+   * Returns the number of decimals.
+   *
+   * @return  number of decimals
+   */
+  public int getDecimals() {
+    return decimals;
+  }
+
+  /*
+   * Writes the digits of a value in units of the last decimal from right to
+   * left into the buffer.
+   */
+  private String toText(long units) {
+    boolean negative = units < 0;
+    long rest = Math.abs(units);
+    int position = buffer.length;
+    for (int i=0; i<decimals; ++i) {
+      buffer[--position] = (char )('0' + (rest % 10));
+      rest /= 10;
+    }
+    if (decimals > 0) {
+      buffer[--position] = '.';
+    }
+    do {
+      buffer[--position] = (char )('0' + (rest % 10));
+      rest /= 10;
+    } while (rest > 0);
+    if (negative) {
+      buffer[--position] = '-';
+    }
+    return new String(buffer, position, buffer.length - position);
+  }
+}
@@ -1,8 +1,12 @@
 package jaron.pde;
 
 import jaron.components.Signal;
+import jaron.components.SignalEvent;
+import jaron.components.SignalListener;
 import jaron.gui.Colors;
+import jaron.gui.DirtyFlag;
 import jaron.gui.Panel;
+import jaron.gui.Rect;
 
 import java.util.Date;
 import java.util.TreeMap;
@@ -18,17 +22,28 @@ import processing.core.PGraphics;
  * Reversing the graph's is done by swapping the high and the low signal values of
  * the corresponding graph's signal.<br>
  * The graphs usually get their current amplitudes via the <code>EventListener</code>
- * mechanism as demonstrated in the example of the {@link jaron.uavsim.UAVsim}.
+ * mechanism as demonstrated in the example of the {@link jaron.uavsim.UAVsim}.<br>
+ * Every pixel column of a graph shows the minimum and the maximum value the
+ * graph's signal had during one update period (see <code>setUpdateFrequency</code>),
+ * so short spikes of fast changing signals aren't lost. The values are kept in a
+ * circular buffer and scaled when they are drawn.<br>
+ * In the fast rendering mode (see <code>setFastRendering</code>) the graphs are
+ * drawn as straight polylines through the minimum and the maximum of every
+ * column instead of curves. The component is only redrawn if one of the graphs
+ * has changed since the last frame.
  * 
  * @author      jarontec gmail com
  * @version     1.2
  * @since       1.0
  */
-public class Graph extends Panel {
+public class Graph extends Panel implements Widget {
   private PApplet applet;
+  private PGraphics offscreen = null;
   private TreeMap<String, GraphData> graphs =  new TreeMap<String, GraphData>();
   private long timer = 0;
   private int updateFrequency = 20;
+  private Boolean fastRendering = false;
+  private DirtyFlag dirty = new DirtyFlag();
 
   /**
    * Creates a new <code>Graph</code> object for the Processing Development Environment
@@ -65,14 +80,7 @@ public class Graph extends Panel {
    * @see Colors
    */
   public void addGraph(String label, int color) {
-    GraphData graph = new GraphData();
-    graph.color = color;
-    graph.label = label;
-    graph.signal = new Signal();
-    graph.data = new double[(int )content.getWidth()];
-    graphs.put(label, graph);
-
-    setLabelBottomHeight((graphs.size() * Fonts.LINE_HEIGHT) + Fonts.LINE_SPACING);
+    createGraph(label, color);
   }
   
   /**
@@ -85,12 +93,9 @@ public class Graph extends Panel {
    * @see Signal
    */
   public Signal createGraph(String label, int color) {
-    GraphData graph = new GraphData();
-    graph.color = color;
-    graph.label = label;
-    graph.signal = new Signal();
-    graph.data = new double[(int )content.getWidth()];
+    GraphData graph = new GraphData(label, color, content.getWidth());
     graphs.put(label, graph);
+    dirty.invalidate();
 
     setLabelBottomHeight((graphs.size() * Fonts.LINE_HEIGHT) + Fonts.LINE_SPACING);
     
@@ -105,7 +110,12 @@ public class Graph extends Panel {
    */
   public void draw() {
     // update the data before its drawn
-    updateData();
+    if (updateData()) dirty.invalidate();
+    for (GraphData graph : graphs.values()) {
+      if (graph.scale != getScale(graph)) dirty.invalidate();
+    }
+    // only draw if one of the graphs has changed since the last frame
+    if (!dirty.clear()) return;
 
     // initialize the graphics environment
     applet.fill(Colors.GRAY_BACKGROUND);
@@ -122,20 +132,20 @@ public class Graph extends Panel {
     applet.popMatrix();
 
     // prepare for the 'clipping' (drawing  into an offline graphics port)
-    PGraphics pg = applet.createGraphics(content.getWidth(), content.getHeight(), PConstants.JAVA2D);
+    PGraphics pg = getGraphics();
     pg.beginDraw();
+    // clear the previous frame (transparent, so the frame stays visible)
+    pg.background(0, 0);
     // draw the graphs
     pg.noFill();
     pg.pushMatrix();
     pg.translate(0, content.getHeight() / 2);
     // iterate through all the graphs
     for (GraphData graph : graphs.values()) {
-      pg.beginShape();
+      graph.scale = getScale(graph);
       pg.stroke(graph.color);
-      for (int i=0; i<graph.data.length; ++ i) {
-        pg.curveVertex(i, (float )graph.data[i]);
-      }
-      pg.endShape();
+      if (fastRendering) drawPolyline(pg, graph);
+      else drawCurve(pg, graph);
     }
     pg.popMatrix();
     // do the 'clipping' (copy the offline graphics port into the applet's graphics port) 
@@ -160,6 +170,22 @@ public class Graph extends Panel {
     applet.strokeWeight(1);
   }
   
+  /* (non-Javadoc)
+   * @see jaron.pde.Widget#getBounds()
+   */
+  public Rect getBounds() {
+    return getFrame();
+  }
+
+  /**
+   * Marks the graph component to be redrawn on the next call of <code>draw</code>.
+   * Changes of the graphs are tracked automatically, so this is only needed if
+   * the component's area on the screen was painted over.
+   */
+  public void invalidate() {
+    dirty.invalidate();
+  }
+
   /**
    * Returns the <code>Signal</code> of a certain graph. The graph is identified
    * by its label (unique key).
@@ -171,6 +197,19 @@ public class Graph extends Panel {
     return graphs.get(label).signal;
   }
   
+  /**
+   * Sets the fast rendering mode. If set to true the graphs are drawn as
+   * straight polylines through the minimum and the maximum value of every
+   * pixel column, otherwise (default) as curves. The fast rendering mode is
+   * recommended for many graphs or high frame rates.
+   * 
+   * @param flag  true if the graphs should be drawn as polylines
+   */
+  public void setFastRendering(Boolean flag) {
+    fastRendering = flag;
+    dirty.invalidate();
+  }
+
   /**
    * Sets the frequency on which the graphs should be updated. By default
    * the frequency is set to 20Hz.
@@ -182,34 +221,147 @@ public class Graph extends Panel {
   }
   
   /*
-   * Internally used to update the graphs data.
+   * Returns the offscreen graphics port the content is drawn into. It is
+   * allocated once and again only if the size of the content has changed.
+   */
+  private PGraphics getGraphics() {
+    if (offscreen == null || offscreen.width != content.getWidth() || offscreen.height != content.getHeight()) {
+      offscreen = applet.createGraphics(content.getWidth(), content.getHeight(), PConstants.JAVA2D);
+    }
+    return offscreen;
+  }
+
+  /*
+   * Returns the factor that scales the values of a graph to the content's height.
+   */
+  private double getScale(GraphData graph) {
+    return -((content.getHeight()-2) / 2) / (graph.signal.getBandwidth() / 2);
+  }
+
+  /*
+   * Draws a graph as a curve through the last values of the columns and the
+   * envelope of the columns as vertical lines.
    */
-  private void updateData() {
+  private void drawCurve(PGraphics pg, GraphData graph) {
+    int length = graph.values.length;
+    pg.beginShape();
+    // the most recent value is drawn on the left
+    for (int i=0, j=graph.head; i<length; ++ i) {
+      j = (j == 0 ? length : j) - 1;
+      pg.curveVertex(i, (float )(graph.values[j] * graph.scale));
+    }
+    pg.endShape();
+    // draw the envelope of the values that changed during an update period
+    for (int i=0, j=graph.head; i<length; ++ i) {
+      j = (j == 0 ? length : j) - 1;
+      if (graph.min[j] < graph.max[j]) {
+        pg.line(i, (float )(graph.min[j] * graph.scale), i, (float )(graph.max[j] * graph.scale));
+      }
+    }
+  }
+
+  /*
+   * Draws a graph as a single polyline. A column with an envelope adds its
+   * maximum and its minimum, so the envelope is part of the polyline.
+   */
+  private void drawPolyline(PGraphics pg, GraphData graph) {
+    int length = graph.values.length;
+    pg.beginShape();
+    // the most recent value is drawn on the left
+    for (int i=0, j=graph.head; i<length; ++ i) {
+      j = (j == 0 ? length : j) - 1;
+      if (graph.min[j] < graph.max[j]) {
+        pg.vertex(i, (float )(graph.max[j] * graph.scale));
+        pg.vertex(i, (float )(graph.min[j] * graph.scale));
+      }
+      else {
+        pg.vertex(i, (float )(graph.values[j] * graph.scale));
+      }
+    }
+    pg.endShape();
+  }
+
+  /*
+   * Internally used to update the graphs data. Returns true if the data of one
+   * of the graphs has changed.
+   */
+  private boolean updateData() {
+    boolean changed = false;
     Date currentTime = new Date();
 
     // ensure that the graph's data is updated based on a certain frequency
     if (currentTime.getTime() - timer >= (1000 / updateFrequency)) {
       // iterate through all the graphs
       for (GraphData graph : graphs.values()) {
-        // shift the graph's data to the left and update the current value
-        for (int i=graph.data.length-1; i>0; -- i) {
-          graph.data[i] = graph.data[i-1];
-        }
-        graph.data[0] = (float )(-((content.getHeight()-2) / 2) * graph.signal.getValue() / (graph.signal.getBandwidth() / 2));
+        if (graph.addColumn()) changed = true;
       }
       // reset the timer
       timer = currentTime.getTime();
     }
+    return changed;
   }
 
   /*
-   * The GraphData class is an internally used container.
+   * The GraphData class is an internally used container. It listens to the
+   * graph's signal and collects the minimum, the maximum and the last value of
+   * the current update period, which are added to the circular buffer as a new
+   * column on every update.
    */
-  private class GraphData {
+  private class GraphData implements SignalListener {
     private int color;
     private String label;
     private Signal signal;
-    private double[] data;
+    private double[] values;
+    private double[] min;
+    private double[] max;
+    private int head = 0; // position of the next column
+    private int steady; // number of recent columns that are equal to the last one
+    private double scale = 0; // the scale the graph was drawn with
+    private double sampleLast = 0;
+    private double sampleMin = 0;
+    private double sampleMax = 0;
+    private boolean sampled = false;
+
+    private GraphData(String label, int color, int width) {
+      this.label = label;
+      this.color = color;
+      values = new double[width];
+      min = new double[width];
+      max = new double[width];
+      steady = width;
+      signal = new Signal();
+      signal.addSignalListener(this);
+    }
+
+    public void signalChanged(SignalEvent event) {
+      setValue(event.getValue());
+    }
+
+    public synchronized void setValue(double value) {
+      if (sampled) {
+        sampleMin = Math.min(sampleMin, value);
+        sampleMax = Math.max(sampleMax, value);
+      }
+      else {
+        sampleMin = sampleMax = value;
+        sampled = true;
+      }
+      sampleLast = value;
+    }
 
+    private synchronized boolean addColumn() {
+      if (values.length == 0) return false;
+      // the drawn graph only stays the same if all the columns are equal
+      boolean same = !(sampled && sampleMin < sampleMax) && sampleLast == values[(head == 0 ? values.length : head) - 1];
+      boolean changed = !same || steady < values.length;
+      steady = same ? Math.min(steady + 1, values.length) : 1;
+      // without a new value the column shows the last value
+      values[head] = sampleLast;
+      min[head] = sampled ? sampleMin : sampleLast;
+      max[head] = sampled ? sampleMax : sampleLast;
+      head = (head + 1) % values.length;
+      sampled = false;
+      return changed;
+    }
   }
 }
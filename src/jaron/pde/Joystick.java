@@ -2,6 +2,7 @@ package jaron.pde;
 
 import jaron.gui.ActuatorXY;
 import jaron.gui.Colors;
+import jaron.gui.DirtyFlag;
 import jaron.gui.Panel;
 import jaron.gui.Rect;
 
@@ -17,11 +18,14 @@ import processing.core.PApplet;
  * @version     1.2
  * @since       1.0
  */
-public class Joystick extends ActuatorXY {
+public class Joystick extends ActuatorXY implements Widget {
   private PApplet applet;
   private String labelX;
   private String labelY;
   private Panel panel;
+  private DirtyFlag dirty = new DirtyFlag();
+  private FixedPointFormat formatX = new FixedPointFormat(2);
+  private FixedPointFormat formatY = new FixedPointFormat(2);
 
   /**
    * Creates a new <code>Joystick</code> object for the Processing Development
@@ -46,6 +50,10 @@ public class Joystick extends ActuatorXY {
     panel.setContent(this);
     panel.setLabelBottomHeight(Fonts.LINE_HEIGHT + Fonts.LINE_SPACING);
     panel.setLabelRightWidth(Fonts.LINE_HEIGHT + Fonts.LINE_SPACING);
+
+    // the joystick is redrawn when one of its values changes
+    getSignalX().addSignalListener(dirty);
+    getSignalY().addSignalListener(dirty);
   }
 
   /**
@@ -94,6 +102,9 @@ public class Joystick extends ActuatorXY {
    * ensures that the joystick is updated periodically.
    */
   public void draw() {
+    // only draw if something has changed since the last frame
+    if (!dirty.clear()) return;
+
     // get the panel's rectangles for easy access
     Rect frame = panel.getFrame();
     Rect content = panel.getContent();
@@ -171,7 +182,7 @@ public class Joystick extends ActuatorXY {
     // draw the label's value
     applet.textFont(Fonts.getFontPlain(applet), Fonts.FONT_SIZE);
     applet.textAlign(PApplet.RIGHT);
-    applet.text(String.format("%1.2f", getValueX()), content.getWidth() - Fonts.LINE_SPACING, Fonts.LINE_HEIGHT);
+    applet.text(formatX.format(getValueX()), content.getWidth() - Fonts.LINE_SPACING, Fonts.LINE_HEIGHT);
     applet.popMatrix();
 
     // draw the right label (y-axis)
@@ -186,7 +197,7 @@ public class Joystick extends ActuatorXY {
     // draw the labesl's value
     applet.textFont(Fonts.getFontPlain(applet), Fonts.FONT_SIZE);
     applet.textAlign(PApplet.RIGHT);
-    applet.text(String.format("%1.2f", getValueY()), panel.labelRight.getHeight() - Fonts.LINE_SPACING, Fonts.LINE_HEIGHT);
+    applet.text(formatY.format(getValueY()), panel.labelRight.getHeight() - Fonts.LINE_SPACING, Fonts.LINE_HEIGHT);
     applet.popMatrix();
 
     // restore the graphics environment
@@ -195,6 +206,56 @@ public class Joystick extends ActuatorXY {
     applet.strokeWeight(1);
   }
 
+  /* (non-Javadoc)
+   * @see jaron.pde.Widget#getBounds()
+   */
+  public Rect getBounds() {
+    return panel.getFrame();
+  }
+
+  /**
+   * Marks the joystick to be redrawn on the next call of <code>draw</code>. Signal
+   * changes and mouse events are tracked automatically, so this is only needed
+   * if the joystick's area on the screen was painted over.
+   */
+  public void invalidate() {
+    dirty.invalidate();
+  }
+
+  /* (non-Javadoc)
+   * @see jaron.gui.ActuatorXY#mouseMoved(int, int)
+   */
+  @Override
+  public void mouseMoved(int x, int y) {
+    Boolean state = isMouseOver();
+    super.mouseMoved(x, y);
+    // the control is highlighted while the mouse is over it
+    if (!state.equals(isMouseOver())) dirty.invalidate();
+  }
+
+  /* (non-Javadoc)
+   * @see jaron.gui.ActuatorXY#mousePressed(int, int)
+   */
+  @Override
+  public void mousePressed(int x, int y) {
+    Boolean state = isMousePressed();
+    super.mousePressed(x, y);
+    // the control is highlighted while it is pressed
+    if (!state.equals(isMousePressed())) dirty.invalidate();
+  }
+
+  /* (non-Javadoc)
+   * @see jaron.gui.ActuatorXY#mouseReleased(int, int)
+   */
+  @Override
+  public void mouseReleased(int x, int y) {
+    Boolean pressed = isMousePressed();
+    Boolean over = isMouseOver();
+    super.mouseReleased(x, y);
+    // the control is highlighted while it is pressed or the mouse is over it
+    if (!pressed.equals(isMousePressed()) || !over.equals(isMouseOver())) dirty.invalidate();
+  }
+
   /**
    * Sets the joystick's label for the x axis. The label is a short description
    * of the x axis' function.
@@ -203,6 +264,7 @@ public class Joystick extends ActuatorXY {
    */
   public void setLabelX(String label) {
     this.labelX = label;
+    dirty.invalidate();
   }
 
   /**
@@ -213,5 +275,6 @@ public class Joystick extends ActuatorXY {
    */
   public void setLabelY(String label) {
     this.labelX = label;
+    dirty.invalidate();
   }
 }
@@ -1,6 +1,7 @@
 package jaron.pde;
 
 import jaron.gui.Colors;
+import jaron.gui.DirtyFlag;
 import jaron.gui.Rect;
 import processing.core.PApplet;
 
@@ -12,7 +13,7 @@ import processing.core.PApplet;
  * @version     1.2
  * @since       1.2
  */
-public class Label {
+public class Label implements Widget {
   /**
    * Text alignment.
    */
@@ -29,6 +30,7 @@ public class Label {
   private int colorBackground = Colors.GRAY_BACKGROUND;
   private int colorText = Colors.BLACK;
   private String text;
+  private DirtyFlag dirty = new DirtyFlag();
 
   /**
    * Creates a new <code>Label</code> object for the Processing Development Environment
@@ -69,6 +71,7 @@ public class Label {
    */
   public void setColorBackground(int colorBackground) {
     this.colorBackground = colorBackground;
+    dirty.invalidate();
   }
 
   /**
@@ -80,6 +83,7 @@ public class Label {
    */
   public void setColorFrame(int colorFrame) {
     this.colorFrame = colorFrame;
+    dirty.invalidate();
   }
 
   /**
@@ -91,6 +95,7 @@ public class Label {
    */
   public void setColorText(int colorText) {
     this.colorText = colorText;
+    dirty.invalidate();
   }
 
   /**
@@ -104,6 +109,7 @@ public class Label {
    */
   public void setTextOrientation(int textOrientation) {
     this.textOrientation = textOrientation;
+    dirty.invalidate();
   }
 
   /**
@@ -112,6 +118,7 @@ public class Label {
    */
   public void setThicknessFrame(int thicknessFrame) {
     this.thicknessFrame = thicknessFrame;
+    dirty.invalidate();
   }
 
   /**
@@ -119,6 +126,9 @@ public class Label {
    * the <code>draw</code> method of the Processing Development Environment.
    */
   public void draw() {
+    // only draw if something has changed since the last frame
+    if (!dirty.clear()) return;
+
     // draw the frame
     applet.fill(colorBackground);
     applet.stroke(colorFrame);
@@ -140,4 +150,19 @@ public class Label {
     applet.text(text, Fonts.LINE_SPACING, Fonts.LINE_HEIGHT);
     applet.popMatrix();
   }
+
+  /* (non-Javadoc)
+   * @see jaron.pde.Widget#getBounds()
+   */
+  public Rect getBounds() {
+    return frame;
+  }
+
+  /**
+   * Marks the label to be redrawn on the next call of <code>draw</code>. This
+   * is only needed if the label's area on the screen was painted over.
+   */
+  public void invalidate() {
+    dirty.invalidate();
+  }
 }
\ No newline at end of file
@@ -2,7 +2,10 @@ package jaron.pde;
 
 import jaron.components.Signal;
 import jaron.gui.Colors;
+import jaron.gui.DirtyFlag;
+import jaron.gui.MouseControl;
 import jaron.gui.Panel;
+import jaron.gui.Rect;
 
 import java.awt.geom.Rectangle2D;
 
@@ -22,12 +25,13 @@ import processing.core.PApplet;
  * @version     1.2
  * @since       1.0
  */
-public class RadioButton extends Signal {
+public class RadioButton extends Signal implements Widget, MouseControl {
   protected PApplet applet;
   protected Panel panel;
   protected String label = "";
   protected Boolean mousePressed = false;
   protected Boolean mouseOver = false;
+  protected DirtyFlag dirty = new DirtyFlag();
   
   /**
    * Creates a new <code>RadioButton</code> object for the Processing Development
@@ -48,6 +52,9 @@ public class RadioButton extends Signal {
     setValue(getLow()); // default state is OFF
     panel = new Panel(left, top, width, height);
     panel.setLabelBottomHeight(Fonts.LINE_HEIGHT + Fonts.LINE_SPACING);
+
+    // the button is redrawn when it is switched
+    addSignalListener(dirty);
   }
   
   /**
@@ -95,6 +102,9 @@ public class RadioButton extends Signal {
    * ensures that the button is updated periodically.
    */
   public void draw() {
+    // only draw if something has changed since the last frame
+    if (!dirty.clear()) return;
+
     // initialize the graphics environment
     applet.fill(Colors.GRAY_BACKGROUND);
     applet.stroke(Colors.STROKE);
@@ -128,6 +138,22 @@ public class RadioButton extends Signal {
     applet.strokeWeight(1);
   }
   
+  /* (non-Javadoc)
+   * @see jaron.pde.Widget#getBounds()
+   */
+  public Rect getBounds() {
+    return panel.getFrame();
+  }
+
+  /**
+   * Marks the button to be redrawn on the next call of <code>draw</code>. Signal
+   * changes and mouse events are tracked automatically, so this is only needed
+   * if the button's area on the screen was painted over.
+   */
+  public void invalidate() {
+    dirty.invalidate();
+  }
+
   /**
    * Returns true if the mouse is hovering over the butten.
    * 
@@ -137,6 +163,16 @@ public class RadioButton extends Signal {
     return mouseOver;
   }
   
+  /**
+   * Handles a <code>mouseDragged</code> event that occurred in the GUI. The
+   * button doesn't react on dragging.
+   * 
+   * @param x     the current x value of the mouse
+   * @param y     the current y value of the mouse
+   */
+  public void mouseDragged(int x, int y) {
+  }
+
   /**
    * Handles a <code>mouseMoved</code> event that occurred in the GUI.<br>
    * This method should usually be called from the <code>mouseMoved</code> method of
@@ -147,12 +183,15 @@ public class RadioButton extends Signal {
    * @param y     the current y value of the mouse
    */
   public void mouseMoved(int x, int y) {
+    Boolean state = mouseOver;
     if (panel.content.contains(x, y)) {
       mouseOver = true;
     }
     else {
       mouseOver = false;
     }
+    // the button is highlighted while the mouse is over it
+    if (!state.equals(mouseOver)) dirty.invalidate();
   }
 
   /**
@@ -199,6 +238,7 @@ public class RadioButton extends Signal {
    */
   public void setLabel(String label) {
     this.label = label;
+    dirty.invalidate();
   }
   
   /**
@@ -2,9 +2,12 @@ package jaron.pde;
 
 import jaron.components.Signal;
 import jaron.gui.Colors;
+import jaron.gui.DirtyFlag;
 import jaron.gui.Panel;
+import jaron.gui.Rect;
 
 import processing.core.PApplet;
+import processing.core.PGraphics;
 
 /**
  * The <code>Servo</code> class provides a virtual servo for the Processing
@@ -107,11 +110,15 @@ void mouseMoved() {
  * @version     1.2
  * @since       1.0
  */
-public class Servo extends Signal {
+public class Servo extends Signal implements Widget {
   private PApplet applet;
   private String label = "";
   private int maxDeflection = 120; // max. degrees from full left to full right
   private Panel panel;
+  private DirtyFlag dirty = new DirtyFlag();
+  private FixedPointFormat format = new FixedPointFormat(3);
+  private PGraphics caseLayer = null;   // pre-rendered servo case
+  private PGraphics labelLayer = null;  // pre-rendered label frame and text
 
   /**
    * Creates a new <code>Servo</code> object for the Processing Development
@@ -131,6 +138,9 @@ public class Servo extends Signal {
     setValue(0);
     panel = new Panel(left, top, width, height);
     panel.setLabelBottomHeight((2 * Fonts.LINE_HEIGHT) + Fonts.LINE_SPACING);
+
+    // the servo is redrawn when its value changes
+    addSignalListener(dirty);
   }
 
   /**
@@ -178,14 +188,19 @@ public class Servo extends Signal {
    * ensures that the servo is updated periodically.
    */
   public void draw() {
+    // only draw if something has changed since the last frame
+    if (!dirty.clear()) return;
+
     // initialize the graphics environment
     applet.fill(Colors.GRAY_BACKGROUND);
     applet.stroke(Colors.STROKE);
     applet.strokeWeight(1);
     
     // servo case
-    applet.fill(Colors.COMPONENT);
-    applet.rect(panel.frame.getLeft(), panel.frame.getTop(), panel.frame.getWidth(), panel.frame.getHeight());
+    if (caseLayer == null || labelLayer == null) {
+      createLayers();
+    }
+    applet.image(caseLayer, panel.frame.getLeft(), panel.frame.getTop());
 
     // calculate servo horn deflection in radian degree
     double radius = Math.min(panel.content.getWidth(), panel.content.getHeight()) / 2;
@@ -197,8 +212,9 @@ public class Servo extends Signal {
     // servo horn rotated by the current deflection
     applet.fill(Colors.GRAY_BACKGROUND);
     applet.pushMatrix();
-    applet.translate((float )(panel.content.getLeft() + radius), (float )(panel.content.getTop() + radius));
-    applet.rotate((float )angle);
+    float cos = TrigTable.cos(angle);
+    float sin = TrigTable.sin(angle);
+    applet.applyMatrix(cos, -sin, (float )(panel.content.getLeft() + radius), sin, cos, (float )(panel.content.getTop() + radius));
     applet.ellipse(0, 0, (float)(radius * 2.3d), (float )(radius * 2.3d));
     applet.ellipse(0, 0, (float)(radius / 2.5d), (float)(radius / 2.5d));
     applet.fill(Colors.RED);
@@ -210,20 +226,14 @@ public class Servo extends Signal {
     applet.popMatrix();
 
     // draw the bottom label
+    applet.image(labelLayer, panel.labelBottom.getLeft(), panel.labelBottom.getTop());
     applet.pushMatrix();
     applet.translate(panel.labelBottom.getLeft(), panel.labelBottom.getTop());
-    // draw the label's frame
-    applet.fill(Colors.GRAY_BACKGROUND);
-    applet.rect(0, 0, panel.labelBottom.getWidth(), panel.labelBottom.getHeight());
-    // draw the label's text
-    applet.fill(Colors.TEXT);
-    applet.textFont(Fonts.getFontBold(applet), Fonts.FONT_SIZE);
-    applet.textAlign(PApplet.RIGHT);
-    applet.text(label, panel.labelBottom.getWidth() - Fonts.LINE_SPACING, Fonts.LINE_HEIGHT);
     // draw the labesl's value
+    applet.fill(Colors.TEXT);
     applet.textFont(Fonts.getFontPlain(applet), Fonts.FONT_SIZE);
     applet.textAlign(PApplet.RIGHT);
-    applet.text(String.format("%1.3f", getValue()), panel.labelBottom.getWidth() - Fonts.LINE_SPACING, 2 * Fonts.LINE_HEIGHT);
+    applet.text(format.format(getValue()), panel.labelBottom.getWidth() - Fonts.LINE_SPACING, 2 * Fonts.LINE_HEIGHT);
     applet.popMatrix();
 
     // restore the graphics environment
@@ -232,6 +242,22 @@ public class Servo extends Signal {
     applet.strokeWeight(1);
   }
 
+  /* (non-Javadoc)
+   * @see jaron.pde.Widget#getBounds()
+   */
+  public Rect getBounds() {
+    return panel.getFrame();
+  }
+
+  /**
+   * Marks the servo to be redrawn on the next call of <code>draw</code>. Changes
+   * of the servo's value are tracked automatically, so this is only needed if
+   * the servo's area on the screen was painted over.
+   */
+  public void invalidate() {
+    dirty.invalidate();
+  }
+
   /**
    * Sets the servos's label that is displayed at the bottom the servo.
    * 
@@ -239,6 +265,8 @@ public class Servo extends Signal {
    */
   public void setLabel(String label) {
     this.label = label;
+    labelLayer = null;
+    dirty.invalidate();
   }
 
   /**
@@ -249,5 +277,36 @@ public class Servo extends Signal {
    */
   public void setMaxDeflection(int maxDeflection) {
     this.maxDeflection = maxDeflection;
+    dirty.invalidate();
+  }
+
+  /*
+   * Renders the static parts of the servo (the case and the label with its
+   * frame and text) into images, so they are only copied on every frame.
+   */
+  private void createLayers() {
+    Rect frame = panel.getFrame();
+    caseLayer = applet.createGraphics(frame.getWidth() + 1, frame.getHeight() + 1, PApplet.JAVA2D);
+    caseLayer.beginDraw();
+    caseLayer.stroke(Colors.STROKE);
+    caseLayer.strokeWeight(1);
+    caseLayer.fill(Colors.COMPONENT);
+    caseLayer.rect(0, 0, frame.getWidth(), frame.getHeight());
+    caseLayer.endDraw();
+
+    Rect labelBottom = panel.getLabelBottom();
+    labelLayer = applet.createGraphics(labelBottom.getWidth() + 1, labelBottom.getHeight() + 1, PApplet.JAVA2D);
+    labelLayer.beginDraw();
+    // draw the label's frame
+    labelLayer.stroke(Colors.STROKE);
+    labelLayer.strokeWeight(1);
+    labelLayer.fill(Colors.GRAY_BACKGROUND);
+    labelLayer.rect(0, 0, labelBottom.getWidth(), labelBottom.getHeight());
+    // draw the label's text
+    labelLayer.fill(Colors.TEXT);
+    labelLayer.textFont(Fonts.getFontBold(applet), Fonts.FONT_SIZE);
+    labelLayer.textAlign(PApplet.RIGHT);
+    labelLayer.text(label, labelBottom.getWidth() - Fonts.LINE_SPACING, Fonts.LINE_HEIGHT);
+    labelLayer.endDraw();
   }
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import jaron.components.Signal;
 import jaron.components.SignalListener;
 import jaron.gui.ActuatorXY;
 import jaron.gui.Colors;
+import jaron.gui.DirtyFlag;
 import jaron.gui.Panel;
 import jaron.gui.Rect;
 
@@ -19,10 +20,12 @@ import processing.core.PApplet;
  * @version     1.2
  * @since       1.0
  */
-public class Slider extends ActuatorXY {
+public class Slider extends ActuatorXY implements Widget {
   PApplet applet;
   String label;
   private Panel panel;
+  private DirtyFlag dirty = new DirtyFlag();
+  private FixedPointFormat format = new FixedPointFormat(2);
 
   /**
    * Creates a new <code>Slider</code> object for the Processing Development
@@ -49,6 +52,9 @@ public class Slider extends ActuatorXY {
     // resize the control to fit the content width and lock the x axis
     setControlSize(panel.content.getWidth(), panel.content.getWidth());
     setLockedX(true);
+
+    // the slider is redrawn when its value changes
+    getSignalY().addSignalListener(dirty);
   }
 
   /**
@@ -108,6 +114,9 @@ public class Slider extends ActuatorXY {
    * ensures that the slider is updated periodically.
    */
   public void draw() {
+    // only draw if something has changed since the last frame
+    if (!dirty.clear()) return;
+
     // get the panel's rectangles for easy access
     Rect frame = panel.getFrame();
     Rect content = panel.getContent();
@@ -157,7 +166,7 @@ public class Slider extends ActuatorXY {
     // draw the labesl's value
     applet.textFont(Fonts.getFontPlain(applet), Fonts.FONT_SIZE);
     applet.textAlign(PApplet.RIGHT);
-    applet.text(String.format("%1.2f", getValueY()), panel.labelBottom.getWidth() - Fonts.LINE_SPACING, Fonts.LINE_HEIGHT);
+    applet.text(format.format(getValueY()), panel.labelBottom.getWidth() - Fonts.LINE_SPACING, Fonts.LINE_HEIGHT);
     applet.popMatrix();
 
     // restore the graphics environment
@@ -177,6 +186,56 @@ public class Slider extends ActuatorXY {
     return getSignalY();
   }
 
+  /* (non-Javadoc)
+   * @see jaron.pde.Widget#getBounds()
+   */
+  public Rect getBounds() {
+    return panel.getFrame();
+  }
+
+  /**
+   * Marks the slider to be redrawn on the next call of <code>draw</code>. Signal
+   * changes and mouse events are tracked automatically, so this is only needed
+   * if the slider's area on the screen was painted over.
+   */
+  public void invalidate() {
+    dirty.invalidate();
+  }
+
+  /* (non-Javadoc)
+   * @see jaron.gui.ActuatorXY#mouseMoved(int, int)
+   */
+  @Override
+  public void mouseMoved(int x, int y) {
+    Boolean state = isMouseOver();
+    super.mouseMoved(x, y);
+    // the control is highlighted while the mouse is over it
+    if (!state.equals(isMouseOver())) dirty.invalidate();
+  }
+
+  /* (non-Javadoc)
+   * @see jaron.gui.ActuatorXY#mousePressed(int, int)
+   */
+  @Override
+  public void mousePressed(int x, int y) {
+    Boolean state = isMousePressed();
+    super.mousePressed(x, y);
+    // the control is highlighted while it is pressed
+    if (!state.equals(isMousePressed())) dirty.invalidate();
+  }
+
+  /* (non-Javadoc)
+   * @see jaron.gui.ActuatorXY#mouseReleased(int, int)
+   */
+  @Override
+  public void mouseReleased(int x, int y) {
+    Boolean pressed = isMousePressed();
+    Boolean over = isMouseOver();
+    super.mouseReleased(x, y);
+    // the control is highlighted while it is pressed or the mouse is over it
+    if (!pressed.equals(isMousePressed()) || !over.equals(isMouseOver())) dirty.invalidate();
+  }
+
   /**
    * Sets the slider's label that is displayed at the right side.
    * 
@@ -185,6 +244,7 @@ public class Slider extends ActuatorXY {
    */
   public void setLabel(String label) {
     this.label = label;
+    dirty.invalidate();
   }
   
   /**
@@ -0,0 +1,60 @@
+package jaron.pde;
+
+/**
+ * The <code>TrigTable</code> class provides the sine and the cosine of angles
+ * from a precomputed table. The angles are rounded to buckets of
+ * 1/{@value BUCKETS_PER_DEGREE} degree, which is far below a pixel for the
+ * size of the PDE instruments, but saves the evaluation of the trigonometric
+ * functions on every frame.
+ *
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+public final class TrigTable {
+  /**
+   * The number {@value BUCKETS_PER_DEGREE} of table entries per degree.
+   */
+  public static final int BUCKETS_PER_DEGREE = 10;
+
+  private static final int SIZE = 360 * BUCKETS_PER_DEGREE;
+  private static final float[] SIN = new float[SIZE];
+
+  static {
+    for (int i=0; i<SIZE; ++i) {
+      SIN[i] = (float )Math.sin(Math.toRadians((double )i / BUCKETS_PER_DEGREE));
+    }
+  }
+
+  private TrigTable() {
+  }
+
+  /**
+   * Returns the sine of an angle.
+   *
+   * @param angle the angle in radians
+   * @return      the sine of the angle's bucket
+   */
+  public static float sin(double angle) {
+    return SIN[getBucket(angle)];
+  }
+
+  /**
+   * Returns the cosine of an angle.
+   *
+   * @param angle the angle in radians
+   * @return      the cosine of the angle's bucket
+   */
+  public static float cos(double angle) {
+    // cos(a) = sin(a + 90 degrees)
+    return SIN[(getBucket(angle) + 90 * BUCKETS_PER_DEGREE) % SIZE];
+  }
+
+  /*
+   * Returns the table index of an angle.
+   */
+  private static int getBucket(double angle) {
+    long bucket = Math.round(Math.toDegrees(angle) * BUCKETS_PER_DEGREE) % SIZE;
+    return (int )(bucket < 0 ? bucket + SIZE : bucket);
+  }
+}
@@ -0,0 +1,32 @@
+package jaron.pde;
+
+import jaron.gui.Rect;
+
+/**
+ * The <code>Widget</code> interface is implemented by the visual components
+ * of the Processing Development Environment (PDE) package, so they can be
+ * managed by a <code>WidgetRegistry</code>.
+ *
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ * @see         WidgetRegistry
+ */
+public interface Widget {
+  /**
+   * Draws the component to the screen.
+   */
+  public void draw();
+
+  /**
+   * Returns the area of the screen that is covered by the component.
+   *
+   * @return  the <code>Rect</code> that encloses the component
+   */
+  public Rect getBounds();
+
+  /**
+   * Marks the component to be redrawn on the next call of <code>draw</code>.
+   */
+  public void invalidate();
+}
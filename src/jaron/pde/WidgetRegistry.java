@@ -0,0 +1,265 @@
+package jaron.pde;
+
+import jaron.gui.MouseControl;
+import jaron.gui.Rect;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * The <code>WidgetRegistry</code> class manages the visual components of a
+ * Processing Development Environment (PDE) application. It draws the
+ * components in the order they were added and routes the mouse events to the
+ * controls.<br>
+ * The bounds of the components are kept in a grid of square cells (spatial
+ * index), so a mouse event is only passed to the control under the mouse
+ * pointer instead of to every control. Once a control has been pressed it
+ * captures the mouse, it receives all the <code>mouseDragged</code> events and
+ * the <code>mouseReleased</code> event even if the pointer has left its bounds.
+ * If components overlap, the one that was added last (drawn on top) receives
+ * the mouse events.<br>
+ * <br>
+ * Example:<br>
+ * <pre>
+ * WidgetRegistry widgets = new WidgetRegistry();
+ * widgets.add(new Slider(this, "Gain", 40, 170));
+ * ...
+ * // in the draw method
+ * widgets.draw();
+ * // in the mousePressed method
+ * widgets.mousePressed(mouseX, mouseY);
+ * </pre>
+ *
+ * @author      jarontec gmail com
+ * @version     1.3
+ * @since       1.3
+ */
+public class WidgetRegistry {
+  /**
+   * The default edge length {@value DEFAULT_CELL_SIZE} of the grid cells in pixels.
+   */
+  public static final int DEFAULT_CELL_SIZE = 50;
+
+  private int cellSize = DEFAULT_CELL_SIZE;
+  private ArrayList<Entry> entries = new ArrayList<Entry>();
+  private HashMap<Long, ArrayList<Entry>> cells = new HashMap<Long, ArrayList<Entry>>();
+  private Entry captured = null;  // the control that was pressed
+  private Entry hovered = null;   // the control that received the last mouseMoved event
+
+  /**
+   * Creates a new <code>WidgetRegistry</code> with a certain grid cell size.
+   *
+   * @param cellSize  the edge length of the grid cells in pixels
+   */
+  public WidgetRegistry(int cellSize) {
+    this.cellSize = Math.max(1, cellSize);
+  }
+
+  /**
+   * Creates a new <code>WidgetRegistry</code> with the default grid cell size
+   * of {@value DEFAULT_CELL_SIZE} pixels.
+   */
+  public WidgetRegistry() {
+    this(DEFAULT_CELL_SIZE);
+  }
+
+  /**
+   * Adds a component to the registry. The components are drawn in the order
+   * they are added. If the component implements the <code>MouseControl</code>
+   * interface it receives the mouse events within its bounds.
+   *
+   * @param widget  the component to be added
+   */
+  public void add(Widget widget) {
+    Entry entry = new Entry(widget);
+    entries.add(entry);
+    if (entry.control != null) {
+      index(entry);
+    }
+  }
+
+  /**
+   * Draws all the components in the order they were added. This method should
+   * usually be called from the <code>draw</code> method of the PDE.
+   */
+  public void draw() {
+    for (int i=0; i<entries.size(); ++i) {
+      entries.get(i).widget.draw();
+    }
+  }
+
+  /**
+   * Marks all the components to be redrawn on the next call of
+   * <code>draw</code> (e.g. after the background has been painted over).
+   */
+  public void invalidate() {
+    for (int i=0; i<entries.size(); ++i) {
+      entries.get(i).widget.invalidate();
+    }
+  }
+
+  /**
+   * Rebuilds the spatial index. This is only needed if components have been
+   * moved or resized after they were added.
+   */
+  public void reindex() {
+    cells.clear();
+    for (Entry entry : entries) {
+      if (entry.control != null) {
+        index(entry);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of components.
+   *
+   * @return  number of components
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns the control at a certain position.
+   *
+   * @param x     the x coordinate
+   * @param y     the y coordinate
+   * @return      the topmost control whose bounds contain the position or
+   *              <code>null</code> if there is none
+   */
+  public MouseControl getControlAt(int x, int y) {
+    Entry entry = find(x, y);
+    return entry != null ? entry.control : null;
+  }
+
+  /**
+   * Passes a <code>mouseDragged</code> event to the control that captured the
+   * mouse. This method should usually be called from the
+   * <code>mouseDragged</code> method of the PDE.
+   *
+   * @param x     the current x value of the mouse
+   * @param y     the current y value of the mouse
+   */
+  public void mouseDragged(int x, int y) {
+    if (captured != null) {
+      captured.control.mouseDragged(x, y);
+    }
+  }
+
+  /**
+   * Passes a <code>mouseMoved</code> event to the control under the mouse
+   * pointer. The control the pointer has just left receives the event as well,
+   * so it can reset its state (e.g. a highlighting). This method should
+   * usually be called from the <code>mouseMoved</code> method of the PDE.
+   *
+   * @param x     the current x value of the mouse
+   * @param y     the current y value of the mouse
+   */
+  public void mouseMoved(int x, int y) {
+    Entry entry = find(x, y);
+    if (hovered != null && hovered != entry) {
+      hovered.control.mouseMoved(x, y);
+    }
+    if (entry != null) {
+      entry.control.mouseMoved(x, y);
+    }
+    hovered = entry;
+  }
+
+  /**
+   * Passes a <code>mousePressed</code> event to the control under the mouse
+   * pointer, which captures the mouse until it is released. This method should
+   * usually be called from the <code>mousePressed</code> method of the PDE.
+   *
+   * @param x     the current x value of the mouse
+   * @param y     the current y value of the mouse
+   */
+  public void mousePressed(int x, int y) {
+    captured = find(x, y);
+    if (captured != null) {
+      captured.control.mousePressed(x, y);
+    }
+  }
+
+  /**
+   * Passes a <code>mouseReleased</code> event to the control that captured the
+   * mouse and, if it is a different one, to the control under the mouse
+   * pointer. This method should usually be called from the
+   * <code>mouseReleased</code> method of the PDE.
+   *
+   * @param x     the current x value of the mouse
+   * @param y     the current y value of the mouse
+   */
+  public void mouseReleased(int x, int y) {
+    Entry entry = find(x, y);
+    if (captured != null) {
+      captured.control.mouseReleased(x, y);
+    }
+    if (entry != null && entry != captured) {
+      entry.control.mouseReleased(x, y);
+    }
+    captured = null;
+  }
+
+  /*
+   * Adds a control to all the grid cells that are touched by its bounds.
+   */
+  private void index(Entry entry) {
+    Rect bounds = entry.widget.getBounds();
+    if (bounds.getWidth() <= 0 || bounds.getHeight() <= 0) return;
+    int left = Math.floorDiv(bounds.getLeft(), cellSize);
+    int top = Math.floorDiv(bounds.getTop(), cellSize);
+    int right = Math.floorDiv(bounds.getLeft() + bounds.getWidth() - 1, cellSize);
+    int bottom = Math.floorDiv(bounds.getTop() + bounds.getHeight() - 1, cellSize);
+    for (int cy=top; cy<=bottom; ++cy) {
+      for (int cx=left; cx<=right; ++cx) {
+        Long key = getKey(cx, cy);
+        ArrayList<Entry> cell = cells.get(key);
+        if (cell == null) {
+          cell = new ArrayList<Entry>();
+          cells.put(key, cell);
+        }
+        cell.add(entry);
+      }
+    }
+  }
+
+  /*
+   * Returns the topmost control whose bounds contain a position. Only the
+   * controls of the grid cell that contains the position are tested.
+   */
+  private Entry find(int x, int y) {
+    ArrayList<Entry> cell = cells.get(getKey(Math.floorDiv(x, cellSize), Math.floorDiv(y, cellSize)));
+    if (cell == null) return null;
+    // the entries of a cell are in drawing order, the last one is on top
+    for (int i=cell.size()-1; i>=0; --i) {
+      Entry entry = cell.get(i);
+      if (entry.widget.getBounds().contains(x, y)) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  /*
+   * Returns the key of a grid cell.
+   */
+  private static Long getKey(int cx, int cy) {
+    return ((long )cy << 32) | (cx & 0xffffffffL);
+  }
+
+  /*
+   * The Entry class is an internally used container for a registered component
+   * and its mouse control interface (if it has one).
+   */
+  private static class Entry {
+    private Widget widget;
+    private MouseControl control;
+
+    private Entry(Widget widget) {
+      this.widget = widget;
+      this.control = widget instanceof MouseControl ? (MouseControl )widget : null;
+    }
+  }
+}
@@ -4,8 +4,15 @@ import jaron.autopilot.FlightData;
 import jaron.autopilot.FlightGearGpsReceiver;
 import jaron.autopilot.FlightGearMotionSensor;
 import jaron.autopilot.FlightGearServoController;
+import jaron.autopilot.FrameListener;
 import jaron.autopilot.MissionController;
 import jaron.autopilot.MotionController;
+import jaron.autopilot.NavigationEstimator;
+import jaron.components.SignalCoalescer;
+import jaron.components.SignalGraph;
+import jaron.components.SignalMux;
+import jaron.components.SignalSnapshot;
+import jaron.dashboard.TelemetryServer;
 import jaron.google.GoogleEarthKMLProvider;
 import jaron.gui.Colors;
 import jaron.pde.ArtificialHorizon;
@@ -15,6 +22,7 @@ import jaron.pde.Joystick;
 import jaron.pde.Label;
 import jaron.pde.RadioButton;
 import jaron.pde.Slider;
+import jaron.pde.WidgetRegistry;
 
 import processing.core.PApplet;
 
@@ -44,6 +52,11 @@ public class UAVsim extends PApplet {
   static final int WINDOW_HEIGHT = 710;
   static final int FRAME_RATE = 30;
 
+  // The mission controller, the motion controller and the servos are evaluated
+  // once per sensor packet on the thread of the motion sensor (instead of by
+  // threads of their own)
+  static final Boolean SYNCHRONOUS_FRAMES = true;
+
   // Stabilization PID processor default settings
   static final double PITCH_P = 2.0f;
   static final double PITCH_I = 0.3f;
@@ -59,6 +72,12 @@ public class UAVsim extends PApplet {
   static final double NAVIGATION_I = 0.01f;
   static final double NAVIGATION_D = 0.2f;
   static final double NAVIGATION_M = 1.0f;
+
+  // The roll angle preset is either level (stabilize) or set by the mission
+  // controller (navigate, go home), a mode switch is blended over a second
+  static final int ROLL_PRESET_LEVEL = 0;
+  static final int ROLL_PRESET_MISSION = 1;
+  static final double ROLL_PRESET_BLEND_TIME = 1.0f;
   
   // The navigation coordinates (edit here)
   double home[] = {37.613631, -122.357389};
@@ -75,11 +94,24 @@ public class UAVsim extends PApplet {
   FlightGearGpsReceiver gpsReceiver;
   MissionController missionController;
   MotionController motionController;
+  NavigationEstimator navigationEstimator;
+  SignalMux rollPresetMux;
+  // The connections between the autopilot components
+  SignalGraph autopilotGraph;
 
   // This component is used to visualize the mission in Google Earth
   GoogleEarthKMLProvider googleEarth;
+
+  // These components merge the flight data for remote observers and stream
+  // it to the web browser dashboard
+  SignalCoalescer telemetry;
+  TelemetryServer dashboard;
   
-  // The PDE GUI components
+  // The flight data is passed to the GUI components once per frame
+  SignalSnapshot guiSnapshot;
+
+  // The PDE GUI components are drawn and receive the mouse events through the registry
+  WidgetRegistry widgets;
   Label labelFlightData;
   Label labelStabilization;
   Label labelNavigation;
@@ -127,6 +159,7 @@ public class UAVsim extends PApplet {
     setupAutopilot();
     setupMission();
     setupGoogleEarth();
+    setupDashboard();
     setupUserInterface();
   }
 
@@ -137,50 +170,56 @@ public class UAVsim extends PApplet {
   public void setupAutopilot() {
     // The flight data component
     flightData = new FlightData();
+    // The components are connected through the flight data, the connections
+    // are compiled into direct dispatch plans at the end of the setup
+    autopilotGraph = new SignalGraph();
     
     // Setup the motion sensor(s)
     motionSensor = new FlightGearMotionSensor();
     // Motion sensor(s) output data
-    motionSensor.getPitchAngle().addSignalListener(flightData.getPitchAngle());
-    motionSensor.getRollAngle().addSignalListener(flightData.getRollAngle());
-    motionSensor.getAirSpeed().addSignalListener(flightData.getAirSpeed());
-    motionSensor.getVerticalSpeed().addSignalListener(flightData.getVerticalSpeed());
-    motionSensor.getPitchAngularRate().addSignalListener(flightData.getPitchAngularRate());
-    motionSensor.getRollAngularRate().addSignalListener(flightData.getRollAngularRate());
-    motionSensor.getYawAngularRate().addSignalListener(flightData.getYawAngularRate());
+    motionSensor.getMotion().addVectorSignalListener(flightData.getMotion());
 
     // Setup the GPS receiver
     gpsReceiver = new FlightGearGpsReceiver();
     // GPS receiver output data
-    gpsReceiver.getLatitude().addSignalListener(flightData.getLatitude());
-    gpsReceiver.getLongitude().addSignalListener(flightData.getLongitude());
-    gpsReceiver.getCourseOverGround().addSignalListener(flightData.getCourseOverGround());
-    gpsReceiver.getSpeedOverGround().addSignalListener(flightData.getSpeedOverGround());
-    gpsReceiver.getAltitudeAbsolute().addSignalListener(flightData.getAltitudeAbsolute());
-    gpsReceiver.getSatellites().addSignalListener(flightData.getSatellites());
+    autopilotGraph.connect(gpsReceiver.getAltitudeAbsolute(), flightData.getAltitudeAbsolute());
+    autopilotGraph.connect(gpsReceiver.getSatellites(), flightData.getSatellites());
+
+    // Setup the navigation estimator, it dead-reckons the position and the
+    // course per sensor packet and corrects them with every GPS fix
+    navigationEstimator = new NavigationEstimator();
+    gpsReceiver.getPosition().addVectorSignalListener(navigationEstimator);
+    motionSensor.addFrameListener(navigationEstimator);
+    // Navigation estimator input data
+    flightData.getMotion().addVectorSignalListener(navigationEstimator.getMotion());
+    // Navigation estimator output data
+    autopilotGraph.connect(navigationEstimator.getLatitude(), flightData.getLatitude());
+    autopilotGraph.connect(navigationEstimator.getLongitude(), flightData.getLongitude());
+    autopilotGraph.connect(navigationEstimator.getCourseOverGround(), flightData.getCourseOverGround());
+    autopilotGraph.connect(navigationEstimator.getSpeedOverGround(), flightData.getSpeedOverGround());
     
     // Setup the actuators/servos
-    servoController = new FlightGearServoController();
+    servoController = new FlightGearServoController(FlightGearServoController.DEFAULT_IP, FlightGearServoController.DEFAULT_PORT, SYNCHRONOUS_FRAMES);
     // Actuator input data
-    flightData.getAileronOutput().addSignalListener(servoController.getAileron());
-    flightData.getElevatorOutput().addSignalListener(servoController.getElevator());
-    flightData.getRudderOutput().addSignalListener(servoController.getRudder());
-    flightData.getThrottleOutput().addSignalListener(servoController.getThrottle());
+    autopilotGraph.connect(flightData.getAileronOutput(), servoController.getAileron());
+    autopilotGraph.connect(flightData.getElevatorOutput(), servoController.getElevator());
+    autopilotGraph.connect(flightData.getRudderOutput(), servoController.getRudder());
+    autopilotGraph.connect(flightData.getThrottleOutput(), servoController.getThrottle());
     
     // Setup the motion controller
-    motionController = new MotionController();
+    motionController = new MotionController(SYNCHRONOUS_FRAMES);
     // Motion controller input data
-    flightData.getAileronInput().addSignalListener(motionController.getAileronInput());
-    flightData.getElevatorInput().addSignalListener(motionController.getElevatorInput());
-    flightData.getPitchAngle().addSignalListener(motionController.getPitchAngle());
-    flightData.getRollAngle().addSignalListener(motionController.getRollAngle());
-    flightData.getPitchAnglePreset().addSignalListener(motionController.getPitchAnglePreset());
-    flightData.getRollAnglePreset().addSignalListener(motionController.getRollAnglePreset());
-    flightData.getPitchTrim().addSignalListener(motionController.getPitchTrim());
-    flightData.getRollTrim().addSignalListener(motionController.getRollTrim());
+    autopilotGraph.connect(flightData.getAileronInput(), motionController.getAileronInput());
+    autopilotGraph.connect(flightData.getElevatorInput(), motionController.getElevatorInput());
+    autopilotGraph.connect(flightData.getPitchAngle(), motionController.getPitchAngle());
+    autopilotGraph.connect(flightData.getRollAngle(), motionController.getRollAngle());
+    autopilotGraph.connect(flightData.getPitchAnglePreset(), motionController.getPitchAnglePreset());
+    autopilotGraph.connect(flightData.getRollAnglePreset(), motionController.getRollAnglePreset());
+    autopilotGraph.connect(flightData.getPitchTrim(), motionController.getPitchTrim());
+    autopilotGraph.connect(flightData.getRollTrim(), motionController.getRollTrim());
     // Motion controller output data
-    motionController.getAileronOutput().addSignalListener(flightData.getAileronOutput());
-    motionController.getElevatorOutput().addSignalListener(flightData.getElevatorOutput());
+    autopilotGraph.connect(motionController.getAileronOutput(), flightData.getAileronOutput());
+    autopilotGraph.connect(motionController.getElevatorOutput(), flightData.getElevatorOutput());
     // Motion controller pitch an roll PID presets
     motionController.getPitchMaxI().setValue(PITCH_M);
     motionController.getPitchMinI().setValue(-PITCH_M);
@@ -194,16 +233,20 @@ public class UAVsim extends PApplet {
     motionController.getRollGainD().setValue(ROLL_D);
     
     // Setup the mission controller
-    missionController = new MissionController();
+    missionController = new MissionController(SYNCHRONOUS_FRAMES);
     // Mission controller input data
-    flightData.getLatitude().addSignalListener(missionController.getLatitude());
-    flightData.getLongitude().addSignalListener(missionController.getLongitude());
-    flightData.getCourseOverGround().addSignalListener(missionController.getCourseOverGround());
-    flightData.getSpeedOverGround().addSignalListener(missionController.getSpeedOverGround());
+    autopilotGraph.connect(flightData.getLatitude(), missionController.getLatitude());
+    autopilotGraph.connect(flightData.getLongitude(), missionController.getLongitude());
+    autopilotGraph.connect(flightData.getCourseOverGround(), missionController.getCourseOverGround());
+    autopilotGraph.connect(flightData.getSpeedOverGround(), missionController.getSpeedOverGround());
     // Mission controller output data
-    missionController.getTargetCourse().addSignalListener(flightData.getTargetCourse());
-    missionController.getPitchAnglePreset().addSignalListener(flightData.getPitchAnglePreset());
-    missionController.getRollAnglePreset().addSignalListener(flightData.getRollAnglePreset());
+    autopilotGraph.connect(missionController.getTargetCourse(), flightData.getTargetCourse());
+    autopilotGraph.connect(missionController.getPitchAnglePreset(), flightData.getPitchAnglePreset());
+    // the roll angle preset passes a multiplexer that is switched by the modes
+    rollPresetMux = new SignalMux(2);
+    rollPresetMux.setBlendTime(ROLL_PRESET_BLEND_TIME);
+    autopilotGraph.connect(missionController.getRollAnglePreset(), rollPresetMux.getInput(ROLL_PRESET_MISSION));
+    autopilotGraph.connect(rollPresetMux.getOutput(), flightData.getRollAnglePreset());
     // Mission controller course PID presets
     missionController.getCourseMaxI().setValue(NAVIGATION_M);
     missionController.getCourseMinI().setValue(-NAVIGATION_M);
@@ -211,7 +254,26 @@ public class UAVsim extends PApplet {
     missionController.getCourseGainI().setValue(NAVIGATION_I);
     missionController.getCourseGainD().setValue(NAVIGATION_D);
     // Mission controller current waypoint index
-    missionController.getCurrentWaypoint().addSignalListener(flightData.getCurrentWaypointIndex());
+    autopilotGraph.connect(missionController.getCurrentWaypoint(), flightData.getCurrentWaypointIndex());
+
+    // Every sensor packet updates the navigation estimator, the mission
+    // controller, the roll preset handover, the motion controller and then
+    // the servos
+    if (SYNCHRONOUS_FRAMES) {
+      motionSensor.addFrameListener(missionController);
+    }
+    motionSensor.addFrameListener(new FrameListener() {
+      public void frameCompleted(long frame) {
+        rollPresetMux.update();
+      }
+    });
+    if (SYNCHRONOUS_FRAMES) {
+      motionSensor.addFrameListener(motionController);
+      motionSensor.addFrameListener(servoController);
+    }
+
+    // Activate the connections
+    autopilotGraph.compile();
   }
   
   /**
@@ -245,11 +307,47 @@ public class UAVsim extends PApplet {
     googleEarth.setWritePlacemaks(false);
     gpsReceiver.addTrackpointListener(googleEarth);
   }
+
+  /**
+   * Setup the telemetry server that streams the flight data to the web
+   * browser dashboard (http://localhost:8081/).
+   */
+  public void setupDashboard() {
+    // The flight data is merged into 20 frames per second
+    telemetry = new SignalCoalescer(20);
+    telemetry.addChannel("Pitch", flightData.getMotion(), FlightGearMotionSensor.INDEX_PITCH_ANGLE);
+    telemetry.addChannel("Roll", flightData.getMotion(), FlightGearMotionSensor.INDEX_ROLL_ANGLE);
+    telemetry.addChannel("Elevator", flightData.getElevatorOutput(), SignalCoalescer.MEAN);
+    telemetry.addChannel("Aileron", flightData.getAileronOutput(), SignalCoalescer.MEAN);
+    telemetry.addChannel("Rudder", flightData.getRudderOutput(), SignalCoalescer.MEAN);
+    telemetry.addChannel("Throttle", flightData.getThrottleOutput());
+    telemetry.addChannel("Airspeed [km/h]", flightData.getMotion(), FlightGearMotionSensor.INDEX_AIR_SPEED, SignalCoalescer.MEAN);
+    telemetry.addChannel("Vert. speed [m/s]", flightData.getMotion(), FlightGearMotionSensor.INDEX_VERTICAL_SPEED, SignalCoalescer.MEAN);
+    telemetry.addChannel("Pitch rate [deg/sec]", flightData.getMotion(), FlightGearMotionSensor.INDEX_PITCH_ANGULAR_RATE, SignalCoalescer.MEAN);
+    telemetry.addChannel("Roll rate [deg/sec]", flightData.getMotion(), FlightGearMotionSensor.INDEX_ROLL_ANGULAR_RATE, SignalCoalescer.MEAN);
+    telemetry.addChannel("Yaw rate [deg/sec]", flightData.getMotion(), FlightGearMotionSensor.INDEX_YAW_ANGULAR_RATE, SignalCoalescer.MEAN);
+    telemetry.addChannel("Altitude (GPS)", flightData.getAltitudeAbsolute());
+    telemetry.addChannel("Course", flightData.getCourseOverGround());
+    telemetry.addChannel("Course to target", flightData.getTargetCourse());
+    telemetry.addChannel("Latitude", flightData.getLatitude());
+    telemetry.addChannel("Longitude", flightData.getLongitude());
+    telemetry.addChannel("Speed [km/h]", flightData.getSpeedOverGround());
+    telemetry.addChannel("Target waypoint ID", flightData.getCurrentWaypointIndex());
+    telemetry.addChannel("Frame latency [ms]", motionSensor.getFrameLatency(), SignalCoalescer.MAX);
+
+    // The dashboard receives at most 10 of the frames per second
+    dashboard = new TelemetryServer(telemetry, TelemetryServer.DEFAULT_PORT);
+    dashboard.setFrameRate(10);
+  }
   
   /**
    * Setup the user interface.
    */
   public void setupUserInterface() {
+    // The GUI components don't listen to the flight data directly, they are
+    // updated with a snapshot of the flight data on the PDE thread
+    guiSnapshot = new SignalSnapshot();
+
     // Setup the labels that describe the panel's functionallity
     labelFlightData = new Label(this, "Flight Data", 10, 10, 20, 150);
     labelFlightData.setColorBackground(Colors.GRAY_DARK);
@@ -274,22 +372,22 @@ public class UAVsim extends PApplet {
 
     // Setup the artificial horizon and connect it to the flight data
     artificialHorizon = new ArtificialHorizon(this, 40, 10);
-    flightData.getPitchAngle().addSignalListener(artificialHorizon.getPitch());
-    flightData.getElevatorOutput().addSignalListener(artificialHorizon.getElevator());
-    flightData.getRollAngle().addSignalListener(artificialHorizon.getRoll());
-    flightData.getAileronOutput().addSignalListener(artificialHorizon.getAileron());
+    guiSnapshot.connect(flightData.getMotion(), FlightGearMotionSensor.INDEX_PITCH_ANGLE, artificialHorizon.getPitch());
+    guiSnapshot.connect(flightData.getElevatorOutput(), artificialHorizon.getElevator());
+    guiSnapshot.connect(flightData.getMotion(), FlightGearMotionSensor.INDEX_ROLL_ANGLE, artificialHorizon.getRoll());
+    guiSnapshot.connect(flightData.getAileronOutput(), artificialHorizon.getAileron());
 
     // Setup a display and connect it to the flight data
     flightDataDisplay = new Display(this, 200, 10, 200, 150);
-    flightData.getAirSpeed().addSignalListener(flightDataDisplay.createTextLine("Airspeed [km/h]"));
-    flightData.getAltitudeAbsolute().addSignalListener(flightDataDisplay.createTextLine("Altitude (barom.) [m]"));
-    flightData.getPitchAngle().addSignalListener(flightDataDisplay.createTextLine("Pitch [deg]"));
-    flightData.getPitchAngularRate().addSignalListener(flightDataDisplay.createTextLine("Pitch rate [deg/sec]"));
-    flightData.getRollAngle().addSignalListener(flightDataDisplay.createTextLine("Roll [deg]"));
-    flightData.getRollAngularRate().addSignalListener(flightDataDisplay.createTextLine("Roll rate [deg/sec]"));
-    flightData.getThrottleOutput().addSignalListener(flightDataDisplay.createTextLine("Throttle"));
-    flightData.getVerticalSpeed().addSignalListener(flightDataDisplay.createTextLine("Vert. speed [m/s]"));
-    flightData.getYawAngularRate().addSignalListener(flightDataDisplay.createTextLine("Yaw rate [deg/sec]"));
+    guiSnapshot.connect(flightData.getMotion(), FlightGearMotionSensor.INDEX_AIR_SPEED, flightDataDisplay.createTextLine("Airspeed [km/h]"));
+    guiSnapshot.connect(flightData.getAltitudeAbsolute(), flightDataDisplay.createTextLine("Altitude (barom.) [m]"));
+    guiSnapshot.connect(flightData.getMotion(), FlightGearMotionSensor.INDEX_PITCH_ANGLE, flightDataDisplay.createTextLine("Pitch [deg]"));
+    guiSnapshot.connect(flightData.getMotion(), FlightGearMotionSensor.INDEX_PITCH_ANGULAR_RATE, flightDataDisplay.createTextLine("Pitch rate [deg/sec]"));
+    guiSnapshot.connect(flightData.getMotion(), FlightGearMotionSensor.INDEX_ROLL_ANGLE, flightDataDisplay.createTextLine("Roll [deg]"));
+    guiSnapshot.connect(flightData.getMotion(), FlightGearMotionSensor.INDEX_ROLL_ANGULAR_RATE, flightDataDisplay.createTextLine("Roll rate [deg/sec]"));
+    guiSnapshot.connect(flightData.getThrottleOutput(), flightDataDisplay.createTextLine("Throttle"));
+    guiSnapshot.connect(flightData.getMotion(), FlightGearMotionSensor.INDEX_VERTICAL_SPEED, flightDataDisplay.createTextLine("Vert. speed [m/s]"));
+    guiSnapshot.connect(flightData.getMotion(), FlightGearMotionSensor.INDEX_YAW_ANGULAR_RATE, flightDataDisplay.createTextLine("Yaw rate [deg/sec]"));
 
     // Setup the sliders for the pitch PID gains
     pitchGainP = new Slider(this, "Pitch Gain-P", 40, 170);
@@ -345,8 +443,8 @@ public class UAVsim extends PApplet {
     graphPitch.getSignal(kLabelPitch).setBandwidth(45, -45);
     graphPitch.addGraph(kLabelElevator, Colors.RED);
     // Connect the pitch graph to the flight data
-    flightData.getPitchAngle().addSignalListener(graphPitch.getSignal(kLabelPitch));
-    flightData.getElevatorOutput().addSignalListener(graphPitch.getSignal(kLabelElevator));
+    guiSnapshot.connect(flightData.getMotion(), FlightGearMotionSensor.INDEX_PITCH_ANGLE, graphPitch.getSignal(kLabelPitch));
+    guiSnapshot.connect(flightData.getElevatorOutput(), graphPitch.getSignal(kLabelElevator));
 
     // Setup a graph to display the roll angle and the aileron output
     String kLabelRoll = "Roll angle";
@@ -356,8 +454,8 @@ public class UAVsim extends PApplet {
     graphRoll.getSignal(kLabelRoll).setBandwidth(-45, 45);
     graphRoll.addGraph(kLabelAileron, Colors.RED);
     // Connect the roll graph to the flight data
-    flightData.getRollAngle().addSignalListener(graphRoll.getSignal(kLabelRoll));
-    flightData.getAileronOutput().addSignalListener(graphRoll.getSignal(kLabelAileron));
+    guiSnapshot.connect(flightData.getMotion(), FlightGearMotionSensor.INDEX_ROLL_ANGLE, graphRoll.getSignal(kLabelRoll));
+    guiSnapshot.connect(flightData.getAileronOutput(), graphRoll.getSignal(kLabelAileron));
     
     // Setup the sliders for the course PID gains
     courseGainP = new Slider(this, "Course Gain-P", 40, 430, 40, 120);
@@ -384,13 +482,13 @@ public class UAVsim extends PApplet {
     
     // Mission data display
     missionDisplay = new Display(this, 250, 430, 150, 120);
-    flightData.getAltitudeAbsolute().addSignalListener(missionDisplay.createTextLine("Altitude (GPS)"));
-    flightData.getCourseOverGround().addSignalListener(missionDisplay.createTextLine("Course"));
-    flightData.getTargetCourse().addSignalListener(missionDisplay.createTextLine("Course to target"));
-    flightData.getLatitude().addSignalListener(missionDisplay.createTextLine("Latitude"));
-    flightData.getLongitude().addSignalListener(missionDisplay.createTextLine("Longitude"));
-    flightData.getSpeedOverGround().addSignalListener(missionDisplay.createTextLine("Speed [km/h]"));
-    flightData.getCurrentWaypointIndex().addSignalListener(missionDisplay.createTextLine("Target waypoint ID"));
+    guiSnapshot.connect(flightData.getAltitudeAbsolute(), missionDisplay.createTextLine("Altitude (GPS)"));
+    guiSnapshot.connect(flightData.getCourseOverGround(), missionDisplay.createTextLine("Course"));
+    guiSnapshot.connect(flightData.getTargetCourse(), missionDisplay.createTextLine("Course to target"));
+    guiSnapshot.connect(flightData.getLatitude(), missionDisplay.createTextLine("Latitude"));
+    guiSnapshot.connect(flightData.getLongitude(), missionDisplay.createTextLine("Longitude"));
+    guiSnapshot.connect(flightData.getSpeedOverGround(), missionDisplay.createTextLine("Speed [km/h]"));
+    guiSnapshot.connect(flightData.getCurrentWaypointIndex(), missionDisplay.createTextLine("Target waypoint ID"));
 
     // On/off switch for the autopilot navigation modus
     switchNavigation = new RadioButton(this, "Navigate", 40, 610) {
@@ -399,9 +497,11 @@ public class UAVsim extends PApplet {
         switchStabilize.switchOn();
         switchHome.switchOff();
         missionController.startMission();
+        rollPresetMux.select(ROLL_PRESET_MISSION);
       }
       @Override public void switchOff() {
         super.switchOff();
+        rollPresetMux.select(ROLL_PRESET_LEVEL);
         missionController.stopMission();
       }
     };
@@ -413,9 +513,11 @@ public class UAVsim extends PApplet {
         switchNavigation.switchOff();
         switchStabilize.switchOn();
         missionController.goHome();
+        rollPresetMux.select(ROLL_PRESET_MISSION);
       }
       @Override public void switchOff() {
         super.switchOff();
+        rollPresetMux.select(ROLL_PRESET_LEVEL);
         missionController.stopMission();
       }
     };
@@ -424,6 +526,7 @@ public class UAVsim extends PApplet {
     switchStabilize = new RadioButton(this, "Stabilize", 40, 560) {
       @Override public void switchOn() {
         super.switchOn();
+        rollPresetMux.select(ROLL_PRESET_LEVEL);
         missionController.stopMission();
         motionController.startStabilizing();
       }
@@ -460,6 +563,37 @@ public class UAVsim extends PApplet {
     stickRight.addListenerX(flightData.getAileronInput());
     stickRight.addListenerY(flightData.getElevatorInput());
 
+    // Register the GUI components in drawing order
+    widgets = new WidgetRegistry();
+    widgets.add(labelFlightData);
+    widgets.add(labelStabilization);
+    widgets.add(labelNavigation);
+    widgets.add(labelControls);
+    widgets.add(artificialHorizon);
+    widgets.add(flightDataDisplay);
+    widgets.add(pitchGainP);
+    widgets.add(pitchGainI);
+    widgets.add(pitchGainD);
+    widgets.add(pitchMaxI);
+    widgets.add(pitchMinI);
+    widgets.add(rollGainP);
+    widgets.add(rollGainI);
+    widgets.add(rollGainD);
+    widgets.add(rollMaxI);
+    widgets.add(rollMinI);
+    widgets.add(graphPitch);
+    widgets.add(graphRoll);
+    widgets.add(courseGainP);
+    widgets.add(courseGainI);
+    widgets.add(courseGainD);
+    widgets.add(courseMaxI);
+    widgets.add(courseMinI);
+    widgets.add(missionDisplay);
+    widgets.add(switchStabilize);
+    widgets.add(switchNavigation);
+    widgets.add(switchHome);
+    widgets.add(stickRight);
+    widgets.add(stickLeft);
   }
 
   /**
@@ -468,35 +602,10 @@ public class UAVsim extends PApplet {
    * @see processing.core.PApplet#draw()
    */
   public void draw() {
-    labelFlightData.draw();
-    labelStabilization.draw();
-    labelNavigation.draw();
-    labelControls.draw();
-    artificialHorizon.draw();
-    flightDataDisplay.draw();
-    pitchGainP.draw();
-    pitchGainI.draw();
-    pitchGainD.draw();
-    pitchMaxI.draw();
-    pitchMinI.draw();
-    rollGainP.draw();
-    rollGainI.draw();
-    rollGainD.draw();
-    rollMaxI.draw();
-    rollMinI.draw();
-    graphPitch.draw();
-    graphRoll.draw();
-    courseGainP.draw();
-    courseGainI.draw();
-    courseGainD.draw();
-    courseMaxI.draw();
-    courseMinI.draw();
-    missionDisplay.draw();
-    switchStabilize.draw();
-    switchNavigation.draw();
-    switchHome.draw();
-    stickRight.draw();
-    stickLeft.draw();
+    // update the GUI components with the current flight data
+    guiSnapshot.sample();
+
+    widgets.draw();
   }
 
   /**
@@ -505,28 +614,7 @@ public class UAVsim extends PApplet {
    * @see processing.core.PApplet#mouseDragged()
    */
   public void mouseDragged() {
-    stickRight.mouseDragged(mouseX, mouseY);
-    stickLeft.mouseDragged(mouseX, mouseY);
-    pitchMaxI.mouseDragged(mouseX, mouseY);
-    pitchMinI.mouseDragged(mouseX, mouseY);
-    pitchGainP.mouseDragged(mouseX, mouseY);
-    pitchGainI.mouseDragged(mouseX, mouseY);
-    pitchGainD.mouseDragged(mouseX, mouseY);
-    rollMaxI.mouseDragged(mouseX, mouseY);
-    rollMinI.mouseDragged(mouseX, mouseY);
-    rollGainP.mouseDragged(mouseX, mouseY);
-    rollGainI.mouseDragged(mouseX, mouseY);
-    rollGainD.mouseDragged(mouseX, mouseY);
-    courseMaxI.draw();
-    courseMinI.draw();
-    courseGainP.draw();
-    courseGainI.draw();
-    courseGainD.draw();
-    courseMaxI.mouseDragged(mouseX, mouseY);
-    courseMinI.mouseDragged(mouseX, mouseY);
-    courseGainP.mouseDragged(mouseX, mouseY);
-    courseGainI.mouseDragged(mouseX, mouseY);
-    courseGainD.mouseDragged(mouseX, mouseY);
+    widgets.mouseDragged(mouseX, mouseY);
   }
 
   /**
@@ -535,26 +623,7 @@ public class UAVsim extends PApplet {
    * @see processing.core.PApplet#mousePressed()
    */
   public void mousePressed() {
-    stickRight.mousePressed(mouseX, mouseY);
-    stickLeft.mousePressed(mouseX, mouseY);
-    pitchMaxI.mousePressed(mouseX, mouseY);
-    pitchMinI.mousePressed(mouseX, mouseY);
-    pitchGainP.mousePressed(mouseX, mouseY);
-    pitchGainI.mousePressed(mouseX, mouseY);
-    pitchGainD.mousePressed(mouseX, mouseY);
-    rollMaxI.mousePressed(mouseX, mouseY);
-    rollMinI.mousePressed(mouseX, mouseY);
-    rollGainP.mousePressed(mouseX, mouseY);
-    rollGainI.mousePressed(mouseX, mouseY);
-    rollGainD.mousePressed(mouseX, mouseY);
-    courseMaxI.mousePressed(mouseX, mouseY);
-    courseMinI.mousePressed(mouseX, mouseY);
-    courseGainP.mousePressed(mouseX, mouseY);
-    courseGainI.mousePressed(mouseX, mouseY);
-    courseGainD.mousePressed(mouseX, mouseY);
-    switchStabilize.mousePressed(mouseX, mouseY);
-    switchNavigation.mousePressed(mouseX, mouseY);
-    switchHome.mousePressed(mouseX, mouseY);
+    widgets.mousePressed(mouseX, mouseY);
   }
 
   /**
@@ -563,26 +632,7 @@ public class UAVsim extends PApplet {
    * @see processing.core.PApplet#mouseReleased()
    */
   public void mouseReleased() {
-    stickRight.mouseReleased(mouseX, mouseY);
-    stickLeft.mouseReleased(mouseX, mouseY);
-    pitchMaxI.mouseReleased(mouseX, mouseY);
-    pitchMinI.mouseReleased(mouseX, mouseY);
-    pitchGainP.mouseReleased(mouseX, mouseY);
-    pitchGainI.mouseReleased(mouseX, mouseY);
-    pitchGainD.mouseReleased(mouseX, mouseY);
-    rollMaxI.mouseReleased(mouseX, mouseY);
-    rollMinI.mouseReleased(mouseX, mouseY);
-    rollGainP.mouseReleased(mouseX, mouseY);
-    rollGainI.mouseReleased(mouseX, mouseY);
-    rollGainD.mouseReleased(mouseX, mouseY);
-    courseMaxI.mouseReleased(mouseX, mouseY);
-    courseMinI.mouseReleased(mouseX, mouseY);
-    courseGainP.mouseReleased(mouseX, mouseY);
-    courseGainI.mouseReleased(mouseX, mouseY);
-    courseGainD.mouseReleased(mouseX, mouseY);
-    switchStabilize.mouseReleased(mouseX, mouseY);
-    switchNavigation.mouseReleased(mouseX, mouseY);
-    switchHome.mouseReleased(mouseX, mouseY);
+    widgets.mouseReleased(mouseX, mouseY);
   }
 
   /**
@@ -591,26 +641,7 @@ public class UAVsim extends PApplet {
    * @see processing.core.PApplet#mouseMoved()
    */
   public void mouseMoved() {
-    stickRight.mouseMoved(mouseX, mouseY);
-    stickLeft.mouseMoved(mouseX, mouseY);
-    pitchMaxI.mouseMoved(mouseX, mouseY);
-    pitchMinI.mouseMoved(mouseX, mouseY);
-    pitchGainP.mouseMoved(mouseX, mouseY);
-    pitchGainI.mouseMoved(mouseX, mouseY);
-    pitchGainD.mouseMoved(mouseX, mouseY);
-    rollMaxI.mouseMoved(mouseX, mouseY);
-    rollMinI.mouseMoved(mouseX, mouseY);
-    rollGainP.mouseMoved(mouseX, mouseY);
-    rollGainI.mouseMoved(mouseX, mouseY);
-    rollGainD.mouseMoved(mouseX, mouseY);
-    courseMaxI.mouseMoved(mouseX, mouseY);
-    courseMinI.mouseMoved(mouseX, mouseY);
-    courseGainP.mouseMoved(mouseX, mouseY);
-    courseGainI.mouseMoved(mouseX, mouseY);
-    courseGainD.mouseMoved(mouseX, mouseY);
-    switchStabilize.mouseMoved(mouseX, mouseY);
-    switchNavigation.mouseMoved(mouseX, mouseY);
-    switchHome.mouseMoved(mouseX, mouseY);
+    widgets.mouseMoved(mouseX, mouseY);
   }
 
   /**
@@ -622,6 +653,8 @@ public class UAVsim extends PApplet {
     servoController.shutDown();
     motionSensor.shutDown();
     gpsReceiver.shutDown();
+    dashboard.shutDown();
+    telemetry.shutDown();
   }
 
   /**